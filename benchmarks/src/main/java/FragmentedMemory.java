@@ -0,0 +1,91 @@
+import benchmarks.MemoryDriver;
+
+import java.util.Random;
+
+/**
+ * The memory the benchmarks run on (see {@link MemoryDriver#create}).
+ */
+public class FragmentedMemory implements MemoryDriver {
+
+    private final MemoryManager memoryManager;
+
+    private final int[] ids;
+
+    private final int[] requestSizes;
+
+    /**
+     * The size of each process, by ID
+     */
+    private final int[] limits;
+
+    public FragmentedMemory(String strategy, int memSize, int liveProcesses, double fragmentation, long seed) {
+        memoryManager = new MemoryManager(memSize, AllocationStrategies.forName(strategy));
+        Random random = new Random(seed);
+
+        // Sizes uniform in [1, 2 * mean - 1], so the processes add up to about 90% of the memory
+        int mean = Math.max(1, (int) (0.9 * memSize / liveProcesses));
+        requestSizes = new int[4096];
+        for (int i = 0; i < requestSizes.length; i++) {
+            requestSizes[i] = 1 + random.nextInt(2 * mean - 1);
+        }
+
+        ids = new int[liveProcesses];
+        limits = new int[liveProcesses + 1];
+        for (int i = 0; i < liveProcesses; i++) {
+            int size = 1 + random.nextInt(2 * mean - 1);
+            ids[i] = memoryManager.tryAllocate(size);
+            if (ids[i] != -1) {
+                limits[ids[i]] = size;
+            }
+        }
+        for (int i = 0; i < liveProcesses; i++) {
+            if (ids[i] != -1 && random.nextDouble() < fragmentation) {
+                memoryManager.tryDelete(ids[i]);
+                ids[i] = -1;
+            }
+        }
+    }
+
+    @Override
+    public int[] ids() {
+        return ids;
+    }
+
+    @Override
+    public int[] requestSizes() {
+        return requestSizes;
+    }
+
+    @Override
+    public int allocate(int size) {
+        return memoryManager.tryAllocate(size);
+    }
+
+    @Override
+    public boolean delete(int id) {
+        return memoryManager.tryDelete(id);
+    }
+
+    @Override
+    public int convertAddress(int id, int virtualAddress) throws Exception {
+        return memoryManager.convertAddress(id, virtualAddress);
+    }
+
+    @Override
+    public int convertAddresses(int id, int[] virtualAddresses, int[] physicalOut) throws Exception {
+        return memoryManager.convertAddresses(id, virtualAddresses, physicalOut);
+    }
+
+    @Override
+    public int convertAddresses(int[] ids, int[] virtualAddresses, int[] physicalOut) {
+        return memoryManager.convertAddresses(ids, virtualAddresses, physicalOut);
+    }
+
+    /**
+     * Only valid for the processes created to fill the memory
+     */
+    @Override
+    public int limit(int id) {
+        return limits[id];
+    }
+}
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of placing a request with each fit strategy, on memories of 1 MB to 16 GB (of 1 KB units) at various levels of fragmentation.
+ * Each call allocates a process and deletes it right away, so the memory stays in the same state for the whole run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllocatorBenchmark {
+
+    @Param({"first-fit", "next-fit", "best-fit", "worst-fit"})
+    public String strategy;
+
+    // 1 MB, 1 GB and 16 GB
+    @Param({"1024", "1048576", "16777216"})
+    public int memSize;
+
+    @Param({"1000", "100000"})
+    public int liveProcesses;
+
+    @Param({"0.0", "0.3", "0.6"})
+    public double fragmentation;
+
+    private MemoryDriver memory;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        memory = MemoryDriver.create(strategy, memSize, liveProcesses, fragmentation, 42);
+    }
+
+    @Benchmark
+    public int allocateAndDelete() {
+        int size = memory.requestSizes()[next++ & (memory.requestSizes().length - 1)];
+        int id = memory.allocate(size);
+        if (id != -1) {
+            memory.delete(id);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,82 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steady-state churn: each call deletes a random live process and creates a new one, so the memory fragments the way it would under a long-running load.
+ * <p>
+ * Run it through {@link #main} to also get the GC profiler (allocation rate per operation, and GC counts): the allocation and deletion paths
+ * should allocate nothing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChurnBenchmark {
+
+    @Param({"first-fit", "next-fit", "best-fit", "worst-fit"})
+    public String strategy;
+
+    @Param({"1048576", "16777216"})
+    public int memSize;
+
+    @Param({"1000", "100000"})
+    public int liveProcesses;
+
+    @Param({"0.3"})
+    public double fragmentation;
+
+    private MemoryDriver memory;
+
+    private Random random;
+    private int next;
+
+    @Setup
+    public void setup() {
+        memory = MemoryDriver.create(strategy, memSize, liveProcesses, fragmentation, 42);
+        random = new Random(7);
+    }
+
+    @Benchmark
+    public int deleteAndCreate() {
+        int slot = random.nextInt(memory.ids().length);
+        if (memory.ids()[slot] != -1) {
+            memory.delete(memory.ids()[slot]);
+        }
+        int size = memory.requestSizes()[next++ & (memory.requestSizes().length - 1)];
+        memory.ids()[slot] = memory.allocate(size);
+        return memory.ids()[slot];
+    }
+
+    /**
+     * Runs this benchmark with the GC profiler. Other JMH options (e.g. -p strategy=best-fit) can be given as arguments.
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(ChurnBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
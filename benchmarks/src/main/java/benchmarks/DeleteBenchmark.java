@@ -0,0 +1,83 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of deleting a process (which merges its block with the neighbouring holes in the strategy's indexes).
+ * <p>
+ * Deleting isn't a steady-state operation, so each iteration deletes a batch of {@link #BATCH} processes, in random order,
+ * from a memory built again before the iteration (outside of the measurement). The score is the time of a whole batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, batchSize = DeleteBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = DeleteBenchmark.BATCH)
+@Fork(1)
+public class DeleteBenchmark {
+
+    static final int BATCH = 1000;
+
+    @Param({"first-fit", "next-fit", "best-fit", "worst-fit"})
+    public String strategy;
+
+    @Param({"1048576", "16777216"})
+    public int memSize;
+
+    @Param({"10000", "100000"})
+    public int liveProcesses;
+
+    @Param({"0.0", "0.3"})
+    public double fragmentation;
+
+    private MemoryDriver memory;
+
+    /**
+     * The IDs to delete, in order
+     */
+    private int[] victims;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        memory = MemoryDriver.create(strategy, memSize, liveProcesses, fragmentation, 42);
+
+        // BATCH of the live processes, shuffled
+        int[] live = new int[memory.ids().length];
+        int count = 0;
+        for (int id : memory.ids()) {
+            if (id != -1) {
+                live[count++] = id;
+            }
+        }
+        Random random = new Random(7);
+        victims = new int[Math.min(BATCH, count)];
+        for (int i = 0; i < victims.length; i++) {
+            int j = i + random.nextInt(count - i);
+            int id = live[j];
+            live[j] = live[i];
+            victims[i] = id;
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public boolean deleteProcess() {
+        // Past the victims (if the memory had fewer live processes), deleting an unknown ID only measures the lookup
+        return memory.delete(next < victims.length ? victims[next++] : -1);
+    }
+}
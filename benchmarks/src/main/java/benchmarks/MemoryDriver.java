@@ -0,0 +1,61 @@
+package benchmarks;
+
+/**
+ * The benchmarks' view of the simulator.
+ * <p>
+ * JMH requires benchmarks to be in a named package, and the simulator's classes are in the default package, which a named package can't import.
+ * So the benchmarks go through this interface, implemented in the default package by {@code FragmentedMemory} and loaded by name.
+ * There is a single implementation, so the JIT inlines the calls and they cost nothing.
+ */
+public interface MemoryDriver {
+
+    /**
+     * Creates a memory filled with processes of random sizes, then deletes a fraction of them at random,
+     * which leaves holes of various sizes between the survivors.
+     *
+     * @param strategy      The name of the allocation strategy
+     * @param memSize       Memory size in KB
+     * @param liveProcesses The number of processes created to fill the memory (fewer fit if the memory is too small for that many)
+     * @param fragmentation The fraction of these processes deleted afterwards
+     */
+    static MemoryDriver create(String strategy, int memSize, int liveProcesses, double fragmentation, long seed) {
+        try {
+            return (MemoryDriver) Class.forName("FragmentedMemory")
+                    .getDeclaredConstructor(String.class, int.class, int.class, double.class, long.class)
+                    .newInstance(strategy, memSize, liveProcesses, fragmentation, seed);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can't create the memory", e);
+        }
+    }
+
+    /**
+     * @return The IDs of the processes created to fill the memory (-1 for those that were deleted, or didn't fit). The benchmarks may update it.
+     */
+    int[] ids();
+
+    /**
+     * @return Request sizes drawn from the same distribution as the initial processes (a power of two of them)
+     */
+    int[] requestSizes();
+
+    /**
+     * @return The ID of the new process, or -1
+     */
+    int allocate(int size);
+
+    boolean delete(int id);
+
+    /**
+     * The scalar translation, which throws on an invalid address
+     */
+    int convertAddress(int id, int virtualAddress) throws Exception;
+
+    int convertAddresses(int id, int[] virtualAddresses, int[] physicalOut) throws Exception;
+
+    int convertAddresses(int[] ids, int[] virtualAddresses, int[] physicalOut);
+
+    /**
+     * @return The size of a live process in KB
+     */
+    int limit(int id);
+}
@@ -0,0 +1,114 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of translating an address: one at a time with convertAddress, and in bulk with convertAddresses, for addresses of mixed processes or
+ * of a single one. A fraction of the addresses can be made invalid (outside their process), which the scalar path reports with an exception.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TranslateBenchmark {
+
+    private static final int ADDRESSES = 4096;
+
+    @Param({"1000", "100000"})
+    public int liveProcesses;
+
+    @Param({"0", "1"})
+    public int invalidPercent;
+
+    private MemoryDriver memory;
+
+    private int[] processIDs;
+    private int[] virtualAddresses;
+    private int[] singleProcessAddresses;
+    private int[] physicalAddresses;
+
+    @Setup
+    public void setup() {
+        memory = MemoryDriver.create("first-fit", 16777216, liveProcesses, 0.0, 42);
+
+        Random random = new Random(7);
+        processIDs = new int[ADDRESSES];
+        virtualAddresses = new int[ADDRESSES];
+        singleProcessAddresses = new int[ADDRESSES];
+        physicalAddresses = new int[ADDRESSES];
+        for (int i = 0; i < ADDRESSES; i++) {
+            int id;
+            do {
+                id = memory.ids()[random.nextInt(memory.ids().length)];
+            } while (id == -1);
+            processIDs[i] = id;
+            virtualAddresses[i] = address(random, memory.limit(id));
+        }
+        for (int i = 0; i < ADDRESSES; i++) {
+            singleProcessAddresses[i] = address(random, memory.limit(processIDs[0]));
+        }
+    }
+
+    /**
+     * @return An address inside a process of the given size, or outside it for invalidPercent% of the addresses
+     */
+    private int address(Random random, int limit) {
+        return random.nextInt(100) < invalidPercent ? limit + random.nextInt(limit) : random.nextInt(limit);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ADDRESSES)
+    public long convertAddress() {
+        long sum = 0;
+        for (int i = 0; i < ADDRESSES; i++) {
+            sum += convert(processIDs[i], virtualAddresses[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ADDRESSES)
+    public long convertAddressSingleProcess() {
+        long sum = 0;
+        for (int i = 0; i < ADDRESSES; i++) {
+            sum += convert(processIDs[0], singleProcessAddresses[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ADDRESSES)
+    public int convertAddressesMixed() {
+        return memory.convertAddresses(processIDs, virtualAddresses, physicalAddresses);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ADDRESSES)
+    public int convertAddressesSingleProcess() throws Exception {
+        return memory.convertAddresses(processIDs[0], singleProcessAddresses, physicalAddresses);
+    }
+
+    private int convert(int id, int virtualAddress) {
+        try {
+            return memory.convertAddress(id, virtualAddress);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+import java.util.ServiceLoader;
+
+/**
+ * Creates allocation strategies by number (the constants of {@link mmu}) or by name.
+ */
+public class AllocationStrategies {
+
+    private AllocationStrategies() {
+    }
+
+    /**
+     * @param fitStrategy    The number of the strategy (see {@link mmu#FIRST_FIT} to {@link mmu#SEGREGATED_FIT})
+     * @param useFreeRunTree Whether First Fit and Next Fit use the segment tree backend
+     */
+    public static AllocationStrategy forId(int fitStrategy, boolean useFreeRunTree) {
+        return switch (fitStrategy) {
+            case mmu.FIRST_FIT -> new FirstFitStrategy(useFreeRunTree);
+            case mmu.NEXT_FIT -> new NextFitStrategy(useFreeRunTree);
+            case mmu.BEST_FIT -> new BestFitStrategy();
+            case mmu.WORST_FIT -> new WorstFitStrategy();
+            case mmu.BUDDY -> new BuddyAllocator();
+            case mmu.SEGREGATED_FIT -> new SegregatedFitAllocator();
+            default -> throw new IllegalArgumentException("The allocation strategy must be between 1 and 6");
+        };
+    }
+
+    /**
+     * Creates a strategy from its name. The built-in strategies are "first-fit", "next-fit", "best-fit", "worst-fit", "buddy" and "segregated-fit"
+     * (First Fit and Next Fit also have a "-tree" variant, using the segment tree backend). Any other name is looked up among the strategies
+     * registered with {@link ServiceLoader}.
+     */
+    public static AllocationStrategy forName(String name) {
+        switch (name.toLowerCase()) {
+            case "first-fit":
+                return new FirstFitStrategy(false);
+            case "first-fit-tree":
+                return new FirstFitStrategy(true);
+            case "next-fit":
+                return new NextFitStrategy(false);
+            case "next-fit-tree":
+                return new NextFitStrategy(true);
+            case "best-fit":
+                return new BestFitStrategy();
+            case "worst-fit":
+                return new WorstFitStrategy();
+            case "buddy":
+                return new BuddyAllocator();
+            case "segregated-fit":
+                return new SegregatedFitAllocator();
+        }
+
+        for (AllocationStrategy strategy : ServiceLoader.load(AllocationStrategy.class)) {
+            if (strategy.name().equalsIgnoreCase(name)) {
+                return strategy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown allocation strategy " + name);
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * An allocation strategy decides where each process is placed in the memory.
+ * <p>
+ * A strategy works on the {@link FreeSpace} it is attached to: it finds a place for each request and marks it with {@link FreeSpace#reserve},
+ * and gives it back with {@link FreeSpace#release} when the process is deleted. It may reserve more than the requested amount (e.g. to round it up),
+ * as long as {@link #free} releases the same space.
+ * <p>
+ * Strategies are created with {@link AllocationStrategies#forName(String)}. Strategies outside of this project can be registered with {@link java.util.ServiceLoader}
+ * (in a META-INF/services/AllocationStrategy file) and must then have a public no-argument constructor.
+ */
+public interface AllocationStrategy {
+
+    /**
+     * @return The name of the strategy, used to select it (e.g. "first-fit")
+     */
+    String name();
+
+    /**
+     * Attaches the strategy to the free space of a memory. It is called once, before any allocation, and is where the strategy asks for the indexes it needs.
+     */
+    void init(FreeSpace freeSpace);
+
+    /**
+     * Finds a place for the requested amount and reserves it.
+     *
+     * @param amount The requested amount in KB (positive, and at most the memory size)
+     * @return The base of the allocated block, or -1 if there is no space for it
+     */
+    int allocate(int amount);
+
+    /**
+     * Releases the block that was allocated for the given amount at the given base.
+     */
+    void free(int base, int amount);
+
+    /**
+     * Allocates a whole batch of requests. By default, each request is allocated on its own, in order; a strategy may override this to place the batch
+     * in a single pass over the free space (so the placements may differ from allocating the requests one by one). First Fit and Next Fit do;
+     * Best Fit and Worst Fit keep the default, since they pick each hole by its size: each request is one lookup in their size index.
+     *
+     * @param amounts The requested amounts in KB (each positive, and at most the memory size)
+     * @return The base of each allocated block, or -1 for the requests that didn't fit
+     */
+    default int[] allocateBatch(int[] amounts) {
+        int[] bases = new int[amounts.length];
+        for (int i = 0; i < amounts.length; i++) {
+            bases[i] = allocate(amounts[i]);
+        }
+        return bases;
+    }
+
+    /**
+     * Releases a batch of blocks. By default, each block is released on its own.
+     *
+     * @param count The number of blocks (the first {@code count} elements of the arrays)
+     */
+    default void freeBatch(int[] bases, int[] amounts, int count) {
+        for (int i = 0; i < count; i++) {
+            free(bases[i], amounts[i]);
+        }
+    }
+
+    /**
+     * Whether the blocks of this strategy can be moved by compaction: it must reserve exactly the requested amount, and keep no state about
+     * the allocated blocks outside of the free space.
+     */
+    default boolean isRelocatable() {
+        return false;
+    }
+
+    /**
+     * Grows or shrinks the block allocated for {@code oldAmount} at the given base to {@code newAmount}, without moving it, if the strategy can.
+     * When it returns true, the block must then be freed with the new amount.
+     *
+     * @return Whether the block was resized in place. By default, it never is, and the caller has to relocate it.
+     */
+    default boolean resizeInPlace(int base, int oldAmount, int newAmount) {
+        return false;
+    }
+
+    /**
+     * @return The units the strategy reserved ahead of the requests and hasn't handed out yet (e.g. the free slots of slabs), in KB. They are
+     * reserved in the free space, but any later request of the right size can use them, so they aren't internal fragmentation. By default, 0.
+     */
+    default long unusedCapacity() {
+        return 0;
+    }
+
+    /**
+     * @return The position the next search starts from, for a strategy that keeps one (e.g. Next Fit), or 0. It's saved in snapshots of the memory.
+     */
+    default int getCursor() {
+        return 0;
+    }
+
+    /**
+     * Restores the position saved by {@link #getCursor()}.
+     */
+    default void setCursor(int cursor) {
+    }
+}
@@ -0,0 +1,299 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The metrics of the allocator of a {@link MemoryManager}, enabled by {@link MemoryManager#enableMetrics()}:
+ * <p>
+ * - counters of successful and failed allocations, and of frees, <p>
+ * - a histogram of the probe length of each allocation (the holes or tree nodes the search examined; a search in an O(log n) index counts as one probe), <p>
+ * - a histogram of the latency of one allocation in {@link #SAMPLE_PERIOD}, <p>
+ * - gauges of the free units, the number of holes, the largest hole and the external fragmentation index, published after each operation
+ * from the counts the {@link FreeSpace} maintains incrementally. <p>
+ * The metrics are recorded by the thread that owns the memory manager, and can be read by any thread: from JMX (see {@link #registerMBean()}),
+ * or by the periodic reporter (see {@link #startReporter}). The histograms are not synchronized, so a reader on another thread may see them
+ * a few records behind.
+ */
+public class AllocatorMetrics implements AllocatorMetricsMXBean {
+
+    /**
+     * One allocation in SAMPLE_PERIOD is timed (a power of two)
+     */
+    public static final int SAMPLE_PERIOD = 16;
+
+    private static final AtomicInteger instances = new AtomicInteger();
+
+    private final String strategy;
+    private final FreeSpace freeSpace;
+    private final int instance = instances.incrementAndGet();
+
+    private final LongAdder allocations = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder frees = new LongAdder();
+
+    private final LatencyHistogram probes = new LatencyHistogram();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private int sampleCounter;
+
+    // The gauges, as of the last operation
+    private volatile long freeUnits;
+    private volatile int holeCount;
+    private volatile int largestHole;
+
+    private ScheduledExecutorService reporter;
+    private BufferedWriter reportWriter;
+    private boolean json;
+
+    /**
+     * @param strategy  The name of the allocation strategy, used as the label of the metrics
+     * @param freeSpace The free space of the memory. Its largest hole should be maintained by an index (see {@link FreeSpace#trackLargestHole()}).
+     */
+    public AllocatorMetrics(String strategy, FreeSpace freeSpace) {
+        this.strategy = strategy;
+        this.freeSpace = freeSpace;
+        publish();
+    }
+
+    /**
+     * @return Whether the next allocation should be timed
+     */
+    boolean sample() {
+        return (++sampleCounter & (SAMPLE_PERIOD - 1)) == 0;
+    }
+
+    void recordLatency(long nanos) {
+        latencies.record(nanos);
+    }
+
+    /**
+     * Records an allocation that examined the given number of holes or tree nodes.
+     */
+    void allocated(long probeLength, boolean success) {
+        if (success) {
+            allocations.increment();
+        } else {
+            failures.increment();
+        }
+        // A lookup in an index that doesn't count its steps still examined something
+        probes.record(Math.max(1, probeLength));
+    }
+
+    /**
+     * Records a batch of allocations, which are placed in a single pass, so their probes aren't recorded.
+     */
+    void allocatedBatch(int succeeded, int failed) {
+        allocations.add(succeeded);
+        failures.add(failed);
+    }
+
+    void freed(int count) {
+        frees.add(count);
+    }
+
+    /**
+     * Updates the gauges from the free space. Called after each operation that changed it.
+     */
+    void publish() {
+        freeUnits = freeSpace.freeUnits();
+        holeCount = freeSpace.holeCount();
+        largestHole = freeSpace.largestHole();
+    }
+
+    @Override
+    public String getStrategy() {
+        return strategy;
+    }
+
+    @Override
+    public long getAllocations() {
+        return allocations.sum();
+    }
+
+    @Override
+    public long getAllocationFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public long getFrees() {
+        return frees.sum();
+    }
+
+    @Override
+    public long getFreeUnits() {
+        return freeUnits;
+    }
+
+    @Override
+    public int getHoleCount() {
+        return holeCount;
+    }
+
+    @Override
+    public int getLargestHole() {
+        return largestHole;
+    }
+
+    /**
+     * @return 1 - (largest hole / total free space), or 0 if the memory is full
+     */
+    @Override
+    public double getExternalFragmentation() {
+        long free = freeUnits;
+        return free == 0 ? 0 : 1 - (double) largestHole / free;
+    }
+
+    @Override
+    public double getProbeMean() {
+        return probes.mean();
+    }
+
+    @Override
+    public long getProbeP99() {
+        return probes.percentile(99);
+    }
+
+    @Override
+    public long getProbeMax() {
+        return probes.max();
+    }
+
+    @Override
+    public long getLatencyP50Nanos() {
+        return latencies.percentile(50);
+    }
+
+    @Override
+    public long getLatencyP99Nanos() {
+        return latencies.percentile(99);
+    }
+
+    @Override
+    public long getLatencyP999Nanos() {
+        return latencies.percentile(99.9);
+    }
+
+    @Override
+    public long getLatencyMaxNanos() {
+        return latencies.max();
+    }
+
+    /**
+     * Registers the metrics in the platform MBean server, as mmu:type=AllocatorMetrics,strategy=&lt;name&gt;,instance=&lt;n&gt;.
+     *
+     * @return The name of the MBean
+     */
+    public ObjectName registerMBean() throws JMException {
+        ObjectName name = new ObjectName("mmu:type=AllocatorMetrics,strategy=" + strategy + ",instance=" + instance);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        return name;
+    }
+
+    /**
+     * Starts writing the metrics to the given file every period, from a daemon thread. The file is written as JSON lines (one object per report)
+     * if its name ends with .json, and as CSV (with a header line) otherwise.
+     */
+    public synchronized void startReporter(Path file, long periodMillis) throws IOException {
+        if (reporter != null) {
+            throw new IllegalStateException("The metrics are already reported");
+        }
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("The report period must be positive");
+        }
+        json = file.toString().toLowerCase(Locale.ROOT).endsWith(".json");
+        reportWriter = Files.newBufferedWriter(file);
+        if (!json) {
+            reportWriter.write("timestamp,strategy,allocations,failures,frees,free_units,holes,largest_hole,external_fragmentation,"
+                    + "probe_mean,probe_p99,probe_max,latency_p50_ns,latency_p99_ns,latency_p999_ns,latency_max_ns");
+            reportWriter.newLine();
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mmu-metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(this::report, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the reporter, after writing a last report.
+     */
+    public void stopReporter() throws IOException {
+        ScheduledExecutorService stopped;
+        synchronized (this) {
+            stopped = reporter;
+            reporter = null;
+        }
+        if (stopped == null) {
+            return;
+        }
+        // Not while holding the lock, which a running report needs
+        stopped.shutdown();
+        try {
+            stopped.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            report();
+            reportWriter.close();
+            reportWriter = null;
+        }
+    }
+
+    private synchronized void report() {
+        if (reportWriter == null) {
+            return;
+        }
+        try {
+            reportWriter.write(json ? toJson() : toCsv());
+            reportWriter.newLine();
+            reportWriter.flush();
+        } catch (IOException e) {
+            mmu.printErr("Error: could not write the metrics: " + e.getMessage());
+        }
+    }
+
+    private String toCsv() {
+        return String.format(Locale.ROOT, "%d,%s,%d,%d,%d,%d,%d,%d,%.4f,%.2f,%d,%d,%d,%d,%d,%d",
+                System.currentTimeMillis(), strategy, getAllocations(), getAllocationFailures(), getFrees(),
+                getFreeUnits(), getHoleCount(), getLargestHole(), getExternalFragmentation(),
+                getProbeMean(), getProbeP99(), getProbeMax(),
+                getLatencyP50Nanos(), getLatencyP99Nanos(), getLatencyP999Nanos(), getLatencyMaxNanos());
+    }
+
+    private String toJson() {
+        return String.format(Locale.ROOT, "{\"timestamp\":%d,\"strategy\":\"%s\",\"allocations\":%d,\"failures\":%d,\"frees\":%d,"
+                        + "\"freeUnits\":%d,\"holes\":%d,\"largestHole\":%d,\"externalFragmentation\":%.4f,"
+                        + "\"probeMean\":%.2f,\"probeP99\":%d,\"probeMax\":%d,"
+                        + "\"latencyP50Nanos\":%d,\"latencyP99Nanos\":%d,\"latencyP999Nanos\":%d,\"latencyMaxNanos\":%d}",
+                System.currentTimeMillis(), strategy, getAllocations(), getAllocationFailures(), getFrees(),
+                getFreeUnits(), getHoleCount(), getLargestHole(), getExternalFragmentation(),
+                getProbeMean(), getProbeP99(), getProbeMax(),
+                getLatencyP50Nanos(), getLatencyP99Nanos(), getLatencyP999Nanos(), getLatencyMaxNanos());
+    }
+
+    public void print() {
+        System.out.println("Strategy: " + MemoryManager.blueColor(strategy));
+        System.out.println("Allocations: " + MemoryManager.blueColor(getAllocations() + "") + " (" + MemoryManager.blueColor(getAllocationFailures() + "")
+                + " failed), frees: " + MemoryManager.blueColor(getFrees() + ""));
+        System.out.println("Free: " + MemoryManager.blueColor(getFreeUnits() + "") + " KB in " + MemoryManager.blueColor(getHoleCount() + "")
+                + " holes (largest: " + MemoryManager.blueColor(getLargestHole() + "") + " KB)");
+        System.out.println("External fragmentation: " + MemoryManager.blueColor(String.format("%.3f", getExternalFragmentation())));
+        System.out.println("Probes per allocation: mean " + MemoryManager.blueColor(String.format("%.2f", getProbeMean()))
+                + ", p99 " + MemoryManager.blueColor(getProbeP99() + "") + ", max " + MemoryManager.blueColor(getProbeMax() + ""));
+        System.out.println("Allocation latency (1 in " + SAMPLE_PERIOD + " sampled): p50 " + MemoryManager.blueColor(getLatencyP50Nanos() + "")
+                + " ns, p99 " + MemoryManager.blueColor(getLatencyP99Nanos() + "") + " ns, p99.9 " + MemoryManager.blueColor(getLatencyP999Nanos() + "")
+                + " ns, max " + MemoryManager.blueColor(getLatencyMaxNanos() + "") + " ns");
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * The management interface of {@link AllocatorMetrics}, exported through JMX by {@link AllocatorMetrics#registerMBean()}.
+ */
+public interface AllocatorMetricsMXBean {
+
+    String getStrategy();
+
+    long getAllocations();
+
+    long getAllocationFailures();
+
+    long getFrees();
+
+    long getFreeUnits();
+
+    int getHoleCount();
+
+    int getLargestHole();
+
+    double getExternalFragmentation();
+
+    double getProbeMean();
+
+    long getProbeP99();
+
+    long getProbeMax();
+
+    long getLatencyP50Nanos();
+
+    long getLatencyP99Nanos();
+
+    long getLatencyP999Nanos();
+
+    long getLatencyMaxNanos();
+}
@@ -0,0 +1,131 @@
+/**
+ * Adaptive Replacement Cache (Megiddo and Modha). Resident pages are split in two LRU lists: T1 (seen once recently) and T2 (seen at least twice).
+ * Two ghost lists, B1 and B2, remember the pages recently evicted from T1 and T2. A fault on a ghost page shifts the target size of T1 (p)
+ * towards the list that would have kept it, so the policy adapts between recency and frequency.
+ */
+public class ArcPolicy implements PageReplacementPolicy {
+
+    private int capacity;
+
+    /**
+     * The target size of T1
+     */
+    private int p;
+
+    // The resident lists, with the most recently used frame at the head
+    private FrameList t1;
+    private FrameList t2;
+
+    /**
+     * The page loaded in each resident frame
+     */
+    private long[] pageKeys;
+
+    // The ghost lists, in insertion order (the eldest key is the least recently evicted page)
+    private GhostList b1;
+    private GhostList b2;
+
+    /**
+     * The page for which p was already adapted in {@link #selectVictim}, so {@link #onLoad} doesn't adapt it twice
+     */
+    private long adaptedPage = -1;
+
+    @Override
+    public String name() {
+        return "arc";
+    }
+
+    @Override
+    public void init(int frameCount) {
+        capacity = frameCount;
+        t1 = new FrameList(frameCount);
+        t2 = new FrameList(frameCount);
+        pageKeys = new long[frameCount];
+        // |B1| <= c and |B2| <= 2c (see onLoad), so the ghost lists never drop a key on their own
+        b1 = new GhostList(2 * frameCount);
+        b2 = new GhostList(2 * frameCount);
+    }
+
+    @Override
+    public void onLoad(int frame, long pageKey) {
+        if (adaptedPage != pageKey) {
+            adapt(pageKey);
+        }
+        adaptedPage = -1;
+        pageKeys[frame] = pageKey;
+
+        if (b1.remove(pageKey) || b2.remove(pageKey)) {
+            // A ghost hit: the page was seen before, so it goes to the frequency list
+            t2.addFirst(frame);
+            return;
+        }
+
+        t1.addFirst(frame);
+        // Keep the ghost lists bounded: |T1| + |B1| <= c, and |T1| + |T2| + |B1| + |B2| <= 2c
+        if (t1.size() + b1.size() > capacity) {
+            b1.removeEldest();
+        }
+        if (t1.size() + t2.size() + b1.size() + b2.size() > 2 * capacity) {
+            b2.removeEldest();
+        }
+    }
+
+    @Override
+    public void onAccess(int frame) {
+        // A hit in T1 or T2 makes the page frequent
+        if (t1.contains(frame)) {
+            t1.remove(frame);
+            t2.addFirst(frame);
+        } else if (t2.contains(frame)) {
+            t2.moveToFirst(frame);
+        }
+    }
+
+    @Override
+    public void onRemove(int frame) {
+        if (t1.contains(frame)) {
+            t1.remove(frame);
+        } else if (t2.contains(frame)) {
+            t2.remove(frame);
+        }
+    }
+
+    @Override
+    public int selectVictim(long incomingPageKey) {
+        adapt(incomingPageKey);
+        adaptedPage = incomingPageKey;
+
+        // REPLACE: evict from T1 if it's larger than its target (or equal to it on a B2 hit), and from T2 otherwise
+        boolean inB2 = b2.contains(incomingPageKey);
+        int victim;
+        if (t1.size() > 0 && (t1.size() > p || (inB2 && t1.size() == p) || t2.size() == 0)) {
+            victim = t1.removeLast();
+            b1.add(pageKeys[victim]);
+        } else {
+            victim = t2.removeLast();
+            b2.add(pageKeys[victim]);
+        }
+        return victim;
+    }
+
+    /**
+     * Moves the target size of T1 on a ghost hit: up on a B1 hit (recency would have helped), down on a B2 hit (frequency would have helped).
+     */
+    private void adapt(long pageKey) {
+        if (b1.contains(pageKey)) {
+            p = Math.min(capacity, p + Math.max(b2.size() / Math.max(b1.size(), 1), 1));
+        } else if (b2.contains(pageKey)) {
+            p = Math.max(0, p - Math.max(b1.size() / Math.max(b2.size(), 1), 1));
+        }
+    }
+
+    @Override
+    public void onUnmapProcess(int processID) {
+        // The ID may be reused right away: the pages of the new process must not hit the ghosts of the old one
+        b1.removeProcess(processID);
+        b2.removeProcess(processID);
+        if ((int) (adaptedPage >>> 32) == processID) {
+            adaptedPage = -1;
+        }
+    }
+}
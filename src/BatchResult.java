@@ -0,0 +1,62 @@
+/**
+ * The outcome of a batch of allocations or deletions: one status per element of the batch, in the order of the request.
+ * A batch never fails as a whole; each element succeeds or fails on its own.
+ */
+public class BatchResult {
+
+    public enum Status {
+        OK,
+        NO_ENOUGH_MEMORY,
+        INVALID_SIZE,
+        PROCESS_NOT_FOUND
+    }
+
+    private final Status[] statuses;
+
+    /**
+     * The created processes (for an allocation batch), null for the failed elements
+     */
+    private final Process[] processes;
+
+    private int failureCount;
+
+    public BatchResult(int size, boolean allocation) {
+        statuses = new Status[size];
+        processes = allocation ? new Process[size] : null;
+    }
+
+    public int size() {
+        return statuses.length;
+    }
+
+    public Status getStatus(int i) {
+        return statuses[i];
+    }
+
+    public boolean isOk(int i) {
+        return statuses[i] == Status.OK;
+    }
+
+    /**
+     * @return The process created for the i-th element of an allocation batch, or null if it failed
+     */
+    public Process getProcess(int i) {
+        return processes[i];
+    }
+
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    void succeed(int i, Process process) {
+        statuses[i] = Status.OK;
+        if (processes != null) {
+            processes[i] = process;
+        }
+    }
+
+    void fail(int i, Status status) {
+        statuses[i] = status;
+        failureCount++;
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Best Fit: allocates the smallest hole that fits the process (the lowest one if there are several), found in O(log n) with the free extent index.
+ */
+public class BestFitStrategy implements AllocationStrategy {
+
+    private FreeSpace freeSpace;
+
+    private FreeExtentIndex extents;
+
+    @Override
+    public String name() {
+        return "best-fit";
+    }
+
+    @Override
+    public void init(FreeSpace freeSpace) {
+        this.freeSpace = freeSpace;
+        this.extents = freeSpace.extents();
+    }
+
+    @Override
+    public int allocate(int amount) {
+        int base = extents.bestFit(amount);
+        if (base != -1) {
+            freeSpace.reserve(base, amount);
+        }
+        return base;
+    }
+
+    @Override
+    public boolean resizeInPlace(int base, int oldAmount, int newAmount) {
+        return freeSpace.resize(base, oldAmount, newAmount);
+    }
+
+    @Override
+    public boolean isRelocatable() {
+        return true;
+    }
+
+    @Override
+    public void free(int base, int amount) {
+        freeSpace.release(base, amount);
+    }
+
+    @Override
+    public void freeBatch(int[] bases, int[] amounts, int count) {
+        freeSpace.releaseBatch(bases, amounts, count);
+    }
+}
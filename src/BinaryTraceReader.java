@@ -0,0 +1,79 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads a trace written by {@link BinaryTraceWriter}, streamed through a fixed buffer.
+ */
+public class BinaryTraceReader implements TraceSource {
+
+    private static final TraceOp.Kind[] KINDS = TraceOp.Kind.values();
+
+    private final ReadableByteChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    private final byte[] bytes = buffer.array();
+    private int position;
+    private int limit;
+
+    /**
+     * @param channel A channel positioned right after the magic bytes and the version
+     */
+    public BinaryTraceReader(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public boolean next(TraceOp op) throws IOException {
+        if (position == limit && !fill()) {
+            return false;
+        }
+        long header = readVarint();
+        // The 2 bits of the kind have one unused value, and the trace ID is a non-negative int
+        if ((header & 3) >= KINDS.length || header >>> 2 > Integer.MAX_VALUE) {
+            throw new IOException("Malformed binary trace");
+        }
+        TraceOp.Kind kind = KINDS[(int) (header & 3)];
+        int value = 0;
+        if (kind != TraceOp.Kind.DELETE) {
+            long zigzag = readVarint();
+            if (zigzag >>> 32 != 0) {
+                throw new IOException("Malformed binary trace");
+            }
+            value = ((int) zigzag >>> 1) ^ -((int) zigzag & 1);
+        }
+        op.set(kind, (int) (header >>> 2), value);
+        return true;
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position == limit && !fill()) {
+                throw new IOException("Truncated binary trace");
+            }
+            byte b = bytes[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed binary trace");
+    }
+
+    private boolean fill() throws IOException {
+        buffer.clear();
+        int n;
+        do {
+            n = channel.read(buffer);
+        } while (n == 0);
+        position = 0;
+        limit = Math.max(n, 0);
+        return n > 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,84 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a trace in a compact binary format: the magic bytes "MMUT" and a version byte, then for each operation the varint of (trace ID << 2 | kind),
+ * followed for a create or a convert by the zigzag varint of its value. A typical operation takes 2 to 4 bytes.
+ */
+public class BinaryTraceWriter implements AutoCloseable {
+
+    static final byte[] MAGIC = {'M', 'M', 'U', 'T'};
+    static final byte VERSION = 1;
+
+    private final WritableByteChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+    private long operations;
+
+    public BinaryTraceWriter(WritableByteChannel channel) throws IOException {
+        this.channel = channel;
+        buffer.put(MAGIC).put(VERSION);
+    }
+
+    public static BinaryTraceWriter create(Path path) throws IOException {
+        return new BinaryTraceWriter(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+
+    public void write(TraceOp op) throws IOException {
+        if (op.id < 0) {
+            // It wouldn't fit the 5 bytes of the header, and the reader rejects it
+            throw new IOException("Negative trace ID " + op.id);
+        }
+        // An operation takes at most 5 + 5 bytes
+        if (buffer.remaining() < 10) {
+            flush();
+        }
+        writeVarint(((long) op.id << 2) | op.kind.ordinal());
+        if (op.kind != TraceOp.Kind.DELETE) {
+            // Zigzag: small negative values (invalid addresses) stay short
+            writeVarint(((op.value << 1) ^ (op.value >> 31)) & 0xFFFFFFFFL);
+        }
+        operations++;
+    }
+
+    /**
+     * Writes all the operations of a source.
+     *
+     * @return The number of operations written
+     */
+    public long writeAll(TraceSource source) throws IOException {
+        TraceOp op = new TraceOp();
+        long start = operations;
+        while (source.next(op)) {
+            write(op);
+        }
+        return operations - start;
+    }
+
+    private void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * A packed bitmap of allocation units: one bit per unit, 64 units per long word (0 if the unit is free, 1 if it's allocated).
+ * The padding bits after the last unit are kept set, so a scan for free units never runs past the end of the memory.
+ */
+public class Bitmap {
+
+    /**
+     * The number of units tracked by this bitmap
+     */
+    private final int size;
+
+    private final long[] words;
+
+    public Bitmap(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("The bitmap size must be positive");
+        }
+        this.size = size;
+        words = new long[(int) (((long) size + 63) >>> 6)];
+
+        // Mark the padding bits of the last word as allocated
+        if ((size & 63) != 0) {
+            words[words.length - 1] = -1L << size;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of long words backing this bitmap
+     */
+    public int wordCount() {
+        return words.length;
+    }
+
+    /**
+     * @return The raw word at the given index (bit i of the word is unit 64 * index + i). Padding bits are set.
+     */
+    public long word(int index) {
+        return words[index];
+    }
+
+    public boolean isSet(int i) {
+        return (words[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Marks the units in [from, to) as allocated.
+     */
+    public void set(int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+
+        if (firstWord == lastWord) {
+            words[firstWord] |= firstMask & lastMask;
+            return;
+        }
+        words[firstWord] |= firstMask;
+        for (int w = firstWord + 1; w < lastWord; w++) {
+            words[w] = -1L;
+        }
+        words[lastWord] |= lastMask;
+    }
+
+    /**
+     * Marks the units in [from, to) as free.
+     */
+    public void clear(int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+
+        if (firstWord == lastWord) {
+            words[firstWord] &= ~(firstMask & lastMask);
+            return;
+        }
+        words[firstWord] &= ~firstMask;
+        for (int w = firstWord + 1; w < lastWord; w++) {
+            words[w] = 0L;
+        }
+        words[lastWord] &= ~lastMask;
+    }
+
+    /**
+     * @return The number of allocated units in [from, to), counted a word at a time
+     */
+    public int countSet(int from, int to) {
+        if (from >= to) {
+            return 0;
+        }
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+
+        if (firstWord == lastWord) {
+            return Long.bitCount(words[firstWord] & firstMask & lastMask);
+        }
+        int count = Long.bitCount(words[firstWord] & firstMask);
+        for (int w = firstWord + 1; w < lastWord; w++) {
+            count += Long.bitCount(words[w]);
+        }
+        return count + Long.bitCount(words[lastWord] & lastMask);
+    }
+
+    /**
+     * @return The index of the first allocated unit at or after {@code from}, or {@code size()} if there is none.
+     */
+    public int nextSet(int from) {
+        if (from >= size) {
+            return size;
+        }
+        int w = from >>> 6;
+        long word = words[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == words.length) {
+                return size;
+            }
+            word = words[w];
+        }
+        return Math.min((w << 6) + Long.numberOfTrailingZeros(word), size);
+    }
+
+    /**
+     * @return The index of the first free unit at or after {@code from}, or {@code size()} if there is none.
+     */
+    public int nextClear(int from) {
+        if (from >= size) {
+            return size;
+        }
+        int w = from >>> 6;
+        long word = ~words[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == words.length) {
+                return size;
+            }
+            word = ~words[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+}
@@ -0,0 +1,192 @@
+import java.util.Arrays;
+
+/**
+ * A binary buddy allocator. Every request is rounded up to a block of 2^k units (its order), and blocks are split and merged in pairs of buddies.
+ * <p>
+ * Each order has a free list of block bases (a stack of ints) and a bitmap marking which blocks of that order are free.
+ * Removing a block from the middle of a list (when it merges with its buddy) only clears its bit, and the stale entry is skipped when it's popped.
+ * Allocation and free take O(number of orders), independently of the number of processes and holes.
+ */
+public class BuddyAllocator implements AllocationStrategy {
+
+    private FreeSpace freeSpace;
+
+    private int memSize;
+
+    /**
+     * The largest order such that a block of that order fits in the memory
+     */
+    private int maxOrder;
+
+    /**
+     * freeLists[k] holds the bases of the free blocks of order k (some entries may be stale), and listSizes[k] is the number of entries.
+     */
+    private int[][] freeLists;
+    private int[] listSizes;
+
+    /**
+     * Bit (base >> k) of freeBlocks[k] is set if the block of order k starting at base is free.
+     */
+    private Bitmap[] freeBlocks;
+
+    /**
+     * The number of free blocks of each order (the number of valid entries in each free list)
+     */
+    private int[] freeCounts;
+
+    @Override
+    public String name() {
+        return "buddy";
+    }
+
+    @Override
+    public void init(FreeSpace freeSpace) {
+        this.freeSpace = freeSpace;
+        this.memSize = freeSpace.size();
+        maxOrder = 31 - Integer.numberOfLeadingZeros(memSize);
+
+        freeLists = new int[maxOrder + 1][];
+        listSizes = new int[maxOrder + 1];
+        freeBlocks = new Bitmap[maxOrder + 1];
+        freeCounts = new int[maxOrder + 1];
+        for (int k = 0; k <= maxOrder; k++) {
+            freeLists[k] = new int[4];
+            freeBlocks[k] = new Bitmap(memSize >>> k);
+        }
+
+        // Split every hole of the memory into the largest aligned blocks that fit in it
+        Bitmap bitmap = freeSpace.bitmap();
+        int holeStart = bitmap.nextClear(0);
+        while (holeStart < memSize) {
+            int holeEnd = bitmap.nextSet(holeStart);
+            int base = holeStart;
+            while (base < holeEnd) {
+                int order = Math.min(Integer.numberOfTrailingZeros(base), maxOrder);
+                while (base + (1L << order) > holeEnd) {
+                    order--;
+                }
+                push(order, base);
+                base += 1 << order;
+            }
+            holeStart = bitmap.nextClear(holeEnd);
+        }
+    }
+
+    /**
+     * A block can only be resized in place within its order: the rounding of the request absorbs the change.
+     */
+    @Override
+    public boolean resizeInPlace(int base, int oldAmount, int newAmount) {
+        return orderOf(oldAmount) == orderOf(newAmount);
+    }
+
+    /**
+     * @return The order of the block used for the given amount (the smallest k such that 2^k >= amount)
+     */
+    public static int orderOf(int amount) {
+        return amount <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(amount - 1);
+    }
+
+    /**
+     * @return The number of units actually reserved for the given amount
+     */
+    public static int blockSize(int amount) {
+        return 1 << orderOf(amount);
+    }
+
+    /**
+     * @return The base of the block allocated for the given amount, or -1 if there is no free block large enough
+     */
+    @Override
+    public int allocate(int amount) {
+        int order = orderOf(amount);
+        if (order > maxOrder) {
+            return -1;
+        }
+
+        int k = order;
+        int base = -1;
+        while (k <= maxOrder) {
+            base = pop(k);
+            if (base != -1) {
+                break;
+            }
+            k++;
+        }
+        if (base == -1) {
+            return -1;
+        }
+
+        // Split the block until it has the requested order, giving the upper halves back to the free lists
+        while (k > order) {
+            k--;
+            push(k, base + (1 << k));
+        }
+
+        freeSpace.reserve(base, 1 << order);
+        return base;
+    }
+
+    /**
+     * Frees the block that was allocated for the given amount at the given base, merging it with its buddy as long as the buddy is free.
+     */
+    @Override
+    public void free(int base, int amount) {
+        int order = orderOf(amount);
+        freeSpace.release(base, 1 << order);
+
+        int k = order;
+        while (k < maxOrder) {
+            int buddy = base ^ (1 << k);
+            if (buddy + (1L << k) > memSize || !freeBlocks[k].isSet(buddy >>> k)) {
+                break;
+            }
+            // Take the buddy out of its free list, and merge
+            freeBlocks[k].clear(buddy >>> k, (buddy >>> k) + 1);
+            freeCounts[k]--;
+            base = Math.min(base, buddy);
+            k++;
+        }
+        push(k, base);
+    }
+
+    private void push(int k, int base) {
+        if (listSizes[k] == freeLists[k].length) {
+            if (listSizes[k] > 2 * freeCounts[k] + 16) {
+                compact(k);
+            } else {
+                freeLists[k] = Arrays.copyOf(freeLists[k], 2 * listSizes[k]);
+            }
+        }
+        freeLists[k][listSizes[k]++] = base;
+        freeBlocks[k].set(base >>> k, (base >>> k) + 1);
+        freeCounts[k]++;
+    }
+
+    private int pop(int k) {
+        while (listSizes[k] > 0) {
+            int base = freeLists[k][--listSizes[k]];
+            if (freeBlocks[k].isSet(base >>> k)) {
+                freeBlocks[k].clear(base >>> k, (base >>> k) + 1);
+                freeCounts[k]--;
+                return base;
+            }
+            // A stale entry: the block was merged with its buddy after it was pushed
+        }
+        return -1;
+    }
+
+    /**
+     * Rebuilds the free list of order k from its bitmap, dropping the stale entries.
+     */
+    private void compact(int k) {
+        int blocks = memSize >>> k;
+        int size = 0;
+        int i = freeBlocks[k].nextSet(0);
+        while (i < blocks) {
+            freeLists[k][size++] = i << k;
+            i = freeBlocks[k].nextSet(i + 1);
+        }
+        listSizes[k] = size;
+    }
+}
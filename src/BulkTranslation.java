@@ -0,0 +1,78 @@
+/**
+ * The kernels of bulk address translation in contiguous mode: a bounds check and a base addition per address, written without branches
+ * so that the JIT can vectorize the single-process loop (C2's superword optimization turns it into SIMD instructions).
+ * <p>
+ * An address is valid if 0 <= address < limit. For each address, {@code valid = ((address - limit) & ~address) >> 31} is -1 if it's valid and 0 otherwise
+ * (both sign bits are set only when the address is non-negative and below the limit, and the subtraction can't overflow for a non-negative address),
+ * and the result is {@code ((base + address) & valid) | ~valid}: the physical address, or {@link #INVALID_ADDRESS}.
+ * <p>
+ * The invalid addresses are counted by a second loop over the results (a valid physical address is non-negative, so the sign bit marks an invalid one),
+ * run block by block while the results are still in the cache: a reduction in the translation loop itself would keep it from being vectorized.
+ */
+public final class BulkTranslation {
+
+    /**
+     * The physical address written for a virtual address that can't be translated (out of the process, or of an unknown process)
+     */
+    public static final int INVALID_ADDRESS = -1;
+
+    /**
+     * The number of addresses translated before their results are counted
+     */
+    private static final int BLOCK = 2048;
+
+    private BulkTranslation() {
+    }
+
+    /**
+     * Translates the first {@code count} addresses of a single process.
+     *
+     * @return The number of invalid addresses
+     */
+    public static int translate(int base, int limit, int[] virtualAddresses, int[] physicalOut, int count) {
+        int invalid = 0;
+        for (int from = 0; from < count; from += BLOCK) {
+            int to = Math.min(from + BLOCK, count);
+            for (int i = from; i < to; i++) {
+                int address = virtualAddresses[i];
+                int mask = ((address - limit) & ~address) >> 31;
+                physicalOut[i] = ((base + address) & mask) | ~mask;
+            }
+            invalid += countInvalid(physicalOut, from, to);
+        }
+        return invalid;
+    }
+
+    /**
+     * Translates the first {@code count} addresses, each of its own process, with the bases and limits of a process table indexed by ID
+     * (a limit of 0 marks an unknown process, for which every address is invalid).
+     *
+     * @param idBound The IDs must be below this bound (and at most the length of the arrays) to be looked up; other IDs are unknown
+     * @return The number of invalid addresses
+     */
+    public static int translate(int[] bases, int[] limits, int idBound, int[] processIDs, int[] virtualAddresses, int[] physicalOut, int count) {
+        int invalid = 0;
+        for (int from = 0; from < count; from += BLOCK) {
+            int to = Math.min(from + BLOCK, count);
+            for (int i = from; i < to; i++) {
+                int id = processIDs[i];
+                // An unknown ID is looked up as ID 0, which is never used (its limit is 0)
+                int known = ((id - idBound) & ~id) >> 31;
+                id &= known;
+                int address = virtualAddresses[i];
+                int mask = ((address - limits[id]) & ~address) >> 31;
+                physicalOut[i] = ((bases[id] + address) & mask) | ~mask;
+            }
+            invalid += countInvalid(physicalOut, from, to);
+        }
+        return invalid;
+    }
+
+    private static int countInvalid(int[] physical, int from, int to) {
+        int invalid = 0;
+        for (int i = from; i < to; i++) {
+            invalid += physical[i] >>> 31;
+        }
+        return invalid;
+    }
+}
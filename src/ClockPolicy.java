@@ -0,0 +1,56 @@
+/**
+ * Clock (second chance): the frames form a circle swept by a hand. An access sets the reference bit of a frame, and the hand evicts the first
+ * resident frame whose bit is clear, clearing the bits it passes. It approximates LRU with a single bit write per access.
+ */
+public class ClockPolicy implements PageReplacementPolicy {
+
+    private boolean[] resident;
+    private boolean[] referenced;
+    private int hand;
+
+    @Override
+    public String name() {
+        return "clock";
+    }
+
+    @Override
+    public void init(int frameCount) {
+        resident = new boolean[frameCount];
+        referenced = new boolean[frameCount];
+    }
+
+    @Override
+    public void onLoad(int frame, long pageKey) {
+        resident[frame] = true;
+        referenced[frame] = true;
+    }
+
+    @Override
+    public void onAccess(int frame) {
+        referenced[frame] = true;
+    }
+
+    @Override
+    public void onRemove(int frame) {
+        resident[frame] = false;
+        referenced[frame] = false;
+    }
+
+    @Override
+    public int selectVictim(long incomingPageKey) {
+        while (true) {
+            int frame = hand;
+            hand = (hand + 1) % resident.length;
+            if (!resident[frame]) {
+                continue;
+            }
+            if (referenced[frame]) {
+                // Give it a second chance
+                referenced[frame] = false;
+            } else {
+                resident[frame] = false;
+                return frame;
+            }
+        }
+    }
+}
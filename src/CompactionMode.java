@@ -0,0 +1,18 @@
+/**
+ * What {@link MemoryManager#allocateMemory} does when no hole fits a request although the memory has enough free space.
+ */
+public enum CompactionMode {
+    /**
+     * Fail with a NoEnoughMemoryException
+     */
+    NONE,
+    /**
+     * Compact the whole memory, then retry
+     */
+    FULL,
+    /**
+     * Open a hole of the requested size with the cheapest moves, then retry. The allocation waits for the hole, so all the moves are made at once,
+     * in a single pause: the step budget only applies to the steps of {@link MemoryManager#compactStep}.
+     */
+    INCREMENTAL
+}
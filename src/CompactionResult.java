@@ -0,0 +1,47 @@
+/**
+ * What a compaction (or one step of an incremental compaction) did.
+ */
+public class CompactionResult {
+
+    private final long bytesMoved;
+    private final int processesMoved;
+    private final long pauseNanos;
+    private final boolean complete;
+
+    public CompactionResult(long bytesMoved, int processesMoved, long pauseNanos, boolean complete) {
+        this.bytesMoved = bytesMoved;
+        this.processesMoved = processesMoved;
+        this.pauseNanos = pauseNanos;
+        this.complete = complete;
+    }
+
+    /**
+     * @return The number of bytes copied to relocate the processes
+     */
+    public long getBytesMoved() {
+        return bytesMoved;
+    }
+
+    public int getProcessesMoved() {
+        return processesMoved;
+    }
+
+    /**
+     * @return The time the memory was paused for, in nanoseconds
+     */
+    public long getPauseNanos() {
+        return pauseNanos;
+    }
+
+    /**
+     * @return Whether the compaction is over (false if an incremental compaction still has moves to make)
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public String toString() {
+        return "Moved " + processesMoved + " processes (" + bytesMoved + " bytes) in " + String.format("%.3f", pauseNanos / 1e6) + " ms";
+    }
+}
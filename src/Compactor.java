@@ -0,0 +1,262 @@
+/**
+ * Relocates processes to merge the holes of a contiguous memory. A process is moved by rewriting its base in the process table, and releasing its old range
+ * and reserving its new one in the free space (which also updates the indexes of the strategy). A segment mapped by several processes is moved once,
+ * with all of them.
+ * <p>
+ * There are two modes:
+ * <ul>
+ * <li>Full compaction slides every process down to the start of the memory, leaving a single hole at the end. The memory is paused for the whole run.</li>
+ * <li>Incremental compaction only opens a hole of a given size: it picks the cheapest window of the memory (the one holding the fewest KB of processes)
+ * whose holes add up to that size, and slides the processes of the window down to its start. The moves are made in steps of at most {@code maxStepKB} KB,
+ * each step also stopping when it exceeds its pause budget (a step always makes at least one move, since a process can't be half moved).</li>
+ * </ul>
+ * The pending moves of an incremental compaction are only valid as long as the memory doesn't change: they must be cancelled when a process is allocated or deleted.
+ */
+public class Compactor {
+
+    private static final int[] NO_MOVES = new int[0];
+
+    private final FreeSpace freeSpace;
+
+    private int maxStepKB;
+    private long pauseBudgetNanos;
+
+    /**
+     * The pending moves of the incremental compaction (the IDs in the table of the plan, and their targets), in the order they must be made
+     * (by increasing base), and the index of the next one
+     */
+    private ProcessTable planTable;
+    private int[] planIds = NO_MOVES;
+    private int[] planTargets = NO_MOVES;
+    private int planCursor;
+
+    // Totals over all the compactions
+    private long totalBytesMoved;
+    private long totalProcessesMoved;
+    private long totalPauseNanos;
+    private long maxPauseNanos;
+    private long pauses;
+
+    /**
+     * @param maxStepKB        The maximum size of the processes moved by one step of an incremental compaction, in KB
+     * @param pauseBudgetNanos The time after which a step of an incremental compaction stops, in nanoseconds
+     */
+    public Compactor(FreeSpace freeSpace, int maxStepKB, long pauseBudgetNanos) {
+        this.freeSpace = freeSpace;
+        setBudget(maxStepKB, pauseBudgetNanos);
+    }
+
+    public void setBudget(int maxStepKB, long pauseBudgetNanos) {
+        if (maxStepKB <= 0 || pauseBudgetNanos <= 0) {
+            throw new IllegalArgumentException("The compaction budget must be positive");
+        }
+        this.maxStepKB = maxStepKB;
+        this.pauseBudgetNanos = pauseBudgetNanos;
+    }
+
+    /**
+     * Slides all the processes down to the start of the memory. Any pending incremental compaction is cancelled.
+     */
+    public CompactionResult compactAll(ProcessTable processes) {
+        long start = System.nanoTime();
+        cancel();
+
+        int[] sorted = processes.idsByBase();
+        int count = processes.segmentCount();
+        long bytesMoved = 0;
+        int processesMoved = 0;
+        int cursor = 0;
+        for (int i = 0; i < count; i++) {
+            int id = sorted[i];
+            int limit = processes.limit(id);
+            if (processes.base(id) != cursor) {
+                move(processes, id, cursor);
+                bytesMoved += limit * 1024L;
+                processesMoved++;
+            }
+            cursor += limit;
+        }
+
+        return record(bytesMoved, processesMoved, System.nanoTime() - start, true);
+    }
+
+    /**
+     * Plans an incremental compaction that opens a hole of at least the given amount, replacing any pending one.
+     * <p>
+     * The processes sorted by base split the memory in windows: processes i..j and the holes around them, from the end of process i - 1
+     * to the base of process j + 1. Sliding the processes of a window down turns all its holes into a single one, and costs the size of the processes.
+     * For each i, the smallest j whose window has enough free space only grows with i, so the cheapest window is found with two pointers in O(n).
+     *
+     * @return Whether there is such a window (false if the memory doesn't have that much free space)
+     */
+    public boolean plan(ProcessTable processes, int amount) {
+        cancel();
+        if (freeSpace.freeUnits() < amount) {
+            return false;
+        }
+
+        int n = processes.segmentCount();
+        int[] sortedIds = processes.idsByBase();
+        // The bases and limits in address order, and prefix[k], the total size of processes 0..k-1
+        int[] bases = new int[n];
+        int[] limits = new int[n];
+        long[] prefix = new long[n + 1];
+        for (int k = 0; k < n; k++) {
+            bases[k] = processes.base(sortedIds[k]);
+            limits[k] = processes.limit(sortedIds[k]);
+            prefix[k + 1] = prefix[k] + limits[k];
+        }
+
+        int bestI = -1;
+        int bestJ = -1;
+        long bestCost = Long.MAX_VALUE;
+        int j = -1;
+        for (int i = 0; i <= n; i++) {
+            j = Math.max(j, i - 1);
+            long windowStart = i == 0 ? 0 : bases[i - 1] + limits[i - 1];
+            while (j < n && windowFree(bases, prefix, windowStart, i, j) < amount) {
+                j++;
+            }
+            if (j == n) {
+                break;
+            }
+            long cost = prefix[j + 1] - prefix[i];
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestI = i;
+                bestJ = j;
+            }
+        }
+        if (bestI == -1) {
+            return false;
+        }
+
+        int count = bestJ - bestI + 1;
+        planTable = processes;
+        planIds = new int[count];
+        planTargets = new int[count];
+        int cursor = bestI == 0 ? 0 : bases[bestI - 1] + limits[bestI - 1];
+        for (int k = 0; k < count; k++) {
+            planIds[k] = sortedIds[bestI + k];
+            planTargets[k] = cursor;
+            cursor += limits[bestI + k];
+        }
+        return true;
+    }
+
+    /**
+     * The free space of the window of processes i..j (empty if j = i - 1): its size minus the size of its processes.
+     */
+    private long windowFree(int[] bases, long[] prefix, long windowStart, int i, int j) {
+        long windowEnd = j + 1 == bases.length ? freeSpace.size() : bases[j + 1];
+        return windowEnd - windowStart - (prefix[j + 1] - prefix[i]);
+    }
+
+    /**
+     * Makes the next moves of the pending incremental compaction, within the step budget.
+     */
+    public CompactionResult step() {
+        return step(Integer.MAX_VALUE, true);
+    }
+
+    /**
+     * Makes all the pending moves of the incremental compaction at once, whatever the step budget, and records them as a single pause.
+     * It's used when the caller waits for the hole anyway (see {@link CompactionMode#INCREMENTAL}), so the pause is the whole stall it sees.
+     */
+    public CompactionResult finish() {
+        return step(Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * Makes exactly the given number of moves of the pending incremental compaction (or all of them if there are fewer), whatever the budget.
+     * It repeats a step that was recorded with its number of moves, e.g. by an {@link OperationLog}.
+     */
+    public CompactionResult step(int moves) {
+        return step(moves, false);
+    }
+
+    private CompactionResult step(int maxMoves, boolean budgeted) {
+        long start = System.nanoTime();
+        long movedKB = 0;
+        int processesMoved = 0;
+
+        while (planCursor < planIds.length) {
+            int id = planIds[planCursor];
+            int target = planTargets[planCursor];
+            int limit = planTable.limit(id);
+            if (planTable.base(id) != target) {
+                if (processesMoved == maxMoves
+                        || budgeted && processesMoved > 0 && (movedKB + limit > maxStepKB || System.nanoTime() - start >= pauseBudgetNanos)) {
+                    break;
+                }
+                move(planTable, id, target);
+                movedKB += limit;
+                processesMoved++;
+            }
+            planCursor++;
+        }
+
+        boolean complete = planCursor == planIds.length;
+        if (complete) {
+            cancel();
+        }
+        return record(movedKB * 1024, processesMoved, System.nanoTime() - start, complete);
+    }
+
+    public boolean hasPendingMoves() {
+        return planCursor < planIds.length;
+    }
+
+    /**
+     * Drops the pending moves of the incremental compaction. The moves already made stay.
+     */
+    public void cancel() {
+        planTable = null;
+        planIds = NO_MOVES;
+        planTargets = NO_MOVES;
+        planCursor = 0;
+    }
+
+    /**
+     * Moves a process down to the given base. Its old and new ranges may overlap, so the old one is released first.
+     */
+    private void move(ProcessTable processes, int id, int target) {
+        int limit = processes.limit(id);
+        freeSpace.release(processes.base(id), limit);
+        freeSpace.reserve(target, limit);
+        // The processes are moved down in address order, so their order doesn't change, and their keys are replaced in place in the index
+        processes.setBase(id, target);
+    }
+
+    private CompactionResult record(long bytesMoved, int processesMoved, long pauseNanos, boolean complete) {
+        totalBytesMoved += bytesMoved;
+        totalProcessesMoved += processesMoved;
+        totalPauseNanos += pauseNanos;
+        maxPauseNanos = Math.max(maxPauseNanos, pauseNanos);
+        pauses++;
+        return new CompactionResult(bytesMoved, processesMoved, pauseNanos, complete);
+    }
+
+    public long getTotalBytesMoved() {
+        return totalBytesMoved;
+    }
+
+    public long getTotalProcessesMoved() {
+        return totalProcessesMoved;
+    }
+
+    public long getTotalPauseNanos() {
+        return totalPauseNanos;
+    }
+
+    public long getMaxPauseNanos() {
+        return maxPauseNanos;
+    }
+
+    /**
+     * @return The number of full compactions and incremental steps
+     */
+    public long getPauses() {
+        return pauses;
+    }
+}
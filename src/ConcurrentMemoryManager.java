@@ -0,0 +1,203 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A contiguous memory that can be used from many threads at once.
+ * <p>
+ * The memory is split into arenas of equal size, each with its own free space, its own instance of the allocation strategy, and its own lock,
+ * so allocations in different arenas don't contend. Each thread is given a home arena (round-robin, the first time it allocates), and only
+ * moves on to the other arenas ("steals" from them) when its home arena has no hole for a request. A process never spans two arenas,
+ * so a process can't be larger than an arena.
+ * <p>
+ * The processes are kept in a {@link ConcurrentProcessTable}, which {@link #convertAddress} reads optimistically: translations never wait for
+ * allocations or deletions (unless one touches the table during the lookup, in which case the lookup is retried under the read lock).
+ */
+public class ConcurrentMemoryManager {
+
+    private static final class Arena {
+        final int start;
+        final FreeSpace freeSpace;
+        final AllocationStrategy strategy;
+        final ReentrantLock lock = new ReentrantLock();
+
+        Arena(int start, int size, AllocationStrategy strategy) {
+            this.start = start;
+            this.freeSpace = new FreeSpace(size);
+            this.strategy = strategy;
+            strategy.init(freeSpace);
+        }
+    }
+
+    /**
+     * The size of the memory in KB
+     */
+    private final int memSize;
+
+    private final Arena[] arenas;
+
+    /**
+     * The size of all the arenas but the last one (which also gets the remainder of the memory)
+     */
+    private final int arenaSize;
+
+    private final ConcurrentProcessTable processes = new ConcurrentProcessTable();
+
+    private final AtomicInteger nextHome = new AtomicInteger();
+
+    private final ThreadLocal<Integer> homeArena;
+
+    private final LongAdder steals = new LongAdder();
+
+    /**
+     * @param memSize     Memory size in KB
+     * @param arenaCount  The number of arenas (e.g. the number of worker threads)
+     * @param fitStrategy The allocation strategy of each arena (see {@link MemoryManager#MemoryManager(int, int)})
+     */
+    public ConcurrentMemoryManager(int memSize, int arenaCount, int fitStrategy) {
+        this(memSize, arenaCount, () -> AllocationStrategies.forId(fitStrategy, false));
+    }
+
+    /**
+     * @param memSize    Memory size in KB
+     * @param arenaCount The number of arenas (e.g. the number of worker threads)
+     * @param strategies Creates the allocation strategy of each arena (a new instance per call)
+     */
+    public ConcurrentMemoryManager(int memSize, int arenaCount, Supplier<AllocationStrategy> strategies) {
+        if (arenaCount <= 0 || arenaCount > memSize) {
+            throw new IllegalArgumentException("The number of arenas must be between 1 and the memory size");
+        }
+        this.memSize = memSize;
+        this.arenaSize = memSize / arenaCount;
+        arenas = new Arena[arenaCount];
+        for (int i = 0; i < arenaCount; i++) {
+            int start = i * arenaSize;
+            int size = i == arenaCount - 1 ? memSize - start : arenaSize;
+            arenas[i] = new Arena(start, size, strategies.get());
+        }
+        homeArena = ThreadLocal.withInitial(() -> Math.floorMod(nextHome.getAndIncrement(), arenas.length));
+    }
+
+    public Process allocateMemory(int amount) throws NoEnoughMemoryException {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("The requested amount must be positive");
+        }
+
+        int home = homeArena.get();
+        for (int i = 0; i < arenas.length; i++) {
+            Arena arena = arenas[(home + i) % arenas.length];
+            if (amount > arena.freeSpace.size()) {
+                continue;
+            }
+
+            int base;
+            arena.lock.lock();
+            try {
+                base = arena.strategy.allocate(amount);
+            } finally {
+                arena.lock.unlock();
+            }
+
+            if (base != -1) {
+                if (i > 0) {
+                    steals.increment();
+                }
+                Process result = new Process(arena.start + base, amount);
+                processes.put(result.getId(), result.getBase(), amount);
+                return result;
+            }
+        }
+        // There was no hole that would fit in any arena
+        throw new NoEnoughMemoryException();
+    }
+
+    public void deleteProcess(int processID) throws ProcessNotFoundException {
+        long entry = processes.remove(processID);
+        if (entry == -1) {
+            throw new ProcessNotFoundException(processID);
+        }
+        int base = (int) (entry >>> 32);
+        int limit = (int) entry;
+
+        Arena arena = arenas[Math.min(base / arenaSize, arenas.length - 1)];
+        arena.lock.lock();
+        try {
+            arena.strategy.free(base - arena.start, limit);
+        } finally {
+            arena.lock.unlock();
+        }
+    }
+
+    /**
+     * Translates an address without taking any lock in the common case.
+     */
+    public int convertAddress(int processID, int virtualAddress) throws ProcessNotFoundException, IllegalAddressException {
+        long entry = processes.get(processID);
+        if (entry == -1) {
+            throw new ProcessNotFoundException(processID);
+        }
+        int limit = (int) entry;
+        if (virtualAddress >= limit || virtualAddress < 0) {
+            throw new IllegalAddressException();
+        }
+        return (int) (entry >>> 32) + virtualAddress;
+    }
+
+    public int getArenaCount() {
+        return arenas.length;
+    }
+
+    /**
+     * @return The number of allocations that were served by another arena than the home arena of their thread
+     */
+    public long getSteals() {
+        return steals.sum();
+    }
+
+    public int getProcessCount() {
+        return processes.size();
+    }
+
+    /**
+     * @return The free space of the whole memory in KB (each arena is read under its lock, but not all of them at the same time)
+     */
+    public long freeUnits() {
+        long free = 0;
+        for (Arena arena : arenas) {
+            arena.lock.lock();
+            try {
+                free += arena.freeSpace.freeUnits();
+            } finally {
+                arena.lock.unlock();
+            }
+        }
+        return free;
+    }
+
+    public int getMemSize() {
+        return memSize;
+    }
+
+    /**
+     * Prints the usage of each arena.
+     */
+    public void printArenas() {
+        for (int i = 0; i < arenas.length; i++) {
+            Arena arena = arenas[i];
+            arena.lock.lock();
+            try {
+                System.out.println("------------------------------------------------");
+                System.out.println("- Arena " + MemoryManager.blueColor(i + "") + ":");
+                System.out.println("  Start: " + MemoryManager.blueColor(arena.start + "") + " KB");
+                System.out.println("  Size: " + MemoryManager.blueColor(arena.freeSpace.size() + "") + " KB");
+                System.out.println("  Used: " + MemoryManager.blueColor(arena.freeSpace.usedUnits() + "") + " KB");
+                System.out.println("  Largest hole: " + MemoryManager.blueColor(arena.freeSpace.largestHole() + "") + " KB");
+                System.out.println("------------------------------------------------");
+            } finally {
+                arena.lock.unlock();
+            }
+        }
+        System.out.println("Steals: " + MemoryManager.blueColor(getSteals() + ""));
+    }
+}
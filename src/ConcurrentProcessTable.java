@@ -0,0 +1,170 @@
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A process table that can be read while it's being written: the base and limit of each process, in an open-addressing hash table of primitive arrays
+ * guarded by a {@link StampedLock}.
+ * <p>
+ * Writers take the write lock. Readers first try an optimistic read, which doesn't block and isn't blocked: they read the entry, then check that no write
+ * happened in the meantime, and only take the read lock if one did. The three arrays are replaced together when the table grows, so a reader always sees
+ * arrays of the same length, and can't index out of bounds even if it reads them in the middle of a write.
+ */
+public class ConcurrentProcessTable {
+
+    /**
+     * The slots of the table. An ID of 0 marks an empty slot (process IDs start at 1).
+     */
+    private static final class Slots {
+        final int[] ids;
+        final int[] bases;
+        final int[] limits;
+
+        Slots(int capacity) {
+            ids = new int[capacity];
+            bases = new int[capacity];
+            limits = new int[capacity];
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+
+    private Slots slots = new Slots(64);
+
+    private int size;
+
+    public void put(int id, int base, int limit) {
+        long stamp = lock.writeLock();
+        try {
+            if (2 * (size + 1) > slots.ids.length) {
+                grow();
+            }
+            Slots s = slots;
+            int mask = s.ids.length - 1;
+            int slot = hash(id) & mask;
+            while (s.ids[slot] != 0 && s.ids[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            if (s.ids[slot] == 0) {
+                size++;
+            }
+            s.bases[slot] = base;
+            s.limits[slot] = limit;
+            s.ids[slot] = id;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes a process.
+     *
+     * @return Its base and limit packed as (base << 32 | limit), or -1 if it's not in the table
+     */
+    public long remove(int id) {
+        long stamp = lock.writeLock();
+        try {
+            Slots s = slots;
+            int mask = s.ids.length - 1;
+            int slot = hash(id) & mask;
+            while (s.ids[slot] != id) {
+                if (s.ids[slot] == 0) {
+                    return -1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            long entry = ((long) s.bases[slot] << 32) | s.limits[slot];
+
+            // Backward-shift deletion: move the following entries of the probe sequence up, so no tombstones are needed
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (s.ids[next] != 0) {
+                int home = hash(s.ids[next]) & mask;
+                // The entry at next can fill the hole if its home slot isn't in (hole, next]
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    s.ids[hole] = s.ids[next];
+                    s.bases[hole] = s.bases[next];
+                    s.limits[hole] = s.limits[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            s.ids[hole] = 0;
+            size--;
+            return entry;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Looks a process up without blocking (unless a write happens during the lookup).
+     *
+     * @return Its base and limit packed as (base << 32 | limit), or -1 if it's not in the table
+     */
+    public long get(int id) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            long entry = find(slots, id);
+            if (lock.validate(stamp)) {
+                return entry;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return find(slots, id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Finds an entry. The probe is bounded by the length of the table, so it ends even on slots that are being written.
+     */
+    private static long find(Slots s, int id) {
+        int mask = s.ids.length - 1;
+        int slot = hash(id) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            int slotId = s.ids[slot];
+            if (slotId == id) {
+                return ((long) s.bases[slot] << 32) | s.limits[slot];
+            }
+            if (slotId == 0) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void grow() {
+        Slots old = slots;
+        Slots s = new Slots(2 * old.ids.length);
+        int mask = s.ids.length - 1;
+        for (int i = 0; i < old.ids.length; i++) {
+            if (old.ids[i] != 0) {
+                int slot = hash(old.ids[i]) & mask;
+                while (s.ids[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                s.ids[slot] = old.ids[i];
+                s.bases[slot] = old.bases[i];
+                s.limits[slot] = old.limits[i];
+            }
+        }
+        slots = s;
+    }
+
+    private static int hash(int id) {
+        // Spread sequential IDs over the table
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,88 @@
+import java.util.SplittableRandom;
+
+/**
+ * A distribution of positive integers (process sizes in KB, or lifetimes in operations), sampled from a seeded random generator
+ * so that a workload can be reproduced exactly.
+ * <p>
+ * A distribution is given on the command line as {@code name:param:...}:
+ * <ul>
+ * <li>{@code uniform:min:max}</li>
+ * <li>{@code exp:mean} (exponential)</li>
+ * <li>{@code pareto:min:alpha:max} (heavy-tailed: most values near min, a few huge ones, capped at max)</li>
+ * <li>{@code bimodal:small:large:p} (exponential around small with probability p, around large otherwise)</li>
+ * </ul>
+ */
+public interface Distribution {
+
+    /**
+     * @return A value of at least 1
+     */
+    int sample(SplittableRandom random);
+
+    static Distribution uniform(int min, int max) {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("A uniform distribution needs 1 <= min <= max");
+        }
+        return random -> random.nextInt(min, max + 1);
+    }
+
+    static Distribution exponential(double mean) {
+        if (mean <= 0) {
+            throw new IllegalArgumentException("An exponential distribution needs a positive mean");
+        }
+        return random -> clamp(-mean * Math.log(1 - random.nextDouble()));
+    }
+
+    static Distribution pareto(int min, double alpha, int max) {
+        if (min < 1 || alpha <= 0 || max < min) {
+            throw new IllegalArgumentException("A Pareto distribution needs 1 <= min <= max and a positive alpha");
+        }
+        return random -> Math.min(max, clamp(min / Math.pow(1 - random.nextDouble(), 1 / alpha)));
+    }
+
+    static Distribution bimodal(double smallMean, double largeMean, double smallProbability) {
+        if (smallProbability < 0 || smallProbability > 1) {
+            throw new IllegalArgumentException("A bimodal distribution needs a probability between 0 and 1");
+        }
+        Distribution small = exponential(smallMean);
+        Distribution large = exponential(largeMean);
+        return random -> random.nextDouble() < smallProbability ? small.sample(random) : large.sample(random);
+    }
+
+    /**
+     * Parses a distribution given as {@code name:param:...} (see above).
+     */
+    static Distribution parse(String spec) {
+        String[] parts = spec.toLowerCase().split(":");
+        try {
+            switch (parts[0]) {
+                case "uniform":
+                    expectParams(parts, 2);
+                    return uniform(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+                case "exp":
+                    expectParams(parts, 1);
+                    return exponential(Double.parseDouble(parts[1]));
+                case "pareto":
+                    expectParams(parts, 3);
+                    return pareto(Integer.parseInt(parts[1]), Double.parseDouble(parts[2]), Integer.parseInt(parts[3]));
+                case "bimodal":
+                    expectParams(parts, 3);
+                    return bimodal(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]), Double.parseDouble(parts[3]));
+                default:
+                    throw new IllegalArgumentException("Unknown distribution " + parts[0]);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in distribution " + spec);
+        }
+    }
+
+    private static void expectParams(String[] parts, int count) {
+        if (parts.length != count + 1) {
+            throw new IllegalArgumentException("The " + parts[0] + " distribution expects " + count + " parameters");
+        }
+    }
+
+    private static int clamp(double value) {
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, Math.round(value)));
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * First In, First Out: evicts the page that was loaded the longest time ago, whatever its accesses.
+ */
+public class FifoPolicy implements PageReplacementPolicy {
+
+    private FrameList loaded;
+
+    @Override
+    public String name() {
+        return "fifo";
+    }
+
+    @Override
+    public void init(int frameCount) {
+        loaded = new FrameList(frameCount);
+    }
+
+    @Override
+    public void onLoad(int frame, long pageKey) {
+        loaded.addFirst(frame);
+    }
+
+    @Override
+    public void onAccess(int frame) {
+    }
+
+    @Override
+    public void onRemove(int frame) {
+        loaded.remove(frame);
+    }
+
+    @Override
+    public int selectVictim(long incomingPageKey) {
+        return loaded.removeLast();
+    }
+}
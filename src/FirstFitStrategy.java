@@ -0,0 +1,76 @@
+import java.util.Arrays;
+
+/**
+ * First Fit: allocates the first hole (the lowest address) large enough to accommodate the process.
+ */
+public class FirstFitStrategy implements AllocationStrategy {
+
+    private final boolean useFreeRunTree;
+
+    private FreeSpace freeSpace;
+
+    public FirstFitStrategy() {
+        this(false);
+    }
+
+    /**
+     * @param useFreeRunTree Whether holes are searched with a segment tree of free runs (O(log memSize)) instead of scanning the bitmap.
+     *                       Both backends return exactly the same placements.
+     */
+    public FirstFitStrategy(boolean useFreeRunTree) {
+        this.useFreeRunTree = useFreeRunTree;
+    }
+
+    @Override
+    public String name() {
+        return useFreeRunTree ? "first-fit-tree" : "first-fit";
+    }
+
+    @Override
+    public void init(FreeSpace freeSpace) {
+        this.freeSpace = freeSpace;
+        if (useFreeRunTree) {
+            freeSpace.runs();
+        }
+    }
+
+    @Override
+    public int allocate(int amount) {
+        int base = freeSpace.findFirstHole(0, amount);
+        if (base != -1) {
+            freeSpace.reserve(base, amount);
+        }
+        return base;
+    }
+
+    @Override
+    public boolean resizeInPlace(int base, int oldAmount, int newAmount) {
+        return freeSpace.resize(base, oldAmount, newAmount);
+    }
+
+    @Override
+    public boolean isRelocatable() {
+        return true;
+    }
+
+    @Override
+    public void free(int base, int amount) {
+        freeSpace.release(base, amount);
+    }
+
+    /**
+     * Places the whole batch in a single pass over the holes, in address order (see {@link FreeSpace#packBatch}).
+     */
+    @Override
+    public int[] allocateBatch(int[] amounts) {
+        int[] bases = new int[amounts.length];
+        Arrays.fill(bases, -1);
+        freeSpace.packBatch(new PendingBatch(amounts), bases, 0, freeSpace.size());
+        return bases;
+    }
+
+    @Override
+    public void freeBatch(int[] bases, int[] amounts, int count) {
+        freeSpace.releaseBatch(bases, amounts, count);
+    }
+}
@@ -0,0 +1,84 @@
+import java.util.Arrays;
+
+/**
+ * A doubly-linked list of frames, stored in int arrays indexed by frame number (no node objects), used by the page replacement policies.
+ * The head is the most recently inserted frame, and the tail the oldest one. A frame can be in at most one list at a time.
+ */
+public class FrameList {
+
+    private static final int NONE = -1;
+
+    private final int[] prev;
+    private final int[] next;
+    private final boolean[] contained;
+    private int head = NONE;
+    private int tail = NONE;
+    private int size;
+
+    public FrameList(int frameCount) {
+        prev = new int[frameCount];
+        next = new int[frameCount];
+        contained = new boolean[frameCount];
+        Arrays.fill(prev, NONE);
+        Arrays.fill(next, NONE);
+    }
+
+    public boolean contains(int frame) {
+        return contained[frame];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void addFirst(int frame) {
+        prev[frame] = NONE;
+        next[frame] = head;
+        if (head != NONE) {
+            prev[head] = frame;
+        } else {
+            tail = frame;
+        }
+        head = frame;
+        contained[frame] = true;
+        size++;
+    }
+
+    public void remove(int frame) {
+        if (prev[frame] != NONE) {
+            next[prev[frame]] = next[frame];
+        } else {
+            head = next[frame];
+        }
+        if (next[frame] != NONE) {
+            prev[next[frame]] = prev[frame];
+        } else {
+            tail = prev[frame];
+        }
+        prev[frame] = NONE;
+        next[frame] = NONE;
+        contained[frame] = false;
+        size--;
+    }
+
+    /**
+     * Moves a frame of the list to its head.
+     */
+    public void moveToFirst(int frame) {
+        if (head != frame) {
+            remove(frame);
+            addFirst(frame);
+        }
+    }
+
+    /**
+     * Removes and returns the tail (the oldest frame), or -1 if the list is empty.
+     */
+    public int removeLast() {
+        int frame = tail;
+        if (frame != NONE) {
+            remove(frame);
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,151 @@
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * An index of the free extents (holes) of the memory, kept in two views that are always in sync:
+ * <p>
+ * - by address: a TreeMap from the start of each hole to its size, used to find and coalesce neighbouring holes. <p>
+ * - by size: a TreeSet of keys packing (size, start) into a long, used to answer "smallest hole of at least n" and "largest hole" queries. <p>
+ * Every operation is O(log n) in the number of holes.
+ */
+public class FreeExtentIndex {
+
+    private final TreeMap<Integer, Integer> byAddress = new TreeMap<>();
+
+    /**
+     * Each key is (size << 32 | start), so the keys are ordered by size first, and holes of the same size are ordered by address.
+     */
+    private final TreeSet<Long> bySize = new TreeSet<>();
+
+    /**
+     * Builds an index from the free runs of the given bitmap.
+     */
+    public FreeExtentIndex(Bitmap bitmap) {
+        int size = bitmap.size();
+        int holeStart = bitmap.nextClear(0);
+        while (holeStart < size) {
+            int holeEnd = bitmap.nextSet(holeStart);
+            add(holeStart, holeEnd - holeStart);
+            holeStart = bitmap.nextClear(holeEnd);
+        }
+    }
+
+    /**
+     * @return The start of the smallest hole that fits the requested amount (the lowest one if there are several), or -1 if there is none.
+     */
+    public int bestFit(int amount) {
+        Long key = bySize.ceiling(key(amount, 0));
+        return key == null ? -1 : start(key);
+    }
+
+    /**
+     * @return The start of the largest hole (the lowest one if there are several) if it fits the requested amount, or -1 otherwise.
+     */
+    public int worstFit(int amount) {
+        if (bySize.isEmpty()) {
+            return -1;
+        }
+        int largest = size(bySize.last());
+        if (largest < amount) {
+            return -1;
+        }
+        return start(bySize.ceiling(key(largest, 0)));
+    }
+
+    /**
+     * Finds a free range of {@code amount} units whose start is a multiple of {@code alignment}, in the smallest hole that contains one.
+     * Inside that hole, a range flush with one of its ends is preferred, so that the range leaves a single hole rather than one on each side.
+     * The holes are tried by increasing size, and any hole of at least {@code amount + alignment - 1} units contains such a range, so the search
+     * stops there at the latest.
+     *
+     * @return The start of the range, or -1 if there is none
+     */
+    public int alignedFit(int amount, int alignment) {
+        for (long key : bySize.tailSet(key(amount, 0))) {
+            int holeStart = start(key);
+            int holeEnd = holeStart + size(key);
+            int first = (int) (((long) holeStart + alignment - 1) / alignment * alignment);
+            if ((long) first + amount > holeEnd) {
+                continue;
+            }
+            if (first == holeStart) {
+                return first;
+            }
+            int last = (holeEnd - amount) / alignment * alignment;
+            return last + amount == holeEnd ? last : first;
+        }
+        return -1;
+    }
+
+    /**
+     * Removes [start, start + amount) from the free extents. The range must lie inside a single hole.
+     */
+    public void reserve(int start, int amount) {
+        Map.Entry<Integer, Integer> hole = byAddress.floorEntry(start);
+        if (hole == null || hole.getKey() + hole.getValue() < start + amount) {
+            throw new IllegalStateException("The range [" + start + ", " + (start + amount) + ") is not free");
+        }
+        int holeStart = hole.getKey();
+        int holeEnd = holeStart + hole.getValue();
+
+        remove(holeStart, hole.getValue());
+        if (holeStart < start) {
+            add(holeStart, start - holeStart);
+        }
+        if (start + amount < holeEnd) {
+            add(start + amount, holeEnd - start - amount);
+        }
+    }
+
+    /**
+     * Adds [start, start + amount) back to the free extents, merging it with the holes right before and after it.
+     */
+    public void release(int start, int amount) {
+        int mergedStart = start;
+        int mergedEnd = start + amount;
+
+        Map.Entry<Integer, Integer> before = byAddress.lowerEntry(start);
+        if (before != null && before.getKey() + before.getValue() == start) {
+            mergedStart = before.getKey();
+            remove(before.getKey(), before.getValue());
+        }
+
+        Integer afterSize = byAddress.get(mergedEnd);
+        if (afterSize != null) {
+            remove(mergedEnd, afterSize);
+            mergedEnd += afterSize;
+        }
+
+        add(mergedStart, mergedEnd - mergedStart);
+    }
+
+    /**
+     * @return The size of the largest hole, or 0 if the memory is full
+     */
+    public int largestHole() {
+        return bySize.isEmpty() ? 0 : size(bySize.last());
+    }
+
+    private void add(int start, int size) {
+        byAddress.put(start, size);
+        bySize.add(key(size, start));
+    }
+
+    private void remove(int start, int size) {
+        byAddress.remove(start);
+        bySize.remove(key(size, start));
+    }
+
+    private static long key(int size, int start) {
+        return ((long) size << 32) | start;
+    }
+
+    private static int size(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int start(long key) {
+        return (int) key;
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * A segment tree over the words of a {@link Bitmap}, used to find the leftmost run of free units of a given length in O(log memSize).
+ * <p>
+ * Each leaf covers one 64-unit word of the bitmap, and each node stores, for the range of units it covers:
+ * <p>
+ * - the prefix free run (free units at the start of the range), <p>
+ * - the suffix free run (free units at the end of the range), <p>
+ * - the longest free run anywhere in the range. <p>
+ * The tree must be told about every change of the bitmap through {@link #update(int, int)}.
+ */
+public class FreeRunTree {
+
+    private final Bitmap bitmap;
+
+    /**
+     * The number of leaves (a power of two, at least the number of words in the bitmap). Leaves past the last word are fully allocated.
+     */
+    private final int leafCount;
+
+    // The node arrays use the usual heap layout: the root is at index 1, the children of node i are 2i and 2i+1, and the leaves start at leafCount.
+    private final int[] prefix;
+    private final int[] suffix;
+    private final int[] longest;
+
+    /**
+     * The length of the free run right before the current position of {@link #find}
+     */
+    private int carry;
+
+    /**
+     * The number of nodes visited by {@link #find} since the tree was built
+     */
+    private long visits;
+
+    public FreeRunTree(Bitmap bitmap) {
+        this.bitmap = bitmap;
+        int leaves = 1;
+        while (leaves < bitmap.wordCount()) {
+            leaves <<= 1;
+        }
+        leafCount = leaves;
+        prefix = new int[2 * leafCount];
+        suffix = new int[2 * leafCount];
+        longest = new int[2 * leafCount];
+
+        for (int w = 0; w < bitmap.wordCount(); w++) {
+            computeLeaf(w);
+        }
+        for (int node = leafCount - 1; node >= 1; node--) {
+            computeNode(node);
+        }
+    }
+
+    /**
+     * Refreshes the tree after the units in [from, to) changed in the bitmap.
+     */
+    public void update(int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        for (int w = firstWord; w <= lastWord; w++) {
+            computeLeaf(w);
+        }
+
+        // Recompute the ancestors of the changed leaves, level by level
+        int left = (leafCount + firstWord) >>> 1;
+        int right = (leafCount + lastWord) >>> 1;
+        while (left >= 1) {
+            for (int node = left; node <= right; node++) {
+                computeNode(node);
+            }
+            left >>>= 1;
+            right >>>= 1;
+        }
+    }
+
+    /**
+     * @return The length of the longest free run in the memory
+     */
+    public int longestRun() {
+        return longest[1];
+    }
+
+    /**
+     * @return The number of nodes visited by all the searches so far (the probe length of a search is the difference between two calls)
+     */
+    public long visits() {
+        return visits;
+    }
+
+    /**
+     * Returns the start of the leftmost run of at least {@code amount} free units that lies in [from, memSize), or -1 if there is none.
+     * A run that starts before {@code from} only counts from {@code from}.
+     */
+    public int findFirst(int from, int amount) {
+        if (longest[1] < amount) {
+            return -1;
+        }
+        carry = 0;
+        return find(1, 0, (long) leafCount << 6, from, amount);
+    }
+
+    private int find(int node, long nodeStart, long length, int from, int amount) {
+        visits++;
+        if (nodeStart + length <= from) {
+            // This node is entirely before the search range
+            return -1;
+        }
+
+        if (nodeStart >= from) {
+            // This node is entirely inside the search range
+            if (carry + prefix[node] >= amount) {
+                return (int) (nodeStart - carry);
+            }
+            if (longest[node] < amount) {
+                // No run inside this node is long enough, so skip it, and remember the free units at its end
+                carry = prefix[node] == length ? carry + prefix[node] : suffix[node];
+                return -1;
+            }
+        }
+
+        if (node >= leafCount) {
+            return findInLeaf(node - leafCount, (int) Math.max(nodeStart, from), amount);
+        }
+
+        long half = length >>> 1;
+        int result = find(2 * node, nodeStart, half, from, amount);
+        if (result != -1) {
+            return result;
+        }
+        return find(2 * node + 1, nodeStart + half, half, from, amount);
+    }
+
+    /**
+     * Scans the bits of a single word, starting at unit {@code from}.
+     */
+    private int findInLeaf(int w, int from, int amount) {
+        if (w >= bitmap.wordCount()) {
+            carry = 0;
+            return -1;
+        }
+        long word = bitmap.word(w);
+        int end = (int) Math.min(((long) w + 1) << 6, bitmap.size());
+        for (int i = from; i < end; i++) {
+            if ((word & (1L << i)) == 0) {
+                carry++;
+                if (carry >= amount) {
+                    return i - carry + 1;
+                }
+            } else {
+                carry = 0;
+            }
+        }
+        return -1;
+    }
+
+    private void computeLeaf(int w) {
+        long word = bitmap.word(w);
+        int node = leafCount + w;
+        prefix[node] = Long.numberOfTrailingZeros(word);
+        suffix[node] = Long.numberOfLeadingZeros(word);
+
+        // Longest run of zero bits: each step of x &= x << 1 shortens every run of ones in x by one
+        long x = ~word;
+        int run = 0;
+        while (x != 0) {
+            x &= x << 1;
+            run++;
+        }
+        longest[node] = run;
+    }
+
+    private void computeNode(int node) {
+        int left = 2 * node;
+        int right = left + 1;
+        // Every node on the same level covers the same number of units
+        long childLength = 64L * leafCount / Integer.highestOneBit(left);
+
+        prefix[node] = prefix[left] == childLength ? prefix[left] + prefix[right] : prefix[left];
+        suffix[node] = suffix[right] == childLength ? suffix[right] + suffix[left] : suffix[right];
+        longest[node] = Math.max(Math.max(longest[left], longest[right]), suffix[left] + prefix[right]);
+    }
+}
@@ -0,0 +1,314 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The free-space state of the memory, shared by the allocators: the bitmap, plus the indexes built on top of it.
+ * <p>
+ * The bitmap is always maintained. The free extent index and the free run tree are only built when an allocator asks for them
+ * (the first call to {@link #extents()} or {@link #runs()}), and from then on they are kept in sync by {@link #reserve} and {@link #release}.
+ */
+public class FreeSpace {
+
+    /**
+     * The size of the memory in KB
+     */
+    private final int memSize;
+
+    private final Bitmap bitmap;
+
+    private FreeExtentIndex extents;
+
+    private FreeRunTree runs;
+
+    /**
+     * The number of units currently marked as allocated in the bitmap
+     */
+    private long usedUnits;
+
+    /**
+     * The number of holes (maximal runs of free units), kept up to date by {@link #reserve} and {@link #release}
+     */
+    private int holeCount;
+
+    /**
+     * The number of holes and tree nodes examined by the searches of {@link #findFirstHole} for the allocations
+     */
+    private long probes;
+
+    public FreeSpace(int memSize) {
+        this.memSize = memSize;
+        bitmap = new Bitmap(memSize);
+        holeCount = memSize > 0 ? 1 : 0;
+    }
+
+    public int size() {
+        return memSize;
+    }
+
+    public Bitmap bitmap() {
+        return bitmap;
+    }
+
+    /**
+     * @return The free extent index, built from the bitmap the first time it's requested
+     */
+    public FreeExtentIndex extents() {
+        if (extents == null) {
+            extents = new FreeExtentIndex(bitmap);
+        }
+        return extents;
+    }
+
+    /**
+     * @return The free run tree, built from the bitmap the first time it's requested
+     */
+    public FreeRunTree runs() {
+        if (runs == null) {
+            runs = new FreeRunTree(bitmap);
+        }
+        return runs;
+    }
+
+    /**
+     * Makes {@link #largestHole()} incremental: builds the free run tree, unless an index is already maintained.
+     * The placements don't change, but {@link #findFirstHole} then searches the tree instead of scanning the bitmap.
+     */
+    public void trackLargestHole() {
+        if (extents == null) {
+            runs();
+        }
+    }
+
+    /**
+     * Returns the start of the first run of at least {@code amount} free units that lies in [from, memSize), or -1 if there is none.
+     * A run that starts before {@code from} only counts from {@code from}.
+     * <p>
+     * If the free run tree is maintained, it answers in O(log memSize). Otherwise, holes are skipped whole: the bitmap is scanned a word (64 units) at a time
+     * for the next free unit and the next allocated unit. The holes and tree nodes examined are counted as the probes of the allocation (see {@link #probes()}).
+     */
+    public int findFirstHole(int from, int amount) {
+        return findFirstHole(from, amount, true);
+    }
+
+    /**
+     * @param countProbes Whether the holes and tree nodes examined are counted as probes: only the searches of the allocations are
+     */
+    private int findFirstHole(int from, int amount, boolean countProbes) {
+        if (runs != null) {
+            long visits = runs.visits();
+            int start = runs.findFirst(from, amount);
+            if (countProbes) {
+                probes += runs.visits() - visits;
+            }
+            return start;
+        }
+
+        int holeStart = bitmap.nextClear(from);
+        while (holeStart < memSize) {
+            if (amount > memSize - holeStart) {
+                // We're too near the end of the memory for any hole to fit
+                return -1;
+            }
+            int holeEnd = bitmap.nextSet(holeStart);
+            if (countProbes) {
+                probes++;
+            }
+            if (holeEnd - holeStart >= amount) {
+                return holeStart;
+            }
+            holeStart = bitmap.nextClear(holeEnd);
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the holes of at least {@code minSize} units in [from, to), in address order. A hole that crosses a bound only counts its part inside.
+     * Each hole is found by {@link #findFirstHole}, so the free run tree (if maintained) jumps over the smaller holes in O(log memSize). The holes
+     * and tree nodes examined aren't counted as probes, since this isn't an allocation.
+     *
+     * @param maxCount The maximum number of holes to return
+     */
+    public List<Hole> findHoles(int from, int to, int minSize, int maxCount) {
+        List<Hole> holes = new ArrayList<>();
+        int position = Math.max(from, 0);
+        to = Math.min(to, memSize);
+        while (position < to && holes.size() < maxCount) {
+            int start = findFirstHole(position, Math.max(minSize, 1), false);
+            if (start == -1 || start >= to) {
+                break;
+            }
+            int end = Math.min(bitmap.nextSet(start), to);
+            if (end - start >= minSize) {
+                holes.add(new Hole(start, end - start));
+            }
+            position = end;
+        }
+        return holes;
+    }
+
+    /**
+     * Marks [start, start + amount) as allocated. The range must be free.
+     */
+    public void reserve(int start, int amount) {
+        bitmap.set(start, start + amount);
+        // The range was inside a single hole: what's left of it on each side is still a hole
+        holeCount += freeAt(start - 1) + freeAt(start + amount) - 1;
+        if (extents != null) {
+            extents.reserve(start, amount);
+        }
+        if (runs != null) {
+            runs.update(start, start + amount);
+        }
+        usedUnits += amount;
+    }
+
+    /**
+     * Marks [start, start + amount) as free. The range must be allocated.
+     */
+    public void release(int start, int amount) {
+        bitmap.clear(start, start + amount);
+        // The range becomes a hole, merged with the holes right before and after it
+        holeCount += 1 - freeAt(start - 1) - freeAt(start + amount);
+        if (extents != null) {
+            extents.release(start, amount);
+        }
+        if (runs != null) {
+            runs.update(start, start + amount);
+        }
+        usedUnits -= amount;
+    }
+
+    /**
+     * Resizes the allocated range [start, start + oldAmount) in place to [start, start + newAmount): a shrink releases the tail, and a growth reserves
+     * the units right after the range, if they are free.
+     *
+     * @return Whether the range was resized (false if the growth doesn't fit in the free run after it)
+     */
+    public boolean resize(int start, int oldAmount, int newAmount) {
+        if (newAmount <= oldAmount) {
+            if (newAmount < oldAmount) {
+                release(start + newAmount, oldAmount - newAmount);
+            }
+            return true;
+        }
+        int end = start + oldAmount;
+        if ((long) start + newAmount > memSize || bitmap.nextSet(end) < start + newAmount) {
+            return false;
+        }
+        reserve(end, newAmount - oldAmount);
+        return true;
+    }
+
+    /**
+     * @return 1 if the given unit is inside the memory and free, 0 otherwise
+     */
+    private int freeAt(int unit) {
+        return unit >= 0 && unit < memSize && !bitmap.isSet(unit) ? 1 : 0;
+    }
+
+    /**
+     * Places a batch of requests in a single pass over the holes in [from, to), in address order: each hole is filled with the largest pending request
+     * that fits in what's left of it, until none does. All the requests placed in the same hole are contiguous, and are reserved at once.
+     *
+     * @param pending The requests that are not placed yet. The placed requests are removed.
+     * @param bases   Receives the base of each placed request (at its index)
+     * @return The end of the last placed request, or -1 if no request was placed
+     */
+    public int packBatch(PendingBatch pending, int[] bases, int from, int to) {
+        int lastEnd = -1;
+        int holeStart = bitmap.nextClear(from);
+        while (holeStart < to && !pending.isEmpty()) {
+            int holeEnd = Math.min(bitmap.nextSet(holeStart), to);
+            int position = holeStart;
+            while (true) {
+                // The largest pending request that fits in the rest of the hole
+                long key = pending.pollFloor(holeEnd - position);
+                if (key == -1) {
+                    break;
+                }
+                bases[(int) key] = position;
+                position += (int) (key >>> 32);
+            }
+            if (position > holeStart) {
+                reserve(holeStart, position - holeStart);
+                lastEnd = position;
+            }
+            holeStart = bitmap.nextClear(holeEnd);
+        }
+        return lastEnd;
+    }
+
+    /**
+     * Releases a batch of blocks in address order, merging the adjacent blocks so each run of freed units is released at once.
+     *
+     * @param count The number of blocks (the first {@code count} elements of the arrays)
+     */
+    public void releaseBatch(int[] bases, int[] amounts, int count) {
+        long[] blocks = new long[count];
+        for (int i = 0; i < count; i++) {
+            blocks[i] = ((long) bases[i] << 32) | amounts[i];
+        }
+        Arrays.sort(blocks);
+
+        int runStart = -1;
+        int runEnd = -1;
+        for (long block : blocks) {
+            int start = (int) (block >>> 32);
+            int amount = (int) block;
+            if (start != runEnd) {
+                if (runStart != -1) {
+                    release(runStart, runEnd - runStart);
+                }
+                runStart = start;
+            }
+            runEnd = start + amount;
+        }
+        if (runStart != -1) {
+            release(runStart, runEnd - runStart);
+        }
+    }
+
+    public long usedUnits() {
+        return usedUnits;
+    }
+
+    public long freeUnits() {
+        return memSize - usedUnits;
+    }
+
+    /**
+     * @return The number of holes (maximal runs of free units)
+     */
+    public int holeCount() {
+        return holeCount;
+    }
+
+    /**
+     * @return The number of holes and tree nodes examined by {@link #findFirstHole} so far (not by {@link #findHoles}). The probe length of a search
+     * is the difference between two calls.
+     */
+    public long probes() {
+        return probes;
+    }
+
+    /**
+     * @return The size of the largest hole, taken from an index if one is maintained, or found by scanning the bitmap otherwise
+     */
+    public int largestHole() {
+        if (extents != null) {
+            return extents.largestHole();
+        }
+        if (runs != null) {
+            return runs.longestRun();
+        }
+        int largest = 0;
+        int holeStart = bitmap.nextClear(0);
+        while (holeStart < memSize) {
+            int holeEnd = bitmap.nextSet(holeStart);
+            largest = Math.max(largest, holeEnd - holeStart);
+            holeStart = bitmap.nextClear(holeEnd);
+        }
+        return largest;
+    }
+}
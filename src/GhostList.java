@@ -0,0 +1,166 @@
+/**
+ * A bounded list of page keys in insertion order, with O(1) lookup, used for the ghost lists of {@link ArcPolicy}.
+ * <p>
+ * The keys are stored in slots: a doubly-linked list of slots in int arrays keeps the insertion order, and an open-addressing hash table
+ * (linear probing, with backward-shift deletion) maps each key to its slot. Nothing is boxed or allocated after construction.
+ * When the list is full, adding a key drops the eldest one.
+ */
+public class GhostList {
+
+    private static final int NONE = -1;
+
+    private final long[] keys;
+    private final int[] prev;
+    private final int[] next;
+    private int head = NONE;
+    private int tail = NONE;
+    private int size;
+
+    /**
+     * The slots that hold no key, used as a stack
+     */
+    private final int[] freeSlots;
+    private int freeSlotCount;
+
+    /**
+     * The hash table: the slot of each key + 1, or 0 for an empty bucket
+     */
+    private final int[] table;
+    private final int mask;
+
+    public GhostList(int capacity) {
+        capacity = Math.max(capacity, 1);
+        keys = new long[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+        freeSlots = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            freeSlots[i] = capacity - 1 - i;
+        }
+        freeSlotCount = capacity;
+        // A load factor of at most 1/2
+        table = new int[Integer.highestOneBit(capacity) << 2];
+        mask = table.length - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(long key) {
+        return find(key) != NONE;
+    }
+
+    /**
+     * Adds a key at the tail (the most recent end), dropping the eldest key if the list is full. A key already in the list keeps its place.
+     */
+    public void add(long key) {
+        if (findBucket(key) != NONE) {
+            return;
+        }
+        if (freeSlotCount == 0) {
+            removeEldest();
+        }
+        int slot = freeSlots[--freeSlotCount];
+        keys[slot] = key;
+        prev[slot] = tail;
+        next[slot] = NONE;
+        if (tail != NONE) {
+            next[tail] = slot;
+        } else {
+            head = slot;
+        }
+        tail = slot;
+        size++;
+
+        int bucket = bucket(key);
+        while (table[bucket] != 0) {
+            bucket = (bucket + 1) & mask;
+        }
+        table[bucket] = slot + 1;
+    }
+
+    /**
+     * @return Whether the key was in the list
+     */
+    public boolean remove(long key) {
+        int bucket = findBucket(key);
+        if (bucket == NONE) {
+            return false;
+        }
+        removeSlot(table[bucket] - 1, bucket);
+        return true;
+    }
+
+    /**
+     * Removes the eldest key, if any.
+     */
+    public void removeEldest() {
+        if (head != NONE) {
+            removeSlot(head, findBucket(keys[head]));
+        }
+    }
+
+    /**
+     * Removes the keys of a process: (processID << 32) | virtual page number.
+     */
+    public void removeProcess(int processID) {
+        int slot = head;
+        while (slot != NONE) {
+            int following = next[slot];
+            if ((int) (keys[slot] >>> 32) == processID) {
+                removeSlot(slot, findBucket(keys[slot]));
+            }
+            slot = following;
+        }
+    }
+
+    private int find(long key) {
+        int bucket = findBucket(key);
+        return bucket == NONE ? NONE : table[bucket] - 1;
+    }
+
+    private int findBucket(long key) {
+        int bucket = bucket(key);
+        while (table[bucket] != 0) {
+            if (keys[table[bucket] - 1] == key) {
+                return bucket;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+        return NONE;
+    }
+
+    private void removeSlot(int slot, int bucket) {
+        if (prev[slot] != NONE) {
+            next[prev[slot]] = next[slot];
+        } else {
+            head = next[slot];
+        }
+        if (next[slot] != NONE) {
+            prev[next[slot]] = prev[slot];
+        } else {
+            tail = prev[slot];
+        }
+        freeSlots[freeSlotCount++] = slot;
+        size--;
+
+        // Backward-shift deletion: move back the entries of the cluster that would no longer be reachable from their home bucket
+        int hole = bucket;
+        int current = (bucket + 1) & mask;
+        while (table[current] != 0) {
+            int home = bucket(keys[table[current] - 1]);
+            if (((current - home) & mask) >= ((current - hole) & mask)) {
+                table[hole] = table[current];
+                hole = current;
+            }
+            current = (current + 1) & mask;
+        }
+        table[hole] = 0;
+    }
+
+    private int bucket(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ hash >>> 32) & mask;
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * A run of free units of the memory, as returned by the range queries (see {@link MemoryManager#findHoles}).
+ */
+public class Hole {
+
+    private final int start;
+    private final int size;
+
+    public Hole(int start, int size) {
+        this.start = start;
+        this.size = size;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return The address right after the hole
+     */
+    public int getEnd() {
+        return start + size;
+    }
+
+    @Override
+    public String toString() {
+        return "Hole of " + size + " KB at [" + start + ", " + getEnd() + ")";
+    }
+}
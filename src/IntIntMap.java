@@ -0,0 +1,113 @@
+import java.util.Arrays;
+
+/**
+ * A map from non-negative int keys to non-zero int values, with open addressing (linear probing, and backward-shift deletion) in two int arrays:
+ * nothing is boxed, and the memory is proportional to the number of entries, not to the largest key.
+ */
+public class IntIntMap {
+
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public IntIntMap() {
+        keys = new int[1024];
+        values = new int[1024];
+        Arrays.fill(keys, EMPTY);
+        mask = keys.length - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The value of a key, or 0 if it has none
+     */
+    public int get(int key) {
+        for (int slot = slot(key); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Sets the value of a key (which must be non-negative), replacing its previous value if any.
+     */
+    public void put(int key, int value) {
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        // A load factor of at most 1/2
+        if (2 * size > keys.length) {
+            grow();
+        }
+    }
+
+    /**
+     * @return The value the key had, or 0 if it had none
+     */
+    public int remove(int key) {
+        int slot = slot(key);
+        while (keys[slot] != key) {
+            if (keys[slot] == EMPTY) {
+                return 0;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int value = values[slot];
+        size--;
+
+        // Backward-shift deletion: move back the entries of the cluster that would no longer be reachable from their home slot
+        int hole = slot;
+        int current = (slot + 1) & mask;
+        while (keys[current] != EMPTY) {
+            int home = slot(keys[current]);
+            if (((current - home) & mask) >= ((current - hole) & mask)) {
+                keys[hole] = keys[current];
+                values[hole] = values[current];
+                hole = current;
+            }
+            current = (current + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        return value;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[2 * oldKeys.length];
+        values = new int[2 * oldValues.length];
+        Arrays.fill(keys, EMPTY);
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private int slot(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & mask;
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Least Recently Used: evicts the page whose last access is the oldest. Every access moves the page to the head of a list, in O(1).
+ */
+public class LruPolicy implements PageReplacementPolicy {
+
+    private FrameList recency;
+
+    @Override
+    public String name() {
+        return "lru";
+    }
+
+    @Override
+    public void init(int frameCount) {
+        recency = new FrameList(frameCount);
+    }
+
+    @Override
+    public void onLoad(int frame, long pageKey) {
+        recency.addFirst(frame);
+    }
+
+    @Override
+    public void onAccess(int frame) {
+        recency.moveToFirst(frame);
+    }
+
+    @Override
+    public void onRemove(int frame) {
+        recency.remove(frame);
+    }
+
+    @Override
+    public int selectVictim(long incomingPageKey) {
+        return recency.removeLast();
+    }
+}
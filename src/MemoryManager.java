@@ -1,10 +1,13 @@
 import org.w3c.dom.ls.LSOutput;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
-import static java.lang.Integer.MAX_VALUE;
-
-public class MemoryManager {
+public class MemoryManager implements TraceTarget {
 
     /**
      * The size of the memory in KB
@@ -12,23 +15,66 @@ public class MemoryManager {
     private int memSize;
 
     /**
-     * This is the bitmap. For each allocation unit (1 KB) in the memory, the corresponding entry in this array is a bit indicating whether that unit is available or not (0 if it's free, 1 if it's allocated).
+     * The free-space state shared with the allocation strategy: the bitmap, and the indexes the strategy asked for.
      */
-    private int[] bitmap;
+    private FreeSpace freeSpace;
 
-    private int fitStrategy;
+    /**
+     * This is the bitmap. For each allocation unit (1 KB) in the memory, the corresponding bit indicates whether that unit is available or not (0 if it's free, 1 if it's allocated).
+     * The bits are packed 64 units per long word, so free and allocated runs can be skipped a word at a time.
+     */
+    private Bitmap bitmap;
 
     /**
-     * The last position where the counter i on the memMap left off last time (for Next Fit strategy).
-     * For other strategies, it is set to -1 (not used).
+     * The allocation strategy. It is fixed for the lifetime of the manager, so the calls to it are monomorphic and can be inlined by the JIT.
+     * It is null in paging mode.
      */
-    private int lastPos = -1;
+    private final AllocationStrategy strategy;
 
     /**
-     * This is a TreeMap of processes where in each entry, the key represents the id of the process, and the value represents the actual Process object.
-     * This TreeMap is sorted by keys (process IDs).
+     * The paging unit, which maps the pages of each process to frames. It is null in the (default) contiguous mode, where each process has a base and a limit.
      */
-    private Map<Integer, Process> processes;
+    private final PagingUnit paging;
+
+    /**
+     * The total size requested by the live processes, in KB. The difference with the units reserved in the bitmap is the internal fragmentation.
+     */
+    private long requestedUnits;
+
+    /**
+     * The process table: the base and limit of each process, stored in primitive arrays indexed by process ID.
+     */
+    private ProcessTable processes;
+
+    /**
+     * The compactor, which relocates processes to merge the holes. It is null in paging mode.
+     */
+    private final Compactor compactor;
+
+    private CompactionMode autoCompaction = CompactionMode.NONE;
+
+    /**
+     * The allocator metrics, or null if they are not enabled (then nothing is measured)
+     */
+    private AllocatorMetrics metrics;
+
+    /**
+     * The ID of the last snapshot saved or restored (0 if there is none), and the log of the operations made since then (null if there is none)
+     */
+    private long checkpointId;
+    private OperationLog log;
+
+    // Totals of the resizes: in place, and relocated with the KB they copied
+    private long inPlaceResizes;
+    private long relocations;
+    private long relocatedKB;
+
+    // Totals of the forks, with the KB an eager copy would have copied, and of the copy-on-write faults, with the KB they copied and their time
+    private long forks;
+    private long forkedKB;
+    private long cowFaults;
+    private long cowCopiedKB;
+    private long cowFaultNanos;
 
     /**
      * @param memSize     Memory size in KB
@@ -37,346 +83,1118 @@ public class MemoryManager {
      *                    Next fit: 2 <p>
      *                    Best fit: 3 <p>
      *                    Worst fit: 4 <p>
+     *                    Buddy system: 5 <p>
+     *                    Segregated fit: 6 <p>
      */
     public MemoryManager(int memSize, int fitStrategy) {
+        this(memSize, fitStrategy, false);
+    }
+
+    /**
+     * @param memSize        Memory size in KB
+     * @param fitStrategy    The allocation strategy (see {@link #MemoryManager(int, int)})
+     * @param useFreeRunTree Whether First Fit and Next Fit search holes with a segment tree of free runs (O(log memSize)) instead of scanning the bitmap.
+     *                       Both backends return exactly the same placements.
+     */
+    public MemoryManager(int memSize, int fitStrategy, boolean useFreeRunTree) {
+        this(memSize, AllocationStrategies.forId(fitStrategy, useFreeRunTree));
+    }
+
+    /**
+     * @param memSize  Memory size in KB
+     * @param strategy The allocation strategy. It must be a new instance, not attached to another memory.
+     */
+    public MemoryManager(int memSize, AllocationStrategy strategy) {
         this.memSize = memSize;
-        bitmap = new int[memSize];
-        Arrays.fill(bitmap, 0);
+        freeSpace = new FreeSpace(memSize);
+        bitmap = freeSpace.bitmap();
+        this.strategy = strategy;
+        this.paging = null;
+        strategy.init(freeSpace);
+        processes = new ProcessTable();
+        compactor = new Compactor(freeSpace, 64, 1_000_000);
+    }
 
-        if (fitStrategy <= 0 || fitStrategy > 4) {
-            throw new IllegalArgumentException("The allocation strategy must be between 1 and 4");
-        }
-        this.fitStrategy = fitStrategy;
-        processes = new TreeMap<>();
+    /**
+     * Creates a memory in paging mode: the memory of each process is split in pages mapped to any free frames, and addresses are translated through a TLB and page tables.
+     *
+     * @param memSize Memory size in KB
+     * @param paging  The paging unit. It must be a new instance, not attached to another memory.
+     */
+    public MemoryManager(int memSize, PagingUnit paging) {
+        this.memSize = memSize;
+        freeSpace = new FreeSpace(memSize);
+        bitmap = freeSpace.bitmap();
+        this.strategy = null;
+        this.paging = paging;
+        paging.init(freeSpace);
+        processes = new ProcessTable();
+        compactor = null;
+    }
+
+    /**
+     * Creates a memory from a restored snapshot (see {@link SnapshotFile}).
+     */
+    MemoryManager(FreeSpace freeSpace, AllocationStrategy strategy, ProcessTable processes, long requestedUnits, long checkpointId) {
+        this.memSize = freeSpace.size();
+        this.freeSpace = freeSpace;
+        bitmap = freeSpace.bitmap();
+        this.strategy = strategy;
+        this.paging = null;
+        strategy.init(freeSpace);
+        this.processes = processes;
+        this.requestedUnits = requestedUnits;
+        this.checkpointId = checkpointId;
+        compactor = new Compactor(freeSpace, 64, 1_000_000);
+    }
+
+    /**
+     * @return The size of the memory in KB
+     */
+    public int getMemSize() {
+        return memSize;
+    }
+
+    public AllocationStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @return The paging unit, or null if the memory is in contiguous mode
+     */
+    public PagingUnit getPagingUnit() {
+        return paging;
+    }
 
-        if (fitStrategy == mmu.NEXT_FIT) {
-            lastPos = 0;
+    /**
+     * Starts measuring the allocator (see {@link AllocatorMetrics}). The largest hole is then maintained by an index, if the strategy didn't build one.
+     *
+     * @return The metrics
+     */
+    public AllocatorMetrics enableMetrics() {
+        if (metrics == null) {
+            freeSpace.trackLargestHole();
+            metrics = new AllocatorMetrics(strategy != null ? strategy.name() : "paging", freeSpace);
         }
+        return metrics;
     }
 
-    public Process allocateMemory(int amount) throws NoEnoughMemoryException {
-        Process result = switch (fitStrategy) {
-            case mmu.FIRST_FIT -> allocFirstFit(amount);
-            case mmu.NEXT_FIT -> allocNextFit(amount);
-            case mmu.BEST_FIT -> allocBestFit(amount);
-            case mmu.WORST_FIT -> allocWorstFit(amount);
-            default -> null;
-        };
-
-        assert result != null;
-        processes.put(result.getId(), result);
-        return result;
+    /**
+     * @return The allocator metrics, or null if they are not enabled
+     */
+    public AllocatorMetrics getMetrics() {
+        return metrics;
     }
 
-    private Process allocFirstFit(int amount) throws NoEnoughMemoryException {
-        if (amount > memSize) {
+    public Process allocateMemory(int amount) throws NoEnoughMemoryException {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("The requested amount must be positive");
+        }
+        int id = tryAllocate(amount);
+        if (id == -1) {
             throw new NoEnoughMemoryException();
         }
+        return new Process(id, processes.base(id), amount);
+    }
 
-        int currentHoleStart = -1;
-        int currentHoleSize = 0;
-
-        int i;
-        for (i = 0; i < memSize; i++) {
-            // Checking if memMap[i] is an available allocation unit
-            if (bitmap[i] == 0) {
-                if (currentHoleStart == -1) { // This means that this is the start of a hole
-                    currentHoleStart = i;
-
-                    // Check if we're near the end of the memory
-                    if (i + amount - 1 >= memSize) {
-                        break;
-                    }
-
-                    // Check if the unit at [start of this hole + the requested amount - 1] is already allocated
-                    if (bitmap[i + amount - 1] == 1) {
-                        // If so, this hole will not fit for the new process. Thus, move directly to [i + amount] and search. This avoids unnecessary traversal if the hole is too small.
-                        i += amount - 1; // -1 because it will get incremented at the next iteration.
-                        currentHoleStart = -1;
-                        continue;
-                    }
-                }
-                currentHoleSize++;
+    /**
+     * Creates a process like {@link #allocateMemory}, but reports a failure with a return value instead of an exception, and creates no object,
+     * for drivers that issue many requests and expect some of them to fail (e.g. {@link TraceReplayer}).
+     *
+     * @return The ID of the new process, or -1 if the amount isn't positive or there is no space for it
+     */
+    @Override
+    public int tryAllocate(int amount) {
+        int id = metrics == null ? allocate(amount) : allocateMeasured(amount);
+        if (log != null && id != -1) {
+            log.allocated(amount, id);
+        }
+        return id;
+    }
 
-            } else {
-                if (amount <= currentHoleSize) {
-                    // Found a hole that fits the requested amount, so choose it.
-                    allocInMemMap(currentHoleStart, amount);
-                    return new Process(currentHoleStart, amount);
-                }
+    private int allocateMeasured(int amount) {
+        long probesBefore = freeSpace.probes();
+        int id;
+        if (metrics.sample()) {
+            long start = System.nanoTime();
+            id = allocate(amount);
+            metrics.recordLatency(System.nanoTime() - start);
+        } else {
+            id = allocate(amount);
+        }
+        metrics.allocated(freeSpace.probes() - probesBefore, id != -1);
+        metrics.publish();
+        return id;
+    }
 
-                // Reinitialize the counters
-                currentHoleSize = 0;
-                currentHoleStart = -1;
-            }
+    private int allocate(int amount) {
+        if (amount <= 0) {
+            return -1;
+        }
+        if (paging != null) {
+            // In demand paging mode, a process may even be larger than the memory
+            return allocPaged(amount);
+        }
+        if (amount > memSize) {
+            return -1;
+        }
 
-            // Check if we've reached the end of memory and handle the case where the end of the memory is a hole
-            if (i == memSize - 1 && amount <= currentHoleSize) {
-                allocInMemMap(currentHoleStart, amount);
-                return new Process(currentHoleStart, amount);
-            }
+        int base = place(amount);
+        if (base == -1) {
+            // There was no hole that would fit
+            return -1;
         }
 
-        // If we reach here, it means that there was no hole that would fit (otherwise, we would have chosen it).
-        throw new NoEnoughMemoryException();
+        int id = processes.add(base, amount);
+        requestedUnits += amount;
+        compactor.cancel();
+        return id;
     }
 
-    private Process allocNextFit(int amount) throws NoEnoughMemoryException {
-        if (amount > memSize) {
-            throw new NoEnoughMemoryException();
+    /**
+     * Reserves a block with the strategy, compacting the memory first if needed and the auto compaction is on.
+     *
+     * @return The base of the block, or -1 if there is no space for it
+     */
+    private int place(int amount) {
+        int base = strategy.allocate(amount);
+        if (base == -1 && autoCompaction != CompactionMode.NONE && strategy.isRelocatable() && freeSpace.freeUnits() >= amount) {
+            // The free space is enough, but it's scattered in holes that are too small
+            if (autoCompaction == CompactionMode.FULL) {
+                compactor.compactAll(processes);
+            } else if (compactor.plan(processes, amount)) {
+                // The allocation can't wait for later steps: the moves are made in one pause, which is the stall the caller sees
+                compactor.finish();
+            }
+            base = strategy.allocate(amount);
         }
+        return base;
+    }
 
-        int startPos = lastPos;
-        int freeCount = 0;
-        int base = -1;
+    /**
+     * @return The ID of the new process, or -1 if it can't be mapped
+     */
+    private int allocPaged(int amount) {
+        if (!paging.canMap(amount)) {
+            return -1;
+        }
 
-        do {
-            if (lastPos == 0) {
-                // The pointer returned back to the beginning of the memory, so reset the counters, so that the allocation is contiguous.
-                base = -1;
-                freeCount = 0;
-            }
+        // In paging mode, the base of a process is the physical address of its first page (the other pages may be anywhere)
+        int id = processes.add(-1, amount);
+        int base = paging.mapProcess(id, amount);
+        processes.setBase(id, base);
+        requestedUnits += amount;
+        return id;
+    }
+
+    /**
+     * Allocates a batch of processes. The strategy may place the whole batch in a single pass over the free space, so the placements can differ
+     * from calling {@link #allocateMemory} for each size. A request that fails doesn't affect the others.
+     *
+     * @param sizes The requested amount of each process in KB
+     * @return The status of each request, and the created processes
+     */
+    public BatchResult allocateBatch(int[] sizes) {
+        BatchResult result = new BatchResult(sizes.length, true);
+        if (log != null) {
+            log.allocatedBatch(sizes);
+        }
 
-            if (bitmap[lastPos] == 0) {
-                if (freeCount == 0) {
-                    // It's the beginning of a hole
-                    base = lastPos;
+        if (paging != null) {
+            for (int i = 0; i < sizes.length; i++) {
+                if (sizes[i] <= 0) {
+                    result.fail(i, BatchResult.Status.INVALID_SIZE);
+                    continue;
                 }
-                freeCount++;
-                if (freeCount == amount) {
-                    break;
+                int id = allocPaged(sizes[i]);
+                if (id == -1) {
+                    result.fail(i, BatchResult.Status.NO_ENOUGH_MEMORY);
+                } else {
+                    result.succeed(i, new Process(id, processes.base(id), sizes[i]));
                 }
+            }
+            recordBatch(result);
+            return result;
+        }
+
+        // Only the valid requests go to the strategy
+        int[] indexes = new int[sizes.length];
+        int[] amounts = new int[sizes.length];
+        int count = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            if (sizes[i] <= 0) {
+                result.fail(i, BatchResult.Status.INVALID_SIZE);
+            } else if (sizes[i] > memSize) {
+                result.fail(i, BatchResult.Status.NO_ENOUGH_MEMORY);
             } else {
-                // It's an allocated block, so reset the counters
-                freeCount = 0;
-                base = -1;
+                indexes[count] = i;
+                amounts[count] = sizes[i];
+                count++;
             }
+        }
 
-            lastPos = (lastPos + 1) % memSize;
-        } while (lastPos != startPos);
+        int[] bases = strategy.allocateBatch(Arrays.copyOf(amounts, count));
+        compactor.cancel();
 
-        // Check if there are more available units:
-        while (lastPos < memSize && bitmap[lastPos] == 0 && freeCount < amount) {
-            lastPos++;
-            freeCount++;
+        // Create the processes in the order of the request, so their IDs follow it
+        for (int j = 0; j < count; j++) {
+            if (bases[j] == -1) {
+                result.fail(indexes[j], BatchResult.Status.NO_ENOUGH_MEMORY);
+                continue;
+            }
+            int id = processes.add(bases[j], amounts[j]);
+            requestedUnits += amounts[j];
+            result.succeed(indexes[j], new Process(id, bases[j], amounts[j]));
         }
+        recordBatch(result);
+        return result;
+    }
 
-        if (freeCount == amount) {
-            allocInMemMap(base, amount);
-            lastPos = (lastPos + 1) % memSize;
-            return new Process(base, amount);
+    private void recordBatch(BatchResult result) {
+        if (metrics == null) {
+            return;
         }
-
-        // If we reach here, it means that there was no hole that would fit (otherwise, we would have chosen it).
-        lastPos = startPos;
-        throw new NoEnoughMemoryException();
+        metrics.allocatedBatch(result.size() - result.getFailureCount(), result.getFailureCount());
+        metrics.publish();
     }
 
-    private Process allocBestFit(int amount) throws NoEnoughMemoryException {
-        if (amount > memSize) {
+    /**
+     * Grows or shrinks a process. The process is resized in place if the strategy can (e.g. into the free run right after it), and is only
+     * relocated otherwise, which copies its contents. It keeps its ID.
+     * A process that maps its segment copy-on-write with others gets its own copy of the new size (a copy-on-write fault).
+     *
+     * @return The resized process
+     * @throws UnsupportedOperationException If the memory is in paging mode, or the segment is shared with other processes
+     */
+    public Process resizeProcess(int processID, int newSize) throws ProcessNotFoundException, NoEnoughMemoryException {
+        if (newSize <= 0) {
+            throw new IllegalArgumentException("The new size must be positive");
+        }
+        if (!processes.contains(processID)) {
+            throw new ProcessNotFoundException(processID);
+        }
+        String restriction = getResizeRestriction(processID, newSize);
+        if (restriction != null) {
+            throw new UnsupportedOperationException(restriction);
+        }
+        int base = tryResize(processID, newSize);
+        if (base == -1) {
             throw new NoEnoughMemoryException();
         }
+        return new Process(processID, base, newSize);
+    }
 
-        int currentHoleStart = -1;
-        int currentHoleSize = 0;
-        int bestHoleSize = MAX_VALUE;
-        int bestHoleStart = -1;
-
-        int i;
-        for (i = 0; i < memSize; i++) {
-            // Checking if memMap[i] is an available allocation unit
-            if (bitmap[i] == 0) {
-                if (currentHoleStart == -1) { // This means that this is the start of a hole
-                    currentHoleStart = i;
-
-                    // Check if we're near the end of the memory
-                    if (i + amount - 1 >= memSize) {
-                        break;
-                    }
-
-                    // Check if the unit at [start of this hole + the requested amount - 1] is already allocated
-                    if (bitmap[i + amount - 1] == 1) {
-                        // If so, this hole will not fit for the new process. Thus, move directly to [i + amount] and search. This avoids unnecessary traversal if the hole is too small.
-                        i += amount - 1; // -1 because it will get incremented at the next iteration.
-                        currentHoleStart = -1;
-                        continue;
-                    }
-                }
-                currentHoleSize++;
+    /**
+     * @return Why a process can't be resized to the given size (the memory is in paging mode, or the segment is shared with other processes), or
+     * null if nothing prevents it
+     */
+    public String getResizeRestriction(int processID, int newSize) {
+        if (paging != null) {
+            return "Processes can't be resized in paging mode";
+        }
+        if (processes.contains(processID) && newSize != processes.limit(processID) && !processes.isCopyOnWrite(processID)
+                && processes.hasSharers(processID)) {
+            return "Process " + processID + " shares its segment with other processes, so it can't be resized";
+        }
+        return null;
+    }
 
-            } else {
-                if (amount == currentHoleSize) {
-                    // We found a perfect space for the process (requested amount is equal to the size of the hole)
-                    // Therefore, allocate it directly to the process.
-                    allocInMemMap(currentHoleStart, amount);
-                    return new Process(currentHoleStart, amount);
-
-                } else if (amount < currentHoleSize && currentHoleSize < bestHoleSize) { // if it fits the requested amount, and it's better (less in size) than the best we've found so far
-                    bestHoleSize = currentHoleSize;
-                    bestHoleStart = currentHoleStart;
-                }
+    /**
+     * Resizes a process like {@link #resizeProcess}, but reports a failure with a return value instead of an exception.
+     * A failed resize leaves the process as it was.
+     *
+     * @return The base of the process after the resize, or -1 if the process doesn't exist, the size isn't positive, the process can't be resized
+     * (see {@link #getResizeRestriction}) or there is no space for it
+     */
+    public int tryResize(int processID, int newSize) {
+        if (!processes.contains(processID) || newSize <= 0 || newSize > memSize || getResizeRestriction(processID, newSize) != null) {
+            return -1;
+        }
+        int base = processes.base(processID);
+        int limit = processes.limit(processID);
+        if (newSize == limit) {
+            return base;
+        }
 
-                // Reinitialize the counters
-                currentHoleSize = 0;
-                currentHoleStart = -1;
+        if (processes.isCopyOnWrite(processID)) {
+            // The resize writes the segment: the process gets its own copy, directly at the new size
+            long start = System.nanoTime();
+            int newBase = place(newSize);
+            if (newBase == -1) {
+                return -1;
             }
+            processes.detach(processID, newBase);
+            requestedUnits += limit;
+            cowFaults++;
+            cowCopiedKB += Math.min(limit, newSize);
+            cowFaultNanos += System.nanoTime() - start;
+            base = newBase;
+        } else if (strategy.resizeInPlace(base, limit, newSize)) {
+            inPlaceResizes++;
+        } else {
+            int newBase = relocate(processID, newSize);
+            if (newBase == -1) {
+                return -1;
+            }
+            relocations++;
+            relocatedKB += Math.min(limit, newSize);
+            base = newBase;
+            processes.setBase(processID, base);
+        }
+        processes.setLimit(processID, newSize);
+        requestedUnits += newSize - limit;
+        compactor.cancel();
+        if (metrics != null) {
+            metrics.publish();
+        }
+        if (log != null) {
+            log.resized(processID, newSize, base);
+        }
+        return base;
+    }
 
-            // Check if we've reached the end of memory and handle the case where the end of the memory is a hole
-            if (i == memSize - 1 && amount <= currentHoleSize && currentHoleSize < bestHoleSize) {
-                bestHoleStart = currentHoleStart;
+    /**
+     * Moves the block of a process to a new place of the new size, and frees the old one. The caller sets the new base in the process table.
+     * Like a creation, the placement may compact the memory first (see {@link #setAutoCompaction}).
+     *
+     * @return The new base, or -1 if there is no space for it (the old block is then kept)
+     */
+    private int relocate(int processID, int newSize) {
+        int base = processes.base(processID);
+        int limit = processes.limit(processID);
+        if (strategy.isRelocatable()) {
+            // Free the old block first, so the new one may overlap it (the copy is then a memmove)
+            strategy.free(base, limit);
+            int newBase = strategy.allocate(newSize);
+            if (newBase != -1) {
+                return newBase;
+            }
+            freeSpace.reserve(base, limit);
+            if (autoCompaction == CompactionMode.NONE) {
+                return -1;
             }
         }
 
+        // The strategy may keep state about the old block, so it's only freed once the new one is placed. The compaction runs with the old block
+        // still reserved (the process is in the table, so it may be moved too), hence its base is read again.
+        int newBase = place(newSize);
+        if (newBase != -1) {
+            strategy.free(processes.base(processID), limit);
+        }
+        return newBase;
+    }
 
-        // Checking if we found at least one space that fits
-        if (bestHoleStart == -1) {
-            throw new NoEnoughMemoryException();
+    /**
+     * Deletes a batch of processes, and gives their memory back to the strategy at once. An unknown ID doesn't affect the others.
+     *
+     * @return The status of each deletion
+     */
+    public BatchResult deleteBatch(int[] ids) {
+        BatchResult result = new BatchResult(ids.length, false);
+        if (log != null) {
+            log.deletedBatch(ids);
+        }
+        int[] bases = new int[ids.length];
+        int[] amounts = new int[ids.length];
+        int count = 0;
+
+        for (int i = 0; i < ids.length; i++) {
+            int id = ids[i];
+            if (!processes.contains(id)) {
+                result.fail(i, BatchResult.Status.PROCESS_NOT_FOUND);
+                continue;
+            }
+            if (paging != null || processes.hasSharers(id)) {
+                freeProcessMemory(id);
+            } else {
+                bases[count] = processes.base(id);
+                amounts[count] = processes.limit(id);
+                requestedUnits -= amounts[count];
+                count++;
+            }
+            processes.remove(id);
+            result.succeed(i, null);
         }
 
-        // Updating the memory map
-        allocInMemMap(bestHoleStart, amount);
-        return new Process(bestHoleStart, amount);
+        if (count > 0) {
+            strategy.freeBatch(bases, amounts, count);
+            compactor.cancel();
+        }
+        if (metrics != null) {
+            metrics.freed(result.size() - result.getFailureCount());
+            metrics.publish();
+        }
+        return result;
     }
 
-    private Process allocWorstFit(int amount) throws NoEnoughMemoryException {
-        if (amount > memSize) {
-            throw new NoEnoughMemoryException();
+    public void deleteProcess(int processID) throws ProcessNotFoundException {
+        if (!tryDelete(processID)) {
+            throw new ProcessNotFoundException(processID);
         }
+    }
 
-        int currentHoleStart = -1;
-        int currentHoleSize = 0;
-        int worstFitHoleSize = 0;
-        int worstFitHoleStart = -1;
-
-        int i;
-        for (i = 0; i < memSize; i++) {
-            // Checking if memMap[i] is an available allocation unit
-            if (bitmap[i] == 0) {
-                if (currentHoleStart == -1) { // This means that this is the start of a hole
-                    currentHoleStart = i;
-
-                    // Check if we're near the end of the memory
-                    if (i + amount - 1 >= memSize) {
-                        break;
-                    }
-
-                    // Check if the unit at [start of this hole + the requested amount - 1] is already allocated
-                    if (bitmap[i + amount - 1] == 1) {
-                        // If so, this hole will not fit for the new process. Thus, move directly to [i + amount] and search. This avoids unnecessary traversal if the hole is too small.
-                        i += amount - 1; // -1 because it will get incremented at the next iteration.
-                        currentHoleStart = -1;
-                        continue;
-                    }
-                }
-                currentHoleSize++;
+    /**
+     * Deletes a process like {@link #deleteProcess}, but reports an unknown process with a return value instead of an exception.
+     *
+     * @return Whether the process existed
+     */
+    @Override
+    public boolean tryDelete(int processID) {
+        if (!processes.contains(processID)) {
+            return false;
+        }
+        freeProcessMemory(processID);
+        processes.remove(processID);
+        if (metrics != null) {
+            metrics.freed(1);
+            metrics.publish();
+        }
+        if (log != null) {
+            log.deleted(processID);
+        }
+        return true;
+    }
 
-            } else {
-                if (amount <= currentHoleSize && currentHoleSize > worstFitHoleSize) { // if it fits the requested amount, and it's worse (bigger) than the worst we've found so far
-                    worstFitHoleSize = currentHoleSize;
-                    worstFitHoleStart = currentHoleStart;
-                }
+    /**
+     * Gives the memory of the given process back to the allocation strategy, which sets its allocation units (and anything else it reserved for it) to 0 in the memory map.
+     * The process must still be in the table.
+     */
+    private void freeProcessMemory(int processID) {
+        int limit = processes.limit(processID);
+        if (processes.hasSharers(processID)) {
+            // The other processes still map the segment. The plan of an incremental compaction may refer to the segment by this ID.
+            compactor.cancel();
+            return;
+        }
+        if (paging != null) {
+            paging.unmapProcess(processID, limit);
+            requestedUnits -= limit;
+            return;
+        }
+        strategy.free(processes.base(processID), limit);
+        requestedUnits -= limit;
+        compactor.cancel();
+    }
+
+    /**
+     * Creates a child of a process that maps the same segment, without copying it: copy-on-write, unless the segment is shared (see {@link #attachShared}).
+     * The segment is only copied when the parent or the child writes it (see {@link #writeAddress}) while both still map it.
+     *
+     * @return The child process
+     * @throws UnsupportedOperationException If the memory is in paging mode
+     */
+    public Process fork(int processID) throws ProcessNotFoundException {
+        if (paging != null) {
+            throw new UnsupportedOperationException("Processes can't be forked in paging mode");
+        }
+        if (!processes.contains(processID)) {
+            throw new ProcessNotFoundException(processID);
+        }
+        int child = processes.addSharer(processID);
+        forks++;
+        forkedKB += processes.limit(processID);
+        if (log != null) {
+            log.forked(processID, child);
+        }
+        return new Process(child, processes.base(child), processes.limit(child));
+    }
+
+    /**
+     * Creates a process that maps the same segment as a process, shared: a write by any of them is seen by all of them, and the segment is only freed
+     * with its last process. A process that maps its segment copy-on-write with others gets its own copy first.
+     *
+     * @return The new process
+     * @throws UnsupportedOperationException If the memory is in paging mode
+     */
+    public Process attachShared(int processID) throws ProcessNotFoundException, NoEnoughMemoryException {
+        if (paging != null) {
+            throw new UnsupportedOperationException("There are no shared segments in paging mode");
+        }
+        if (!processes.contains(processID)) {
+            throw new ProcessNotFoundException(processID);
+        }
+        if (processes.isCopyOnWrite(processID) && copyOnWrite(processID) == -1) {
+            throw new NoEnoughMemoryException();
+        }
+        processes.markShared(processID);
+        int sharer = processes.addSharer(processID);
+        if (log != null) {
+            log.shared(processID, sharer);
+        }
+        return new Process(sharer, processes.base(sharer), processes.limit(sharer));
+    }
 
-                // Reinitialize the counters
-                currentHoleSize = 0;
-                currentHoleStart = -1;
+    /**
+     * Translates an address that the process writes. If the process maps its segment copy-on-write with others, it first gets its own copy
+     * (a copy-on-write fault), so the physical address differs from a read of the same address before the write.
+     *
+     * @return The physical address
+     */
+    public int writeAddress(int processID, int virtualAddress) throws ProcessNotFoundException, IllegalAddressException, NoEnoughMemoryException {
+        int physicalAddress = convertAddress(processID, virtualAddress);
+        if (processes.isCopyOnWrite(processID)) {
+            if (copyOnWrite(processID) == -1) {
+                throw new NoEnoughMemoryException();
             }
+            physicalAddress = processes.base(processID) + virtualAddress;
+        }
+        return physicalAddress;
+    }
 
-            // Check if we've reached the end of memory and handle the case where the end of the memory is a hole
-            if (i == memSize - 1 && amount <= currentHoleSize && currentHoleSize > worstFitHoleSize) {
-                worstFitHoleStart = currentHoleStart;
+    /**
+     * Translates a written address like {@link #writeAddress}, but reports a failure with a return value instead of an exception.
+     *
+     * @return The physical address, or {@link BulkTranslation#INVALID_ADDRESS} if the process or the address doesn't exist, or there is no space for the copy
+     */
+    public int tryWrite(int processID, int virtualAddress) {
+        int physicalAddress = tryConvert(processID, virtualAddress);
+        if (physicalAddress != BulkTranslation.INVALID_ADDRESS && processes.isCopyOnWrite(processID)) {
+            if (copyOnWrite(processID) == -1) {
+                return BulkTranslation.INVALID_ADDRESS;
             }
+            physicalAddress = processes.base(processID) + virtualAddress;
+        }
+        return physicalAddress;
+    }
+
+    /**
+     * Gives a process that maps its segment copy-on-write with others its own copy.
+     *
+     * @return The base of the copy, or -1 if there is no space for it (the process then still maps the segment) or the process isn't copy-on-write
+     */
+    int copyOnWrite(int processID) {
+        if (!processes.contains(processID) || !processes.isCopyOnWrite(processID)) {
+            return -1;
+        }
+        long start = System.nanoTime();
+        int limit = processes.limit(processID);
+        int base = place(limit);
+        if (base == -1) {
+            return -1;
+        }
+        processes.detach(processID, base);
+        requestedUnits += limit;
+        compactor.cancel();
+        cowFaults++;
+        cowCopiedKB += limit;
+        cowFaultNanos += System.nanoTime() - start;
+        if (metrics != null) {
+            metrics.publish();
         }
+        if (log != null) {
+            log.copied(processID, base);
+        }
+        return base;
+    }
 
+    /**
+     * Slides all the processes down to the start of the memory, leaving a single hole at the end.
+     *
+     * @throws UnsupportedOperationException If the memory is in paging mode, or the strategy's blocks can't be moved
+     */
+    public CompactionResult compact() {
+        CompactionResult result = compactor().compactAll(processes);
+        if (metrics != null) {
+            metrics.publish();
+        }
+        if (log != null) {
+            log.compacted();
+        }
+        return result;
+    }
 
-        // Checking if we found at least one space that fits
-        if (worstFitHoleStart == -1) {
-            throw new NoEnoughMemoryException();
+    /**
+     * Plans an incremental compaction that opens a hole of at least the given amount with the cheapest moves, to be made by {@link #compactStep}.
+     * The plan is dropped when a process is allocated or deleted.
+     *
+     * @return Whether the memory has enough free space for such a hole
+     * @throws UnsupportedOperationException If the memory is in paging mode, or the strategy's blocks can't be moved
+     */
+    public boolean startCompaction(int amount) {
+        if (amount <= 0 || amount > memSize) {
+            throw new IllegalArgumentException("The hole size must be between 1 and the memory size");
+        }
+        boolean planned = compactor().plan(processes, amount);
+        if (log != null) {
+            log.planned(amount);
+        }
+        return planned;
+    }
+
+    /**
+     * Makes the next moves of the incremental compaction, within the step budget (see {@link #setCompactionBudget}).
+     */
+    public CompactionResult compactStep() {
+        return afterStep(compactor().step());
+    }
+
+    /**
+     * Makes exactly the given number of moves of the incremental compaction, to replay a step recorded in an {@link OperationLog}.
+     */
+    CompactionResult compactStep(int moves) {
+        return afterStep(compactor().step(moves));
+    }
+
+    private CompactionResult afterStep(CompactionResult result) {
+        if (metrics != null) {
+            metrics.publish();
         }
+        if (log != null) {
+            log.stepped(result.getProcessesMoved());
+        }
+        return result;
+    }
 
-        // Updating the memory map
-        allocInMemMap(worstFitHoleStart, amount);
-        return new Process(worstFitHoleStart, amount);
+    /**
+     * @param maxStepKB        The maximum size of the processes moved by one step of an incremental compaction, in KB
+     * @param pauseBudgetNanos The time after which a step of an incremental compaction stops, in nanoseconds
+     */
+    public void setCompactionBudget(int maxStepKB, long pauseBudgetNanos) {
+        compactor().setBudget(maxStepKB, pauseBudgetNanos);
     }
 
-    private void allocInMemMap(int base, int amount) {
-        for (int i = base; i < base + amount; i++) {
-            this.bitmap[i] = 1;
+    /**
+     * Sets what {@link #allocateMemory} does when the free space is enough for a request but no hole fits it.
+     */
+    public void setAutoCompaction(CompactionMode mode) {
+        if (mode != CompactionMode.NONE) {
+            compactor();
+        }
+        autoCompaction = mode;
+        if (log != null) {
+            log.autoCompaction(mode);
         }
     }
 
-    public void deleteProcess(int processID) throws ProcessNotFoundException {
-        if (!processes.containsKey(processID)) {
-            throw new ProcessNotFoundException(processID);
+    /**
+     * @return The compactor, which holds the totals of all the compactions
+     * @throws UnsupportedOperationException If the memory is in paging mode, or the strategy's blocks can't be moved
+     */
+    public Compactor compactor() {
+        if (compactor == null) {
+            throw new UnsupportedOperationException("There is no compaction in paging mode");
+        }
+        if (!strategy.isRelocatable()) {
+            throw new UnsupportedOperationException("The " + strategy.name() + " strategy doesn't support compaction");
+        }
+        return compactor;
+    }
+
+    /**
+     * Saves the full state of the memory in a snapshot (see {@link SnapshotFile}), which becomes the new checkpoint: a pending incremental compaction
+     * is cancelled, and if an operation log is open, it's restarted after the snapshot.
+     *
+     * @throws UnsupportedOperationException If the memory is in paging mode, the strategy keeps state outside of the free space, or segments are shared
+     */
+    public void saveSnapshot(Path file) throws IOException {
+        if (paging != null) {
+            throw new UnsupportedOperationException("There are no snapshots in paging mode");
+        }
+        if (processes.hasSharing()) {
+            throw new UnsupportedOperationException("Shared and copy-on-write segments can't be saved in a snapshot");
+        }
+        if (!strategy.isRelocatable()) {
+            throw new UnsupportedOperationException("The " + strategy.name() + " strategy doesn't support snapshots");
+        }
+        compactor.cancel();
+        long id = newCheckpointId();
+        SnapshotFile.write(file, id, freeSpace, strategy, autoCompaction, requestedUnits, processes);
+        checkpointId = id;
+        if (log != null) {
+            Path logFile = log.getFile();
+            log.close();
+            log = OperationLog.create(logFile, checkpointId);
         }
-        Process process = processes.get(processID);
-        processes.remove(processID);
-        freeProcessMemory(process);
     }
 
     /**
-     * Sets the allocation units of the given process to 0 in the memory map.
+     * Starts logging the operations that change the memory to a new log (an existing file is overwritten), which follows the last snapshot.
      *
-     * @param p
+     * @throws IllegalStateException If no snapshot was saved or restored
+     */
+    public void openLog(Path file) throws IOException {
+        if (checkpointId == 0) {
+            throw new IllegalStateException("The operation log must follow a snapshot: save one first");
+        }
+        closeLog();
+        log = OperationLog.create(file, checkpointId);
+    }
+
+    /**
+     * Writes the buffered records of the operation log to the disk.
+     */
+    public void flushLog() throws IOException {
+        if (log != null) {
+            log.flush();
+        }
+    }
+
+    public void closeLog() throws IOException {
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+    }
+
+    /**
+     * @return The operation log, or null if the operations aren't logged
+     */
+    public OperationLog getLog() {
+        return log;
+    }
+
+    /**
+     * @return The ID of the last snapshot saved or restored, or 0 if there is none
+     */
+    public long getCheckpointId() {
+        return checkpointId;
+    }
+
+    /**
+     * Restores a memory from a snapshot. The restored memory is independent from the one that was saved, e.g. to fork a fragmented state for what-if runs.
+     */
+    public static MemoryManager restore(Path snapshot) throws IOException {
+        return SnapshotFile.read(snapshot);
+    }
+
+    /**
+     * Restores a memory from a snapshot and the log of the operations made after it (if the log exists), and keeps logging to it.
      */
-    private void freeProcessMemory(Process p) {
-        for (int i = p.getBase(); i < p.getBase() + p.getLimit(); i++) {
-            bitmap[i] = 0;
+    public static MemoryManager restore(Path snapshot, Path logFile) throws IOException {
+        MemoryManager mm = SnapshotFile.read(snapshot);
+        if (Files.exists(logFile)) {
+            long validLength = OperationLog.replay(logFile, mm);
+            mm.log = OperationLog.append(logFile, validLength);
+        } else {
+            mm.log = OperationLog.create(logFile, mm.checkpointId);
         }
+        return mm;
+    }
+
+    private static long newCheckpointId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return id;
     }
 
     public int convertAddress(int processID, int virtualAddress) throws ProcessNotFoundException, IllegalAddressException {
-        if (!processes.containsKey(processID)) {
+        if (!processes.contains(processID)) {
             throw new ProcessNotFoundException(processID);
         }
 
-        Process process = processes.get(processID);
-        if (virtualAddress >= process.getLimit() || virtualAddress < 0) {
+        if (virtualAddress >= processes.limit(processID) || virtualAddress < 0) {
             throw new IllegalAddressException();
         }
 
-        return process.getBase() + virtualAddress;
+        if (paging != null) {
+            return paging.translate(processID, virtualAddress);
+        }
+
+        return processes.base(processID) + virtualAddress;
+    }
+
+    /**
+     * Translates an address like {@link #convertAddress}, but reports an unknown process or an address outside the process with a return value instead of an exception.
+     *
+     * @return The physical address, or {@link BulkTranslation#INVALID_ADDRESS}
+     */
+    @Override
+    public int tryConvert(int processID, int virtualAddress) {
+        if (!processes.contains(processID) || virtualAddress >= processes.limit(processID) || virtualAddress < 0) {
+            return BulkTranslation.INVALID_ADDRESS;
+        }
+        if (paging != null) {
+            return paging.translate(processID, virtualAddress);
+        }
+        return processes.base(processID) + virtualAddress;
+    }
+
+    /**
+     * Translates many addresses of a process at once. An address outside the process doesn't throw: its physical address is {@link BulkTranslation#INVALID_ADDRESS}.
+     * In contiguous mode, the bounds check and base addition are vectorized by the JIT.
+     *
+     * @param physicalOut Receives the physical address of each virtual address (it must be at least as long as virtualAddresses)
+     * @return The number of invalid addresses
+     */
+    public int convertAddresses(int processID, int[] virtualAddresses, int[] physicalOut) throws ProcessNotFoundException {
+        if (!processes.contains(processID)) {
+            throw new ProcessNotFoundException(processID);
+        }
+        int limit = processes.limit(processID);
+
+        if (paging != null) {
+            int invalid = 0;
+            for (int i = 0; i < virtualAddresses.length; i++) {
+                int virtualAddress = virtualAddresses[i];
+                if (virtualAddress >= limit || virtualAddress < 0) {
+                    physicalOut[i] = BulkTranslation.INVALID_ADDRESS;
+                    invalid++;
+                } else {
+                    physicalOut[i] = paging.translate(processID, virtualAddress);
+                }
+            }
+            return invalid;
+        }
+
+        return BulkTranslation.translate(processes.base(processID), limit, virtualAddresses, physicalOut, virtualAddresses.length);
+    }
+
+    /**
+     * Translates many addresses, each of the process at the same index in {@code processIDs}. An address outside its process, or of an unknown process,
+     * doesn't throw: its physical address is {@link BulkTranslation#INVALID_ADDRESS}.
+     *
+     * @param physicalOut Receives the physical address of each virtual address (it must be at least as long as virtualAddresses)
+     * @return The number of invalid addresses
+     */
+    public int convertAddresses(int[] processIDs, int[] virtualAddresses, int[] physicalOut) {
+        if (processIDs.length != virtualAddresses.length) {
+            throw new IllegalArgumentException("There must be one process ID per address");
+        }
+
+        if (paging != null) {
+            int invalid = 0;
+            for (int i = 0; i < virtualAddresses.length; i++) {
+                int processID = processIDs[i];
+                int virtualAddress = virtualAddresses[i];
+                if (!processes.contains(processID) || virtualAddress >= processes.limit(processID) || virtualAddress < 0) {
+                    physicalOut[i] = BulkTranslation.INVALID_ADDRESS;
+                    invalid++;
+                } else {
+                    physicalOut[i] = paging.translate(processID, virtualAddress);
+                }
+            }
+            return invalid;
+        }
+
+        return processes.translate(processIDs, virtualAddresses, physicalOut, virtualAddresses.length);
     }
 
     // Method to print current memory state
     public void printMemory() {
-        List<Process> sortedProcesses = new ArrayList<>(processes.values());
-        // Sort the processes based on their base addresses
-        sortedProcesses.sort(Comparator.comparingInt(Process::getBase));
+        if (paging != null) {
+            paging.printMemory();
+            return;
+        }
+        PrintWriter out = MemoryMapRenderer.console();
+        out.println("Memory Map:");
+        mapRenderer().render(out, 0, memSize, Integer.MAX_VALUE);
+        out.flush();
+    }
 
-        System.out.println("Memory Map:");
+    /**
+     * Prints a page of the memory map of [from, to): at most {@code maxEntries} blocks, holes and reserved runs, in address order.
+     * A block that overlaps the range is printed whole.
+     *
+     * @return The address where the next page starts, or {@code to} if the range was printed entirely
+     * @throws UnsupportedOperationException If the memory is in paging mode
+     */
+    public int printMemory(int from, int to, int maxEntries) {
+        PrintWriter out = MemoryMapRenderer.console();
+        int next = mapRenderer().render(out, from, to, maxEntries);
+        out.flush();
+        return next;
+    }
+
+    /**
+     * Prints the totals of [from, to) instead of its entries: the blocks, the units they reserve and request, and the holes.
+     *
+     * @throws UnsupportedOperationException If the memory is in paging mode
+     */
+    public void printMemorySummary(int from, int to) {
+        PrintWriter out = MemoryMapRenderer.console();
+        mapRenderer().summarize(out, from, to);
+        out.flush();
+    }
+
+    /**
+     * @return A bar of {@code width} cells covering the whole memory, each showing how much of its units are reserved (see {@link MemoryMapRenderer#occupancyBar})
+     */
+    public String occupancyBar(int width) {
+        // The bar only reads the bitmap, so it also shows the frames in paging mode
+        return new MemoryMapRenderer(memSize, bitmap, processes).occupancyBar(0, memSize, width);
+    }
 
-        int currentAddress = 0;
-        for (Process proc : sortedProcesses) {
-            if (currentAddress < proc.getBase()) {
-                printHole(currentAddress, proc.getBase());
+    /**
+     * @return The blocks that overlap [from, to), in address order, found by a binary search in the by-base index.
+     * A block mapped by several processes is returned once, with the ID of one of them.
+     * @throws UnsupportedOperationException If the memory is in paging mode
+     */
+    public List<Process> blocksIn(int from, int to) {
+        if (paging != null) {
+            throw new UnsupportedOperationException("Processes are not contiguous in paging mode");
+        }
+        List<Process> blocks = new ArrayList<>();
+        for (long cursor = processes.firstEndingAfter(from); cursor != -1; cursor = processes.nextByBase(cursor)) {
+            int id = processes.idAt(cursor);
+            if (processes.base(id) >= to) {
+                break;
             }
-            printAllocatedBlock(proc);
-            currentAddress = proc.getBase() + proc.getLimit();
+            blocks.add(new Process(id, processes.base(id), processes.limit(id)));
         }
+        return blocks;
+    }
 
-        if (currentAddress < memSize) {
-            printHole(currentAddress, memSize);
+    /**
+     * @return The holes of at least {@code minSize} KB in [from, to), in address order, at most {@code maxCount} of them (see {@link FreeSpace#findHoles})
+     */
+    public List<Hole> findHoles(int minSize, int from, int to, int maxCount) {
+        return freeSpace.findHoles(from, to, minSize, maxCount);
+    }
+
+    private MemoryMapRenderer mapRenderer() {
+        if (paging != null) {
+            throw new UnsupportedOperationException("The memory map of a range is only available in contiguous mode");
         }
+        return new MemoryMapRenderer(memSize, bitmap, processes);
+    }
+
+    /**
+     * Prints the internal and external fragmentation of the memory.
+     * <p>
+     * Internal fragmentation is the space reserved by the allocator but not requested by any process (e.g. the rounding of a request up to a block
+     * size or a size class). The unused capacity (e.g. the free slots of slabs) is reserved too, but later requests can use it, so it's printed apart.
+     * External fragmentation is 1 - (largest hole / total free space): 0 when all the free space is a single hole, and close to 1 when it's scattered in small holes.
+     */
+    public void printFragmentation() {
+        long freeUnits = freeSpace.freeUnits();
+        System.out.println("Requested: " + blueColor(requestedUnits + "") + " KB");
+        System.out.println("Reserved: " + blueColor(freeSpace.usedUnits() + "") + " KB");
+        System.out.println("Free: " + blueColor(freeUnits + "") + " KB");
+        System.out.println("Internal fragmentation: " + blueColor(getInternalFragmentation() + "") + " KB");
+        if (getUnusedCapacity() > 0) {
+            System.out.println("Unused slab capacity: " + blueColor(getUnusedCapacity() + "") + " KB");
+        }
+        System.out.println("External fragmentation: " + blueColor(String.format("%.3f", getExternalFragmentation())));
+        if (inPlaceResizes + relocations > 0) {
+            System.out.println("Resizes: " + blueColor(inPlaceResizes + "") + " in place, " + blueColor(relocations + "") + " relocated ("
+                    + blueColor(relocatedKB + "") + " KB copied)");
+        }
+        if (processes.extraMappings() > 0) {
+            System.out.println("Shared segments: " + blueColor(processes.segmentCount() + "") + " segments for " + blueColor(processes.size() + "") + " processes, saving "
+                    + blueColor(processes.sharedUnits() + "") + " KB");
+        }
+        if (forks > 0) {
+            System.out.println("Forks: " + blueColor(forks + "") + " (" + blueColor(forkedKB + "") + " KB to copy eagerly), copy-on-write faults: "
+                    + blueColor(cowFaults + "") + " (" + blueColor(cowCopiedKB + "") + " KB copied, " + blueColor(String.format("%.3f", cowFaultNanos / 1e6)) + " ms)");
+        }
+        if (compactor != null && compactor.getPauses() > 0) {
+            System.out.println("Compactions: " + blueColor(compactor.getPauses() + "") + " (" + blueColor(compactor.getTotalBytesMoved() + "") + " bytes moved, max pause "
+                    + blueColor(String.format("%.3f", compactor.getMaxPauseNanos() / 1e6)) + " ms)");
+        }
+    }
+
+    /**
+     * @return The space reserved by the allocator beyond what the processes requested, in KB, not counting its unused capacity
+     */
+    public long getInternalFragmentation() {
+        return freeSpace.usedUnits() - requestedUnits - getUnusedCapacity();
+    }
+
+    /**
+     * @return The space the strategy reserved ahead of the requests and hasn't handed out yet, in KB (see {@link AllocationStrategy#unusedCapacity})
+     */
+    public long getUnusedCapacity() {
+        return strategy != null ? strategy.unusedCapacity() : 0;
+    }
+
+    public long getFreeUnits() {
+        return freeSpace.freeUnits();
+    }
+
+    public int getLargestHole() {
+        return freeSpace.largestHole();
+    }
+
+    public int getProcessCount() {
+        return processes.size();
+    }
+
+    public boolean hasProcess(int processID) {
+        return processes.contains(processID);
+    }
+
+    /**
+     * @return The base of a process (in paging mode, the physical address of its first page), or -1 if it doesn't exist
+     */
+    public int getBase(int processID) {
+        return processes.contains(processID) ? processes.base(processID) : -1;
+    }
+
+    /**
+     * @return The size of a process in KB, or 0 if it doesn't exist
+     */
+    public int getLimit(int processID) {
+        return processes.contains(processID) ? processes.limit(processID) : 0;
+    }
+
+    /**
+     * @return The number of resizes made in place
+     */
+    public long getInPlaceResizes() {
+        return inPlaceResizes;
+    }
+
+    /**
+     * @return The number of resizes that relocated their process
+     */
+    public long getRelocations() {
+        return relocations;
     }
 
-    private void printHole(int start, int end) {
-        System.out.println("------------------------------------------------");
-        System.out.println("- Hole:");
-        System.out.println("  Start: " + blueColor(start + "") + " KB");
-        System.out.println("  End: " + blueColor(end - 1 + "") + " KB");
-        System.out.println("  Size: " + blueColor((end - start) + "") + " KB");
-        System.out.println("------------------------------------------------");
+    /**
+     * @return The KB copied by the resizes that relocated their process
+     */
+    public long getRelocatedKB() {
+        return relocatedKB;
+    }
+
+    public long getForks() {
+        return forks;
     }
 
-    private void printAllocatedBlock(Process proc) {
-        int start = proc.getBase();
-        int size = proc.getLimit();
-        System.out.println("------------------------------------------------");
-        System.out.println("- Allocated block for process " + blueColor(proc.getId() + "") + ":");
-        System.out.println("  Start: " + blueColor(start + "") + " KB");
-        System.out.println("  End: " + blueColor((start + size - 1) + "") + " KB");
-        System.out.println("  Size: " + blueColor(size + "") + " KB");
-        System.out.println("------------------------------------------------");
+    /**
+     * @return The KB that copying the memory of each forked process eagerly would have copied
+     */
+    public long getForkedKB() {
+        return forkedKB;
+    }
+
+    public long getCowFaults() {
+        return cowFaults;
+    }
+
+    /**
+     * @return The KB copied by the copy-on-write faults. The difference with {@link #getForkedKB()} is what copy-on-write saved.
+     */
+    public long getCowCopiedKB() {
+        return cowCopiedKB;
+    }
+
+    /**
+     * @return The time spent in copy-on-write faults (placing the copies), in nanoseconds
+     */
+    public long getCowFaultNanos() {
+        return cowFaultNanos;
+    }
+
+    /**
+     * @return The memory saved now by the processes that map the same segment, in KB: the size of their mappings beyond the first of each segment
+     */
+    public long getSharedUnits() {
+        return processes.sharedUnits();
+    }
+
+    /**
+     * @return The external fragmentation index: 1 - (largest hole / total free space), or 0 if the memory is full
+     */
+    public double getExternalFragmentation() {
+        long freeUnits = freeSpace.freeUnits();
+        if (freeUnits == 0) {
+            return 0;
+        }
+        return 1 - (double) freeSpace.largestHole() / freeUnits;
     }
 
     public static String blueColor(String s) {
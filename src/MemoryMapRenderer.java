@@ -0,0 +1,162 @@
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * Renders the memory map of a contiguous memory, or of a range of it, for the console.
+ * <p>
+ * A range is rendered from the by-base index of the process table, which is kept up to date with each change of the table: a binary search finds
+ * its first block, a cursor walks from one block to the next, and the gaps between the blocks are split in holes and reserved runs from the bitmap,
+ * so the cost is proportional to what is printed, not to the size of the memory. The entries (blocks, holes and reserved runs) are written to a
+ * buffer, and a page stops after a given number of them, returning where the next page starts.
+ * <p>
+ * The summary and the occupancy bar count the allocated units of the range a word (64 units) at a time, without printing any entry.
+ */
+public class MemoryMapRenderer {
+
+    /**
+     * The characters of the occupancy bar, from an empty cell to a full one
+     */
+    private static final char[] LEVELS = {'.', ':', '+', '#'};
+
+    private final int memSize;
+    private final Bitmap bitmap;
+    private final ProcessTable processes;
+
+    public MemoryMapRenderer(int memSize, Bitmap bitmap, ProcessTable processes) {
+        this.memSize = memSize;
+        this.bitmap = bitmap;
+        this.processes = processes;
+    }
+
+    /**
+     * @return A writer to the standard output, buffered so an entry isn't flushed line by line. It must be flushed, not closed.
+     */
+    public static PrintWriter console() {
+        return new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16), false);
+    }
+
+    /**
+     * Renders the entries of [from, to): the blocks that overlap it (whole), and the holes and reserved runs inside it.
+     *
+     * @param maxEntries The maximum number of entries to render
+     * @return The address where the rendering stopped: {@code to} if the range was rendered entirely, otherwise the start of the next page
+     */
+    public int render(PrintWriter out, int from, int to, int maxEntries) {
+        to = Math.min(to, memSize);
+        long cursor = processes.firstEndingAfter(from);
+        int position = Math.max(from, 0);
+        int entries = 0;
+
+        while (position < to) {
+            if (entries == maxEntries) {
+                return position;
+            }
+            int nextBase = cursor != -1 ? processes.base(processes.idAt(cursor)) : memSize;
+            if (position < nextBase) {
+                // The gap before the next block is usually a hole, but the Buddy and Segregated Fit strategies may have reserved parts of it
+                // (the rounding of a block, or the free slots of a slab)
+                int end = Math.min(nextBase, to);
+                if (bitmap.isSet(position)) {
+                    end = Math.min(bitmap.nextClear(position), end);
+                    printRun(out, "Reserved (unused) block", position, end);
+                } else {
+                    end = Math.min(bitmap.nextSet(position), end);
+                    printRun(out, "Hole", position, end);
+                }
+                position = end;
+            } else {
+                int id = processes.idAt(cursor);
+                cursor = processes.nextByBase(cursor);
+                printBlock(out, id);
+                position = processes.base(id) + processes.limit(id);
+            }
+            entries++;
+        }
+        return to;
+    }
+
+    /**
+     * Prints the totals of [from, to): its blocks, the units they reserve and request, and its holes.
+     */
+    public void summarize(PrintWriter out, int from, int to) {
+        from = Math.max(from, 0);
+        to = Math.min(to, memSize);
+        int blocks = 0;
+        long requested = 0;
+        for (long cursor = processes.firstEndingAfter(from); cursor != -1; cursor = processes.nextByBase(cursor)) {
+            int id = processes.idAt(cursor);
+            if (processes.base(id) >= to) {
+                break;
+            }
+            blocks++;
+            requested += processes.limit(id);
+        }
+
+        int holes = 0;
+        int largestHole = 0;
+        int holeStart = bitmap.nextClear(from);
+        while (holeStart < to) {
+            int holeEnd = Math.min(bitmap.nextSet(holeStart), to);
+            holes++;
+            largestHole = Math.max(largestHole, holeEnd - holeStart);
+            holeStart = bitmap.nextClear(holeEnd);
+        }
+        int reserved = bitmap.countSet(from, to);
+
+        out.println("Range [" + MemoryManager.blueColor(from + "") + ", " + MemoryManager.blueColor(to + "") + ") KB:");
+        out.println("  Blocks: " + MemoryManager.blueColor(blocks + "") + " (" + MemoryManager.blueColor(requested + "") + " KB requested)");
+        out.println("  Reserved: " + MemoryManager.blueColor(reserved + "") + " KB");
+        out.println("  Free: " + MemoryManager.blueColor(to - from - reserved + "") + " KB in " + MemoryManager.blueColor(holes + "")
+                + " holes (largest: " + MemoryManager.blueColor(largestHole + "") + " KB)");
+    }
+
+    /**
+     * @return A bar of {@code width} cells covering [from, to), each showing how much of its units are reserved:
+     * '.' none, ':' less than half, '+' half or more, '#' all
+     */
+    public String occupancyBar(int from, int to, int width) {
+        from = Math.max(from, 0);
+        to = Math.min(to, memSize);
+        width = Math.max(1, Math.min(width, to - from));
+        char[] bar = new char[width];
+        for (int cell = 0; cell < width; cell++) {
+            int start = (int) (from + (long) (to - from) * cell / width);
+            int end = (int) (from + (long) (to - from) * (cell + 1) / width);
+            int reserved = bitmap.countSet(start, end);
+            if (reserved == 0) {
+                bar[cell] = LEVELS[0];
+            } else if (reserved == end - start) {
+                bar[cell] = LEVELS[3];
+            } else {
+                bar[cell] = LEVELS[2 * reserved >= end - start ? 2 : 1];
+            }
+        }
+        return new String(bar);
+    }
+
+    private void printRun(PrintWriter out, String kind, int start, int end) {
+        out.println("------------------------------------------------");
+        out.println("- " + kind + ":");
+        out.println("  Start: " + MemoryManager.blueColor(start + "") + " KB");
+        out.println("  End: " + MemoryManager.blueColor(end - 1 + "") + " KB");
+        out.println("  Size: " + MemoryManager.blueColor((end - start) + "") + " KB");
+        out.println("------------------------------------------------");
+    }
+
+    private void printBlock(PrintWriter out, int id) {
+        int start = processes.base(id);
+        int size = processes.limit(id);
+        out.println("------------------------------------------------");
+        out.println("- Allocated block for process " + MemoryManager.blueColor(id + "") + ":");
+        out.println("  Start: " + MemoryManager.blueColor(start + "") + " KB");
+        out.println("  End: " + MemoryManager.blueColor((start + size - 1) + "") + " KB");
+        out.println("  Size: " + MemoryManager.blueColor(size + "") + " KB");
+        if (processes.hasSharers(id)) {
+            out.println("  Mapped by processes: " + MemoryManager.blueColor(Arrays.toString(processes.sharers(id)))
+                    + (processes.isShared(id) ? " (shared)" : " (copy-on-write)"));
+        }
+        out.println("------------------------------------------------");
+    }
+}
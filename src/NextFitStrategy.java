@@ -0,0 +1,114 @@
+import java.util.Arrays;
+
+/**
+ * Next Fit: like First Fit, but the search starts where the last allocation ended, and wraps around to the beginning of the memory.
+ */
+public class NextFitStrategy implements AllocationStrategy {
+
+    private final boolean useFreeRunTree;
+
+    private FreeSpace freeSpace;
+
+    /**
+     * The position right after the last allocated block, where the next search starts.
+     */
+    private int lastPos = 0;
+
+    public NextFitStrategy() {
+        this(false);
+    }
+
+    /**
+     * @param useFreeRunTree Whether holes are searched with a segment tree of free runs (O(log memSize)) instead of scanning the bitmap.
+     *                       Both backends return exactly the same placements.
+     */
+    public NextFitStrategy(boolean useFreeRunTree) {
+        this.useFreeRunTree = useFreeRunTree;
+    }
+
+    @Override
+    public String name() {
+        return useFreeRunTree ? "next-fit-tree" : "next-fit";
+    }
+
+    @Override
+    public void init(FreeSpace freeSpace) {
+        this.freeSpace = freeSpace;
+        if (useFreeRunTree) {
+            freeSpace.runs();
+        }
+    }
+
+    @Override
+    public int allocate(int amount) {
+        // Search from where we left off last time. A hole that starts before lastPos only counts from lastPos.
+        int base = freeSpace.findFirstHole(lastPos, amount);
+        if (base == -1) {
+            // Wrap around to the beginning of the memory. Any hole found now starts before lastPos, otherwise we would have found it already.
+            base = freeSpace.findFirstHole(0, amount);
+        }
+        if (base == -1) {
+            return -1;
+        }
+
+        freeSpace.reserve(base, amount);
+        lastPos = (base + amount) % freeSpace.size();
+        return base;
+    }
+
+    @Override
+    public int getCursor() {
+        return lastPos;
+    }
+
+    @Override
+    public void setCursor(int cursor) {
+        lastPos = cursor;
+    }
+
+    @Override
+    public boolean resizeInPlace(int base, int oldAmount, int newAmount) {
+        return freeSpace.resize(base, oldAmount, newAmount);
+    }
+
+    @Override
+    public boolean isRelocatable() {
+        return true;
+    }
+
+    @Override
+    public void free(int base, int amount) {
+        freeSpace.release(base, amount);
+    }
+
+    /**
+     * Places the whole batch in a single pass over the holes, in address order, starting at lastPos and wrapping around (see {@link FreeSpace#packBatch}).
+     */
+    @Override
+    public int[] allocateBatch(int[] amounts) {
+        int[] bases = new int[amounts.length];
+        Arrays.fill(bases, -1);
+        PendingBatch pending = new PendingBatch(amounts);
+
+        int lastEnd = freeSpace.packBatch(pending, bases, lastPos, freeSpace.size());
+        if (!pending.isEmpty()) {
+            int wrappedEnd = freeSpace.packBatch(pending, bases, 0, lastPos);
+            if (wrappedEnd != -1) {
+                lastEnd = wrappedEnd;
+            }
+        }
+        if (lastEnd != -1) {
+            lastPos = lastEnd % freeSpace.size();
+        }
+        return bases;
+    }
+
+    @Override
+    public void freeBatch(int[] bases, int[] amounts, int count) {
+        freeSpace.releaseBatch(bases, amounts, count);
+    }
+
+    public int getLastPos() {
+        return lastPos;
+    }
+}
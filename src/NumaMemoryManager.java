@@ -0,0 +1,408 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * A memory made of several nodes (NUMA-style): each node is a contiguous {@link MemoryManager} of its own, with its own strategy and its own lock,
+ * so allocations on different nodes run in parallel, and translations on the same node only share a read lock.
+ * <p>
+ * A new process is placed by a {@link PlacementPolicy}, and spills over to the other nodes, nearest first, when it doesn't fit there.
+ * A process never spans two nodes. Its global ID encodes its node and its ID in that node ({@code localId * nodeCount + node}), so finding its node
+ * doesn't need a shared table. Physical addresses are global: node i covers [i * nodeSize, (i + 1) * nodeSize).
+ * <p>
+ * Each thread runs on a node (round-robin the first time it uses the memory, or set with {@link #setHomeNode}). A translation is accounted as local
+ * or remote, with the cost of the distance between the thread's node and the process's node. Distances follow the convention of the ACPI SLIT table:
+ * {@link #LOCAL_DISTANCE} within a node, and {@link #REMOTE_DISTANCE} between two nodes by default.
+ */
+public class NumaMemoryManager implements TraceTarget {
+
+    public static final int LOCAL_DISTANCE = 10;
+    public static final int REMOTE_DISTANCE = 21;
+
+    private static final class Node {
+        final int index;
+        final int start;
+        final MemoryManager manager;
+        final StampedLock lock = new StampedLock();
+
+        /**
+         * The free units, published after each change, so the placement can read them without the lock
+         */
+        volatile long freeUnits;
+
+        Node(int index, int start, MemoryManager manager) {
+            this.index = index;
+            this.start = start;
+            this.manager = manager;
+            this.freeUnits = manager.getFreeUnits();
+        }
+    }
+
+    private final int memSize;
+
+    private final Node[] nodes;
+
+    /**
+     * The size of all the nodes but the last one (which also gets the remainder of the memory)
+     */
+    private final int nodeSize;
+
+    private final PlacementPolicy policy;
+
+    private final int[][] distances;
+
+    /**
+     * For each node, all the nodes by increasing distance from it (itself first)
+     */
+    private final int[][] byDistance;
+
+    private final AtomicInteger nextHome = new AtomicInteger();
+    private final ThreadLocal<Integer> homeNode;
+
+    private final AtomicInteger interleaveCursor = new AtomicInteger();
+
+    private final LongAdder spills = new LongAdder();
+    private final LongAdder localAccesses = new LongAdder();
+    private final LongAdder remoteAccesses = new LongAdder();
+    private final LongAdder accessCost = new LongAdder();
+
+    /**
+     * @param memSize     Memory size in KB
+     * @param nodeCount   The number of nodes
+     * @param fitStrategy The allocation strategy of each node (see {@link MemoryManager#MemoryManager(int, int)})
+     */
+    public NumaMemoryManager(int memSize, int nodeCount, int fitStrategy, PlacementPolicy policy) {
+        this(memSize, nodeCount, () -> AllocationStrategies.forId(fitStrategy, false), policy, uniformDistances(nodeCount));
+    }
+
+    /**
+     * @param memSize    Memory size in KB
+     * @param nodeCount  The number of nodes
+     * @param strategies Creates the allocation strategy of each node (a new instance per call)
+     * @param distances  The distance from each node to each node, as in the ACPI SLIT table (the cost of a translation from the first to the second)
+     */
+    public NumaMemoryManager(int memSize, int nodeCount, Supplier<AllocationStrategy> strategies, PlacementPolicy policy, int[][] distances) {
+        if (nodeCount <= 0 || nodeCount > memSize) {
+            throw new IllegalArgumentException("The number of nodes must be between 1 and the memory size");
+        }
+        if (distances.length != nodeCount || Arrays.stream(distances).anyMatch(row -> row.length != nodeCount)) {
+            throw new IllegalArgumentException("There must be a distance between every two nodes");
+        }
+        this.memSize = memSize;
+        this.nodeSize = memSize / nodeCount;
+        this.policy = policy;
+        this.distances = distances;
+
+        nodes = new Node[nodeCount];
+        byDistance = new int[nodeCount][];
+        for (int i = 0; i < nodeCount; i++) {
+            int start = i * nodeSize;
+            int size = i == nodeCount - 1 ? memSize - start : nodeSize;
+            nodes[i] = new Node(i, start, new MemoryManager(size, strategies.get()));
+
+            int from = i;
+            byDistance[i] = IntStream.range(0, nodeCount).boxed()
+                    .sorted(Comparator.<Integer>comparingInt(to -> to == from ? -1 : distances[from][to]).thenComparingInt(to -> to))
+                    .mapToInt(Integer::intValue).toArray();
+        }
+        homeNode = ThreadLocal.withInitial(() -> Math.floorMod(nextHome.getAndIncrement(), nodes.length));
+    }
+
+    /**
+     * @return A distance matrix with {@link #LOCAL_DISTANCE} on the diagonal and {@link #REMOTE_DISTANCE} everywhere else
+     */
+    public static int[][] uniformDistances(int nodeCount) {
+        int[][] distances = new int[nodeCount][nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            Arrays.fill(distances[i], REMOTE_DISTANCE);
+            distances[i][i] = LOCAL_DISTANCE;
+        }
+        return distances;
+    }
+
+    /**
+     * Runs the calling thread on the given node.
+     */
+    public void setHomeNode(int node) {
+        if (node < 0 || node >= nodes.length) {
+            throw new IllegalArgumentException("There is no node " + node);
+        }
+        homeNode.set(node);
+    }
+
+    public int getHomeNode() {
+        return homeNode.get();
+    }
+
+    public Process allocateMemory(int amount) throws NoEnoughMemoryException {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("The requested amount must be positive");
+        }
+        int id = tryAllocate(amount);
+        if (id == -1) {
+            throw new NoEnoughMemoryException();
+        }
+        return new Process(id, baseOf(id), amount);
+    }
+
+    /**
+     * Creates a process requested by the calling thread.
+     *
+     * @return The global ID of the new process, or -1 if the amount isn't positive or there is no space for it on any node
+     */
+    @Override
+    public int tryAllocate(int amount) {
+        if (amount <= 0) {
+            return -1;
+        }
+        int first = firstNode(amount);
+        int[] order = byDistance[first];
+        for (int i = 0; i < order.length; i++) {
+            Node node = nodes[order[i]];
+            if (amount > node.freeUnits) {
+                continue;
+            }
+
+            int localId;
+            long stamp = node.lock.writeLock();
+            try {
+                localId = node.manager.tryAllocate(amount);
+                node.freeUnits = node.manager.getFreeUnits();
+            } finally {
+                node.lock.unlockWrite(stamp);
+            }
+
+            if (localId != -1) {
+                if (i > 0) {
+                    spills.increment();
+                }
+                return localId * nodes.length + node.index;
+            }
+        }
+        // There was no hole that would fit on any node
+        return -1;
+    }
+
+    /**
+     * @return The node the policy picks for a request of the given amount from the calling thread
+     */
+    private int firstNode(int amount) {
+        switch (policy) {
+            case INTERLEAVE:
+                return Math.floorMod(interleaveCursor.getAndIncrement(), nodes.length);
+            case LEAST_LOADED:
+                int best = homeNode.get();
+                for (Node node : nodes) {
+                    if (node.freeUnits > nodes[best].freeUnits) {
+                        best = node.index;
+                    }
+                }
+                return best;
+            default:
+                return homeNode.get();
+        }
+    }
+
+    public void deleteProcess(int processID) throws ProcessNotFoundException {
+        if (!tryDelete(processID)) {
+            throw new ProcessNotFoundException(processID);
+        }
+    }
+
+    @Override
+    public boolean tryDelete(int processID) {
+        if (processID <= 0) {
+            return false;
+        }
+        Node node = nodes[processID % nodes.length];
+        long stamp = node.lock.writeLock();
+        try {
+            boolean deleted = node.manager.tryDelete(processID / nodes.length);
+            node.freeUnits = node.manager.getFreeUnits();
+            return deleted;
+        } finally {
+            node.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Resizes a process on its node (see {@link MemoryManager#tryResize}). A process that doesn't fit on its node anymore isn't moved to another node.
+     *
+     * @return The global base of the process after the resize, or -1 if the process doesn't exist or there is no space for it
+     */
+    public int tryResize(int processID, int newSize) {
+        if (processID <= 0) {
+            return -1;
+        }
+        Node node = nodes[processID % nodes.length];
+        long stamp = node.lock.writeLock();
+        try {
+            int base = node.manager.tryResize(processID / nodes.length, newSize);
+            node.freeUnits = node.manager.getFreeUnits();
+            return base == -1 ? -1 : node.start + base;
+        } finally {
+            node.lock.unlockWrite(stamp);
+        }
+    }
+
+    public int convertAddress(int processID, int virtualAddress) throws ProcessNotFoundException, IllegalAddressException {
+        int physicalAddress = tryConvert(processID, virtualAddress);
+        if (physicalAddress == BulkTranslation.INVALID_ADDRESS) {
+            if (baseOf(processID) == -1) {
+                throw new ProcessNotFoundException(processID);
+            }
+            throw new IllegalAddressException();
+        }
+        return physicalAddress;
+    }
+
+    /**
+     * Translates an address for the calling thread, and accounts the access as local or remote.
+     *
+     * @return The global physical address, or {@link BulkTranslation#INVALID_ADDRESS}
+     */
+    @Override
+    public int tryConvert(int processID, int virtualAddress) {
+        if (processID <= 0) {
+            return BulkTranslation.INVALID_ADDRESS;
+        }
+        Node node = nodes[processID % nodes.length];
+        int physicalAddress;
+        long stamp = node.lock.readLock();
+        try {
+            physicalAddress = node.manager.tryConvert(processID / nodes.length, virtualAddress);
+        } finally {
+            node.lock.unlockRead(stamp);
+        }
+        if (physicalAddress == BulkTranslation.INVALID_ADDRESS) {
+            return physicalAddress;
+        }
+
+        int home = homeNode.get();
+        if (home == node.index) {
+            localAccesses.increment();
+        } else {
+            remoteAccesses.increment();
+        }
+        accessCost.add(distances[home][node.index]);
+        return node.start + physicalAddress;
+    }
+
+    /**
+     * @return The global base of a process, or -1 if it doesn't exist
+     */
+    private int baseOf(int processID) {
+        if (processID <= 0) {
+            return -1;
+        }
+        Node node = nodes[processID % nodes.length];
+        long stamp = node.lock.readLock();
+        try {
+            int base = node.manager.tryConvert(processID / nodes.length, 0);
+            return base == BulkTranslation.INVALID_ADDRESS ? -1 : node.start + base;
+        } finally {
+            node.lock.unlockRead(stamp);
+        }
+    }
+
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    public int getMemSize() {
+        return memSize;
+    }
+
+    public PlacementPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return The node a process is on (whether it exists or not)
+     */
+    public int nodeOf(int processID) {
+        return processID % nodes.length;
+    }
+
+    /**
+     * @return The number of allocations that didn't fit on the node picked by the policy
+     */
+    public long getSpills() {
+        return spills.sum();
+    }
+
+    public long getLocalAccesses() {
+        return localAccesses.sum();
+    }
+
+    public long getRemoteAccesses() {
+        return remoteAccesses.sum();
+    }
+
+    /**
+     * @return The sum of the distances of all the translations
+     */
+    public long getAccessCost() {
+        return accessCost.sum();
+    }
+
+    public long freeUnits() {
+        long free = 0;
+        for (Node node : nodes) {
+            free += node.freeUnits;
+        }
+        return free;
+    }
+
+    /**
+     * @return The external fragmentation of the whole memory: 1 - (largest hole of any node / total free space), or 0 if the memory is full.
+     * A process can't span two nodes, so the free space of the other nodes counts as fragmented.
+     */
+    public double getExternalFragmentation() {
+        long free = 0;
+        int largest = 0;
+        for (Node node : nodes) {
+            long stamp = node.lock.readLock();
+            try {
+                free += node.manager.getFreeUnits();
+                largest = Math.max(largest, node.manager.getLargestHole());
+            } finally {
+                node.lock.unlockRead(stamp);
+            }
+        }
+        return free == 0 ? 0 : 1 - (double) largest / free;
+    }
+
+    /**
+     * Prints the usage of each node, and the accesses.
+     */
+    public void printNodes() {
+        for (Node node : nodes) {
+            long stamp = node.lock.readLock();
+            try {
+                MemoryManager manager = node.manager;
+                System.out.println("------------------------------------------------");
+                System.out.println("- Node " + MemoryManager.blueColor(node.index + "") + ":");
+                System.out.println("  Start: " + MemoryManager.blueColor(node.start + "") + " KB");
+                System.out.println("  Size: " + MemoryManager.blueColor(manager.getMemSize() + "") + " KB");
+                System.out.println("  Used: " + MemoryManager.blueColor(manager.getMemSize() - manager.getFreeUnits() + "") + " KB by "
+                        + MemoryManager.blueColor(manager.getProcessCount() + "") + " processes");
+                System.out.println("  Largest hole: " + MemoryManager.blueColor(manager.getLargestHole() + "") + " KB");
+                System.out.println("  External fragmentation: " + MemoryManager.blueColor(String.format("%.3f", manager.getExternalFragmentation())));
+                System.out.println("------------------------------------------------");
+            } finally {
+                node.lock.unlockRead(stamp);
+            }
+        }
+        long local = getLocalAccesses();
+        long remote = getRemoteAccesses();
+        System.out.println("Placement: " + MemoryManager.blueColor(policy.name().toLowerCase().replace('_', '-')) + ", spills: " + MemoryManager.blueColor(getSpills() + ""));
+        System.out.println("Accesses: " + MemoryManager.blueColor(local + "") + " local, " + MemoryManager.blueColor(remote + "") + " remote (mean distance "
+                + MemoryManager.blueColor(String.format("%.2f", local + remote == 0 ? 0 : (double) getAccessCost() / (local + remote))) + ")");
+        System.out.println("External fragmentation: " + MemoryManager.blueColor(String.format("%.3f", getExternalFragmentation())));
+    }
+}
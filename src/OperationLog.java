@@ -0,0 +1,307 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * An append-only log of the operations that changed a {@link MemoryManager} since its last snapshot (see {@link SnapshotFile}).
+ * Restoring the snapshot and replaying the log rebuilds the exact state, since the strategies that can be snapshotted are deterministic.
+ * <p>
+ * The log starts with the magic bytes "MMUL", a version byte and the ID of the checkpoint it follows. Each record is a kind byte followed by varints:
+ * an allocation and the ID it got, a deletion, a batch of allocations or deletions, a full compaction, the plan of an incremental compaction,
+ * a step of it with its number of moves (so the replay doesn't depend on the pause budget), a change of the auto compaction mode,
+ * a resize and the base it got, a fork or a shared mapping and the ID of the new process, or a copy-on-write fault and the base of the copy.
+ * <p>
+ * The records are buffered, and written when the buffer is full, by {@link #flush()} and by {@link #close()}. A record cut short by a crash is dropped
+ * when the log is replayed.
+ */
+public class OperationLog implements AutoCloseable {
+
+    static final byte[] MAGIC = {'M', 'M', 'U', 'L'};
+    static final byte VERSION = 1;
+
+    private static final int HEADER_SIZE = MAGIC.length + 1 + Long.BYTES;
+
+    private static final byte ALLOCATE = 0;
+    private static final byte DELETE = 1;
+    private static final byte ALLOCATE_BATCH = 2;
+    private static final byte DELETE_BATCH = 3;
+    private static final byte COMPACT = 4;
+    private static final byte PLAN = 5;
+    private static final byte STEP = 6;
+    private static final byte AUTO_COMPACTION = 7;
+    private static final byte RESIZE = 8;
+    private static final byte FORK = 9;
+    private static final byte SHARE = 10;
+    private static final byte COPY = 11;
+
+    private static final CompactionMode[] MODES = CompactionMode.values();
+
+    private final Path file;
+    private final FileChannel channel;
+    private final SnapshotFile.Output out;
+
+    private long records;
+
+    private OperationLog(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+        this.out = new SnapshotFile.Output(channel);
+    }
+
+    /**
+     * Starts a new log after the given checkpoint. An existing file is overwritten.
+     */
+    static OperationLog create(Path file, long checkpointId) throws IOException {
+        OperationLog log = new OperationLog(file, FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        log.out.buffer.put(MAGIC).put(VERSION).putLong(checkpointId);
+        log.out.flush();
+        return log;
+    }
+
+    /**
+     * Reopens a log to append records after its first {@code validLength} bytes (as returned by {@link #replay}): anything after them is cut.
+     */
+    static OperationLog append(Path file, long validLength) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+        channel.truncate(validLength);
+        channel.position(validLength);
+        return new OperationLog(file, channel);
+    }
+
+    /**
+     * Replays a log on a memory restored from the snapshot the log follows.
+     *
+     * @return The length of the log up to its last complete record
+     * @throws IOException If the log doesn't follow the snapshot of the memory, or an operation doesn't give the recorded result
+     */
+    static long replay(Path file, MemoryManager mm) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Operation logs over 2 GB are not supported");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.remaining() < HEADER_SIZE) {
+                throw new IOException("Not an operation log");
+            }
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not an operation log");
+            }
+            if (buffer.get() != VERSION) {
+                throw new IOException("Unsupported operation log version");
+            }
+            if (buffer.getLong() != mm.getCheckpointId()) {
+                throw new IOException("The operation log doesn't follow the snapshot of this memory");
+            }
+
+            long record = 0;
+            int validLength = buffer.position();
+            try {
+                while (buffer.hasRemaining()) {
+                    apply(buffer, mm, record);
+                    validLength = buffer.position();
+                    record++;
+                }
+            } catch (BufferUnderflowException e) {
+                // The last record was cut short: it was never acknowledged, so it's dropped
+            }
+            return validLength;
+        }
+    }
+
+    private static void apply(ByteBuffer buffer, MemoryManager mm, long record) throws IOException {
+        byte kind = buffer.get();
+        switch (kind) {
+            case ALLOCATE -> {
+                int amount = SnapshotFile.getVarint(buffer);
+                int id = SnapshotFile.getVarint(buffer);
+                if (mm.tryAllocate(amount) != id) {
+                    throw new IOException("Record " + record + " of the operation log doesn't replay: the allocation of " + amount + " KB didn't get ID " + id);
+                }
+            }
+            case DELETE -> {
+                int id = SnapshotFile.getVarint(buffer);
+                if (!mm.tryDelete(id)) {
+                    throw new IOException("Record " + record + " of the operation log doesn't replay: there is no process " + id);
+                }
+            }
+            case ALLOCATE_BATCH -> mm.allocateBatch(getVarints(buffer));
+            case DELETE_BATCH -> mm.deleteBatch(getVarints(buffer));
+            case COMPACT -> mm.compact();
+            case PLAN -> mm.startCompaction(SnapshotFile.getVarint(buffer));
+            case STEP -> mm.compactStep(SnapshotFile.getVarint(buffer));
+            case AUTO_COMPACTION -> mm.setAutoCompaction(MODES[buffer.get()]);
+            case RESIZE -> {
+                int id = SnapshotFile.getVarint(buffer);
+                int newSize = SnapshotFile.getVarint(buffer);
+                int base = SnapshotFile.getVarint(buffer);
+                if (mm.tryResize(id, newSize) != base) {
+                    throw new IOException("Record " + record + " of the operation log doesn't replay: process " + id + " wasn't resized to " + newSize + " KB at " + base);
+                }
+            }
+            case FORK, SHARE -> {
+                int id = SnapshotFile.getVarint(buffer);
+                int newId = SnapshotFile.getVarint(buffer);
+                try {
+                    if ((kind == FORK ? mm.fork(id) : mm.attachShared(id)).getId() != newId) {
+                        throw new IOException("Record " + record + " of the operation log doesn't replay: the new mapping of process " + id + " didn't get ID " + newId);
+                    }
+                } catch (ProcessNotFoundException | NoEnoughMemoryException e) {
+                    throw new IOException("Record " + record + " of the operation log doesn't replay: " + e.getMessage(), e);
+                }
+            }
+            case COPY -> {
+                int id = SnapshotFile.getVarint(buffer);
+                int base = SnapshotFile.getVarint(buffer);
+                if (mm.copyOnWrite(id) != base) {
+                    throw new IOException("Record " + record + " of the operation log doesn't replay: the copy of process " + id + " wasn't placed at " + base);
+                }
+            }
+            default -> throw new IOException("Record " + record + " of the operation log has an unknown kind " + kind);
+        }
+    }
+
+    void allocated(int amount, int id) {
+        out(ALLOCATE, 10);
+        putVarint(amount);
+        putVarint(id);
+    }
+
+    void deleted(int id) {
+        out(DELETE, 5);
+        putVarint(id);
+    }
+
+    void allocatedBatch(int[] sizes) {
+        putVarints(ALLOCATE_BATCH, sizes);
+    }
+
+    void deletedBatch(int[] ids) {
+        putVarints(DELETE_BATCH, ids);
+    }
+
+    void compacted() {
+        out(COMPACT, 0);
+    }
+
+    void planned(int amount) {
+        out(PLAN, 5);
+        putVarint(amount);
+    }
+
+    void stepped(int moves) {
+        out(STEP, 5);
+        putVarint(moves);
+    }
+
+    void resized(int id, int newSize, int base) {
+        out(RESIZE, 15);
+        putVarint(id);
+        putVarint(newSize);
+        putVarint(base);
+    }
+
+    void forked(int id, int child) {
+        out(FORK, 10);
+        putVarint(id);
+        putVarint(child);
+    }
+
+    void shared(int id, int sharer) {
+        out(SHARE, 10);
+        putVarint(id);
+        putVarint(sharer);
+    }
+
+    void copied(int id, int base) {
+        out(COPY, 10);
+        putVarint(id);
+        putVarint(base);
+    }
+
+    void autoCompaction(CompactionMode mode) {
+        out(AUTO_COMPACTION, 1);
+        out.buffer.put((byte) mode.ordinal());
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return The number of records appended since the log was opened
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Writes the buffered records, and forces them to the disk.
+     */
+    public void flush() throws IOException {
+        out.flush();
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    /**
+     * Starts a record of the given kind, with room for the given number of bytes after the kind.
+     */
+    private void out(byte kind, int bytes) {
+        ensure(1 + bytes);
+        out.buffer.put(kind);
+        records++;
+    }
+
+    private void putVarints(byte kind, int[] values) {
+        out(kind, 5);
+        putVarint(values.length);
+        for (int value : values) {
+            putVarint(value);
+        }
+    }
+
+    private void putVarint(int value) {
+        try {
+            out.putVarint(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void ensure(int bytes) {
+        try {
+            out.ensure(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int[] getVarints(ByteBuffer buffer) {
+        int count = SnapshotFile.getVarint(buffer);
+        if (count < 0 || count > buffer.remaining()) {
+            // Each value takes at least a byte, so the record was cut short
+            throw new BufferUnderflowException();
+        }
+        int[] values = new int[count];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = SnapshotFile.getVarint(buffer);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * Creates page replacement policies by name.
+ */
+public class PageReplacementPolicies {
+
+    private PageReplacementPolicies() {
+    }
+
+    /**
+     * @param name One of "fifo", "lru", "clock" and "arc"
+     */
+    public static PageReplacementPolicy forName(String name) {
+        return switch (name.toLowerCase()) {
+            case "fifo" -> new FifoPolicy();
+            case "lru" -> new LruPolicy();
+            case "clock" -> new ClockPolicy();
+            case "arc" -> new ArcPolicy();
+            default -> throw new IllegalArgumentException("Unknown page replacement policy " + name);
+        };
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Chooses which resident page to evict when a page fault finds no free frame (in the demand paging mode of {@link PagingUnit}).
+ * <p>
+ * Pages are identified by the frame they're loaded in. The paging unit tells the policy about every load, access and removal,
+ * and asks it for a victim only when all the frames are in use.
+ */
+public interface PageReplacementPolicy {
+
+    /**
+     * @return The name of the policy, used to select it (e.g. "lru")
+     */
+    String name();
+
+    /**
+     * Called once, before any other method.
+     *
+     * @param frameCount The number of frames of the memory
+     */
+    void init(int frameCount);
+
+    /**
+     * A page was loaded in the given frame, after a page fault.
+     *
+     * @param pageKey Identifies the page: (process ID << 32) | virtual page number
+     */
+    void onLoad(int frame, long pageKey);
+
+    /**
+     * The page loaded in the given frame was accessed.
+     */
+    void onAccess(int frame);
+
+    /**
+     * The page loaded in the given frame was dropped without being evicted (its process was deleted).
+     */
+    void onRemove(int frame);
+
+    /**
+     * A process was deleted, after {@link #onRemove} was called for each of its resident pages. Its ID may be given to the next process,
+     * so a policy that remembers pages that are no longer resident must forget those of the process.
+     */
+    default void onUnmapProcess(int processID) {
+    }
+
+    /**
+     * Chooses the frame to evict, and forgets it (as if {@link #onRemove} was called).
+     *
+     * @param incomingPageKey The page that will be loaded in its place
+     */
+    int selectVictim(long incomingPageKey);
+}
@@ -0,0 +1,180 @@
+import java.util.Arrays;
+
+/**
+ * Multi-level page tables, stored in a single int array instead of a graph of objects.
+ * <p>
+ * A virtual page number is split into {@code levels} indexes of {@code bitsPerLevel} bits each (the highest bits index the root table).
+ * Every table has 2^bitsPerLevel entries and is identified by its number: table t occupies entries [t * tableSize, (t + 1) * tableSize) of the array.
+ * An entry of 0 means "not present". In an inner table, a non-zero entry is the number of the next-level table; in a leaf table, it's the frame number + 1
+ * (a negative leaf entry is left to the user of the tables, e.g. to record where a page was swapped out).
+ * Table 0 is never used, so a table number is never 0.
+ */
+public class PageTables {
+
+    private final int levels;
+    private final int bitsPerLevel;
+    private final int tableSize;
+
+    private int[] entries;
+
+    /**
+     * The number of tables the entries array has room for (including the unused table 0)
+     */
+    private int capacity;
+
+    /**
+     * The next table number that was never handed out
+     */
+    private int nextTable = 1;
+
+    /**
+     * The numbers of the tables that were freed, used as a stack
+     */
+    private int[] freeTables = new int[16];
+    private int freeTableCount;
+
+    /**
+     * The number of tables in use
+     */
+    private int liveTables;
+
+    /**
+     * The number of tables visited by the last call to {@link #leaf}
+     */
+    private int lastWalkDepth;
+
+    public PageTables(int levels, int bitsPerLevel) {
+        if (levels <= 0 || bitsPerLevel <= 0 || bitsPerLevel > 20 || (long) levels * bitsPerLevel > 31) {
+            throw new IllegalArgumentException("The page tables must have at least one level, at most 20 bits per level, and at most 31 bits of page number");
+        }
+        this.levels = levels;
+        this.bitsPerLevel = bitsPerLevel;
+        this.tableSize = 1 << bitsPerLevel;
+        capacity = 16;
+        entries = new int[capacity * tableSize];
+    }
+
+    /**
+     * @return The number of virtual pages a single root can map
+     */
+    public long maxPages() {
+        return 1L << (levels * bitsPerLevel);
+    }
+
+    public int levels() {
+        return levels;
+    }
+
+    /**
+     * @return A new, empty root table
+     */
+    public int newRoot() {
+        return newTable();
+    }
+
+    /**
+     * Maps the given virtual page to the given frame, creating the missing inner tables.
+     */
+    public void map(int root, int vpn, int frame) {
+        setLeaf(root, vpn, frame + 1);
+    }
+
+    /**
+     * Sets the raw leaf entry of the given virtual page, creating the missing inner tables.
+     */
+    public void setLeaf(int root, int vpn, int value) {
+        int table = root;
+        for (int level = levels - 1; level > 0; level--) {
+            int slot = table * tableSize + index(vpn, level);
+            if (entries[slot] == 0) {
+                // Not entries[slot] = newTable(): newTable may reallocate the array after the old one was dereferenced
+                int child = newTable();
+                entries[slot] = child;
+            }
+            table = entries[slot];
+        }
+        entries[table * tableSize + index(vpn, 0)] = value;
+    }
+
+    /**
+     * Walks the tables from the given root.
+     *
+     * @return The raw leaf entry of the virtual page (0 if there is none)
+     */
+    public int leaf(int root, int vpn) {
+        int table = root;
+        int depth = 1;
+        for (int level = levels - 1; level > 0; level--) {
+            table = entries[table * tableSize + index(vpn, level)];
+            if (table == 0) {
+                lastWalkDepth = depth;
+                return 0;
+            }
+            depth++;
+        }
+        lastWalkDepth = depth;
+        return entries[table * tableSize + index(vpn, 0)];
+    }
+
+    /**
+     * @return The number of tables visited by the last walk
+     */
+    public int lastWalkDepth() {
+        return lastWalkDepth;
+    }
+
+    /**
+     * Frees the whole tree of tables under the given root (the root included). The mapped frames are not freed.
+     */
+    public void freeTree(int root) {
+        freeTree(root, levels - 1);
+    }
+
+    private void freeTree(int table, int level) {
+        int start = table * tableSize;
+        if (level > 0) {
+            for (int i = 0; i < tableSize; i++) {
+                if (entries[start + i] != 0) {
+                    freeTree(entries[start + i], level - 1);
+                }
+            }
+        }
+        Arrays.fill(entries, start, start + tableSize, 0);
+
+        if (freeTableCount == freeTables.length) {
+            freeTables = Arrays.copyOf(freeTables, 2 * freeTables.length);
+        }
+        freeTables[freeTableCount++] = table;
+        liveTables--;
+    }
+
+    /**
+     * @return The number of tables in use
+     */
+    public int liveTables() {
+        return liveTables;
+    }
+
+    /**
+     * @return The memory used by the tables in use, in bytes (4 bytes per entry)
+     */
+    public long liveBytes() {
+        return (long) liveTables * tableSize * Integer.BYTES;
+    }
+
+    private int newTable() {
+        liveTables++;
+        if (freeTableCount > 0) {
+            return freeTables[--freeTableCount];
+        }
+        if (nextTable == capacity) {
+            capacity *= 2;
+            entries = Arrays.copyOf(entries, Math.multiplyExact(capacity, tableSize));
+        }
+        return nextTable++;
+    }
+
+    private int index(int vpn, int level) {
+        return (vpn >>> (level * bitsPerLevel)) & (tableSize - 1);
+    }
+}
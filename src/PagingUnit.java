@@ -0,0 +1,418 @@
+import java.util.Arrays;
+
+/**
+ * The paging mode of the memory: each process gets a virtual address space split into fixed-size pages, and each page is mapped to any free frame
+ * of the physical memory (so the memory of a process doesn't have to be contiguous).
+ * <p>
+ * Translations go through a set-associative {@link Tlb}, and on a miss through the per-process multi-level {@link PageTables}.
+ * Frames are tracked in a {@link Bitmap} (one bit per frame), and reserved in the shared {@link FreeSpace} so the memory map stays accurate.
+ * <p>
+ * With a {@link SwapArea} and a {@link PageReplacementPolicy}, the paging unit works in demand paging mode: the memory can be overcommitted
+ * (up to the number of frames plus the number of swap slots), pages get a frame only when they're first accessed, and when no frame is free,
+ * the policy picks a page to evict to the swap area.
+ */
+public class PagingUnit {
+
+    public static final int DEFAULT_PAGE_SIZE = 4;
+    public static final int DEFAULT_LEVELS = 2;
+    public static final int DEFAULT_BITS_PER_LEVEL = 10;
+    public static final int DEFAULT_TLB_SETS = 16;
+    public static final int DEFAULT_TLB_WAYS = 4;
+
+    /**
+     * The size of a page (and of a frame) in KB
+     */
+    private final int pageSize;
+    private final int pageShift;
+
+    private final PageTables pageTables;
+
+    private final Tlb tlb;
+
+    // The swap area and the replacement policy of the demand paging mode (both null when every page is mapped as soon as its process is created)
+    private final SwapArea swap;
+    private final PageReplacementPolicy policy;
+
+    private FreeSpace freeSpace;
+
+    /**
+     * One bit per frame: 0 if the frame is free, 1 if it's mapped
+     */
+    private Bitmap frames;
+    private int frameCount;
+    private int freeFrames;
+
+    /**
+     * The ID of the process each frame is mapped for (0 if the frame is free)
+     */
+    private int[] frameOwners;
+
+    /**
+     * The virtual page number mapped in each frame
+     */
+    private int[] frameVpns;
+
+    /**
+     * The total number of pages of the live processes (resident or not)
+     */
+    private long committedPages;
+
+    /**
+     * The frame search starts here, right after the last allocated frame
+     */
+    private int frameCursor;
+
+    /**
+     * The root page table of each process, indexed by process ID (0 if the process has no page table)
+     */
+    private int[] roots = new int[16];
+
+    private long translations;
+    private long walks;
+    private long walkDepthTotal;
+    private long pageFaults;
+    private long evictions;
+
+    public PagingUnit() {
+        this(DEFAULT_PAGE_SIZE, DEFAULT_LEVELS, DEFAULT_BITS_PER_LEVEL, DEFAULT_TLB_SETS, DEFAULT_TLB_WAYS);
+    }
+
+    /**
+     * @param pageSize     The size of a page in KB (a power of two)
+     * @param levels       The number of levels of the page tables
+     * @param bitsPerLevel The number of bits of the virtual page number used at each level
+     * @param tlbSets      The number of sets of the TLB (a power of two)
+     * @param tlbWays      The number of entries in each set of the TLB
+     */
+    public PagingUnit(int pageSize, int levels, int bitsPerLevel, int tlbSets, int tlbWays) {
+        this(pageSize, levels, bitsPerLevel, tlbSets, tlbWays, null, null);
+    }
+
+    /**
+     * Creates a paging unit in demand paging mode.
+     *
+     * @param pageSize     The size of a page in KB (a power of two, the same as the page size of the swap area)
+     * @param levels       The number of levels of the page tables
+     * @param bitsPerLevel The number of bits of the virtual page number used at each level
+     * @param tlbSets      The number of sets of the TLB (a power of two)
+     * @param tlbWays      The number of entries in each set of the TLB
+     * @param swap         The swap area backing the pages that are not resident
+     * @param policy       The page replacement policy. It must be a new instance.
+     */
+    public PagingUnit(int pageSize, int levels, int bitsPerLevel, int tlbSets, int tlbWays, SwapArea swap, PageReplacementPolicy policy) {
+        if ((swap == null) != (policy == null)) {
+            throw new IllegalArgumentException("Demand paging needs both a swap area and a page replacement policy");
+        }
+        if (pageSize <= 0 || Integer.bitCount(pageSize) != 1) {
+            throw new IllegalArgumentException("The page size must be a power of two");
+        }
+        this.pageSize = pageSize;
+        this.pageShift = Integer.numberOfTrailingZeros(pageSize);
+        this.pageTables = new PageTables(levels, bitsPerLevel);
+        this.tlb = new Tlb(tlbSets, tlbWays);
+        this.swap = swap;
+        this.policy = policy;
+    }
+
+    /**
+     * Attaches the paging unit to the free space of a memory. The frames are the whole pages of the memory (a trailing partial page is never used).
+     */
+    public void init(FreeSpace freeSpace) {
+        if (freeSpace.size() < pageSize) {
+            throw new IllegalArgumentException("The memory must be at least one page large");
+        }
+        this.freeSpace = freeSpace;
+        frameCount = freeSpace.size() / pageSize;
+        frames = new Bitmap(frameCount);
+        freeFrames = frameCount;
+        frameOwners = new int[frameCount];
+        frameVpns = new int[frameCount];
+        if (policy != null) {
+            policy.init(frameCount);
+        }
+    }
+
+    /**
+     * @return Whether pages are loaded on demand (and may be swapped out)
+     */
+    public boolean isDemandPaging() {
+        return policy != null;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return The number of pages needed for the given size in KB
+     */
+    public int pagesFor(int size) {
+        return (int) (((long) size + pageSize - 1) >>> pageShift);
+    }
+
+    /**
+     * @return Whether a process of the given size can be mapped right now
+     */
+    public boolean canMap(int size) {
+        int pages = pagesFor(size);
+        if (pages > pageTables.maxPages()) {
+            return false;
+        }
+        if (isDemandPaging()) {
+            // Overcommit: every page must fit either in a frame or in the swap area
+            return committedPages + pages <= (long) frameCount + swap.getSlotCount();
+        }
+        return pages <= freeFrames;
+    }
+
+    /**
+     * Creates the page table of a process, and maps each of its pages to a free frame. {@link #canMap} must have been checked first.
+     * In demand paging mode, no page is mapped until it's accessed.
+     *
+     * @return The physical address of the first page of the process, or -1 in demand paging mode
+     */
+    public int mapProcess(int processID, int size) {
+        if (processID >= roots.length) {
+            roots = Arrays.copyOf(roots, Math.max(2 * roots.length, processID + 1));
+        }
+        int root = pageTables.newRoot();
+        roots[processID] = root;
+
+        int pages = pagesFor(size);
+        committedPages += pages;
+        if (isDemandPaging()) {
+            return -1;
+        }
+
+        int firstFrame = -1;
+        for (int vpn = 0; vpn < pages; vpn++) {
+            int frame = allocFrame(processID, vpn);
+            pageTables.map(root, vpn, frame);
+            if (vpn == 0) {
+                firstFrame = frame;
+            }
+        }
+        return firstFrame << pageShift;
+    }
+
+    /**
+     * Frees the frames and the page table of a process, and drops its cached translations.
+     */
+    public void unmapProcess(int processID, int size) {
+        int root = roots[processID];
+        int pages = pagesFor(size);
+        for (int vpn = 0; vpn < pages; vpn++) {
+            int entry = pageTables.leaf(root, vpn);
+            if (entry > 0) {
+                if (policy != null) {
+                    policy.onRemove(entry - 1);
+                }
+                freeFrame(entry - 1);
+            } else if (entry < 0) {
+                // The page is in the swap area
+                swap.freeSlot(-entry - 1);
+            }
+        }
+        if (policy != null) {
+            policy.onUnmapProcess(processID);
+        }
+        committedPages -= pages;
+        pageTables.freeTree(root);
+        roots[processID] = 0;
+        tlb.flush(processID);
+    }
+
+    /**
+     * Translates a virtual address of a process, which must be inside the address space of the process.
+     *
+     * @return The physical address
+     */
+    public int translate(int processID, int virtualAddress) {
+        translations++;
+        int vpn = virtualAddress >>> pageShift;
+        int frame = tlb.lookup(processID, vpn);
+        if (frame == -1) {
+            int entry = pageTables.leaf(roots[processID], vpn);
+            walks++;
+            walkDepthTotal += pageTables.lastWalkDepth();
+            if (entry > 0) {
+                frame = entry - 1;
+            } else {
+                // A page fault: the page was never accessed (0) or is in the swap area (negative)
+                frame = pageFault(processID, vpn, entry);
+                tlb.insert(processID, vpn, frame);
+                return (frame << pageShift) | (virtualAddress & (pageSize - 1));
+            }
+            tlb.insert(processID, vpn, frame);
+        }
+        if (policy != null) {
+            policy.onAccess(frame);
+        }
+        return (frame << pageShift) | (virtualAddress & (pageSize - 1));
+    }
+
+    /**
+     * Loads a page in a frame, evicting another page to the swap area if no frame is free.
+     *
+     * @param entry The leaf entry of the page: 0 if it was never accessed, or -(swap slot + 1) if it's in the swap area
+     * @return The frame the page was loaded in
+     */
+    private int pageFault(int processID, int vpn, int entry) {
+        pageFaults++;
+        if (entry < 0) {
+            // Read the page back first, so its slot can be reused by the eviction
+            swap.readPage(-entry - 1, processID, vpn);
+        }
+
+        long pageKey = ((long) processID << 32) | vpn;
+        if (freeFrames == 0) {
+            evict(policy.selectVictim(pageKey));
+        }
+
+        int frame = allocFrame(processID, vpn);
+        pageTables.map(roots[processID], vpn, frame);
+        policy.onLoad(frame, pageKey);
+        return frame;
+    }
+
+    /**
+     * Writes the page of the given frame to the swap area, and frees the frame.
+     */
+    private void evict(int frame) {
+        int owner = frameOwners[frame];
+        int vpn = frameVpns[frame];
+        int slot = swap.writePage(owner, vpn);
+        pageTables.setLeaf(roots[owner], vpn, -(slot + 1));
+        tlb.invalidate(owner, vpn);
+        freeFrame(frame);
+        evictions++;
+    }
+
+    private int allocFrame(int processID, int vpn) {
+        int frame = frames.nextClear(frameCursor);
+        if (frame == frameCount) {
+            frame = frames.nextClear(0);
+        }
+        frames.set(frame, frame + 1);
+        frameOwners[frame] = processID;
+        frameVpns[frame] = vpn;
+        freeFrames--;
+        freeSpace.reserve(frame << pageShift, pageSize);
+        frameCursor = frame + 1 == frameCount ? 0 : frame + 1;
+        return frame;
+    }
+
+    private void freeFrame(int frame) {
+        frames.clear(frame, frame + 1);
+        frameOwners[frame] = 0;
+        freeFrames++;
+        freeSpace.release(frame << pageShift, pageSize);
+    }
+
+    public long getTlbHits() {
+        return tlb.getHits();
+    }
+
+    public long getTlbMisses() {
+        return tlb.getMisses();
+    }
+
+    /**
+     * @return The number of page walks (one per TLB miss)
+     */
+    public long getWalks() {
+        return walks;
+    }
+
+    /**
+     * @return The total number of page tables visited by all the walks
+     */
+    public long getWalkDepthTotal() {
+        return walkDepthTotal;
+    }
+
+    /**
+     * @return The memory used by the page tables, in bytes
+     */
+    public long getPageTableBytes() {
+        return pageTables.liveBytes();
+    }
+
+    public int getFreeFrames() {
+        return freeFrames;
+    }
+
+    public long getTranslations() {
+        return translations;
+    }
+
+    public long getPageFaults() {
+        return pageFaults;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return The number of bytes written to and read from the swap area, or 0 if the paging unit is not in demand paging mode
+     */
+    public long getSwapIoBytes() {
+        return swap == null ? 0 : swap.getBytesWritten() + swap.getBytesRead();
+    }
+
+    public void printStats() {
+        long lookups = tlb.getHits() + tlb.getMisses();
+        System.out.println("Page size: " + MemoryManager.blueColor(pageSize + "") + " KB, " + MemoryManager.blueColor(pageTables.levels() + "") + " levels");
+        System.out.println("Frames: " + MemoryManager.blueColor(frameCount + "") + " (" + MemoryManager.blueColor(freeFrames + "") + " free)");
+        System.out.println("TLB: " + MemoryManager.blueColor(tlb.getSets() + "") + " sets x " + MemoryManager.blueColor(tlb.getWays() + "") + " ways");
+        System.out.println("TLB hits: " + MemoryManager.blueColor(tlb.getHits() + ""));
+        System.out.println("TLB misses: " + MemoryManager.blueColor(tlb.getMisses() + ""));
+        System.out.println("TLB hit rate: " + MemoryManager.blueColor(String.format("%.3f", lookups == 0 ? 0.0 : (double) tlb.getHits() / lookups)));
+        System.out.println("Page walks: " + MemoryManager.blueColor(walks + ""));
+        System.out.println("Average walk depth: " + MemoryManager.blueColor(String.format("%.2f", walks == 0 ? 0.0 : (double) walkDepthTotal / walks)));
+        System.out.println("Page tables: " + MemoryManager.blueColor(pageTables.liveTables() + "") + " (" + MemoryManager.blueColor(pageTables.liveBytes() + "") + " bytes)");
+
+        if (isDemandPaging()) {
+            System.out.println("Replacement policy: " + MemoryManager.blueColor(policy.name()));
+            System.out.println("Committed pages: " + MemoryManager.blueColor(committedPages + "") + " (" + MemoryManager.blueColor(swap.getFreeSlots() + "") + " free swap slots)");
+            System.out.println("Page faults: " + MemoryManager.blueColor(pageFaults + "") + " (rate " + MemoryManager.blueColor(String.format("%.4f", rate(pageFaults))) + ")");
+            System.out.println("Evictions: " + MemoryManager.blueColor(evictions + "") + " (rate " + MemoryManager.blueColor(String.format("%.4f", rate(evictions))) + ")");
+            System.out.println("Swap I/O: " + MemoryManager.blueColor(swap.getBytesWritten() + "") + " bytes written, " + MemoryManager.blueColor(swap.getBytesRead() + "") + " bytes read");
+        }
+    }
+
+    /**
+     * @return The given count per translation
+     */
+    private double rate(long count) {
+        return translations == 0 ? 0.0 : (double) count / translations;
+    }
+
+    /**
+     * Prints the frames of the memory, grouping the consecutive frames that belong to the same process (or that are free).
+     */
+    public void printMemory() {
+        System.out.println("Memory Map (" + pageSize + " KB frames):");
+        int start = 0;
+        while (start < frameCount) {
+            int owner = frameOwners[start];
+            int end = start + 1;
+            while (end < frameCount && frameOwners[end] == owner) {
+                end++;
+            }
+
+            System.out.println("------------------------------------------------");
+            if (owner == 0) {
+                System.out.println("- Free frames:");
+            } else {
+                System.out.println("- Frames of process " + MemoryManager.blueColor(owner + "") + ":");
+            }
+            System.out.println("  Frames: " + MemoryManager.blueColor(start + "") + " - " + MemoryManager.blueColor(end - 1 + ""));
+            System.out.println("  Start: " + MemoryManager.blueColor((start << pageShift) + "") + " KB");
+            System.out.println("  End: " + MemoryManager.blueColor(((end << pageShift) - 1) + "") + " KB");
+            System.out.println("------------------------------------------------");
+            start = end;
+        }
+    }
+}
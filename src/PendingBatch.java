@@ -0,0 +1,78 @@
+import java.util.Arrays;
+
+/**
+ * The requests of a batch that are not placed yet, for {@link FreeSpace#packBatch}.
+ * <p>
+ * The requests are keys (amount << 32 | index) in a sorted long array, so they are ordered by amount, then by index. A placed request is removed by
+ * linking its position to the one before it, in a union-find forest with path compression: the largest request that fits a hole is found by a
+ * binary search and a walk to the root, in amortized near-constant time, without boxing any key.
+ */
+public class PendingBatch {
+
+    private final long[] keys;
+
+    /**
+     * The forest over the positions 1..n (position i holds keys[i - 1]): a position that is still pending is its own root, a removed position
+     * points to a lower one. Position 0 is a sentinel root, meaning "none".
+     */
+    private final int[] parent;
+
+    private int remaining;
+
+    public PendingBatch(int[] amounts) {
+        keys = new long[amounts.length];
+        for (int i = 0; i < amounts.length; i++) {
+            keys[i] = ((long) amounts[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+        parent = new int[amounts.length + 1];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        remaining = amounts.length;
+    }
+
+    public boolean isEmpty() {
+        return remaining == 0;
+    }
+
+    /**
+     * Removes the pending request with the largest amount that is at most {@code maxAmount} (the one with the largest index if there are several).
+     *
+     * @return Its key (amount << 32 | index), or -1 if no pending request fits
+     */
+    public long pollFloor(int maxAmount) {
+        // The number of keys <= (maxAmount << 32 | 0xFFFFFFFF) is the position of the last one
+        long bound = ((long) maxAmount << 32) | 0xFFFFFFFFL;
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] <= bound) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int position = find(low);
+        if (position == 0) {
+            return -1;
+        }
+        parent[position] = position - 1;
+        remaining--;
+        return keys[position - 1];
+    }
+
+    private int find(int position) {
+        int root = position;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        while (parent[position] != root) {
+            int next = parent[position];
+            parent[position] = root;
+            position = next;
+        }
+        return root;
+    }
+}
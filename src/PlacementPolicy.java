@@ -0,0 +1,27 @@
+import java.util.Locale;
+
+/**
+ * How {@link NumaMemoryManager} picks the node of a new process. A request that doesn't fit in the picked node spills over to the other nodes,
+ * nearest first.
+ */
+public enum PlacementPolicy {
+    /**
+     * The node of the requesting thread
+     */
+    LOCAL_FIRST,
+    /**
+     * The nodes in turn, one request each
+     */
+    INTERLEAVE,
+    /**
+     * The node with the most free space
+     */
+    LEAST_LOADED;
+
+    /**
+     * @param name e.g. "local-first" or "interleave"
+     */
+    public static PlacementPolicy forName(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
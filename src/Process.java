@@ -1,13 +1,27 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class Process {
 
-    public static int count = 1;
+    /**
+     * The next process ID. It's atomic, so processes can be created from several threads (see {@link ConcurrentMemoryManager}).
+     */
+    public static final AtomicInteger count = new AtomicInteger(1);
 
     private int id;
     private int base;
     private int limit;
 
     public Process(int base, int limit) {
-        this.id = count++;
+        this.id = count.getAndIncrement();
+        this.base = base;
+        this.limit = limit;
+    }
+
+    /**
+     * Creates a process with an ID given by a process table (see {@link ProcessTable}).
+     */
+    public Process(int id, int base, int limit) {
+        this.id = id;
         this.base = base;
         this.limit = limit;
     }
@@ -0,0 +1,432 @@
+import java.util.Arrays;
+
+/**
+ * The process table of a {@link MemoryManager}, stored as parallel primitive arrays indexed by process ID (a struct-of-arrays layout):
+ * a lookup is two array reads, with no boxing and no pointer chasing.
+ * <p>
+ * IDs are dense: a new process gets the most recently freed ID if there is one, and the next unused ID otherwise, so the arrays stay as small as
+ * the largest number of processes alive at once. A live process has a positive limit; a limit of 0 marks a free ID.
+ * <p>
+ * The IDs ordered by base (for range queries, printing the memory map, and compaction) are kept in a separate index, a {@link SortedLongSet} of
+ * (base + 1) << 32 | ID keys that is updated with each change of the table, in O(log n) plus a shift of at most a block. Each process costs about
+ * 19 bytes: its base, its limit and its key in the index (with the slack of the blocks).
+ * <p>
+ * Several processes may map the same segment (the same physical range): they have the same base and limit, and are linked in a circular list,
+ * so moving one of them moves them all. The index then holds one ID per segment. A segment is either shared (a write by any of its processes is
+ * seen by all of them) or copy-on-write (a process that writes it gets its own copy first). The lists are only allocated when a segment is first
+ * mapped twice, and cost 9 more bytes per process.
+ */
+public class ProcessTable {
+
+    private int[] bases = new int[64];
+    private int[] limits = new int[64];
+
+    /**
+     * The next ID that was never handed out (ID 0 is never used)
+     */
+    private int nextId = 1;
+
+    /**
+     * The freed IDs, used as a stack
+     */
+    private int[] freeIds = new int[16];
+    private int freeIdCount;
+
+    private int size;
+
+    /**
+     * The processes mapping the same segment, in a circular list (a process that maps its segment alone is linked to itself), and whether each
+     * process maps its segment as shared rather than copy-on-write. Null until a segment is mapped twice.
+     */
+    private int[] nextSharer;
+    private int[] prevSharer;
+    private boolean[] sharedFlags;
+
+    /**
+     * The number of mappings beyond the first of each segment, and their total size
+     */
+    private int extraMappings;
+    private long sharedUnits;
+
+    /**
+     * One key per segment: (base + 1) << 32 | ID, for the lowest ID of the processes that map it. The bases are non-negative except the -1 of a process
+     * with no frame in demand paging mode, which the offset keeps in order.
+     */
+    private SortedLongSet byBase = new SortedLongSet();
+
+    public ProcessTable() {
+    }
+
+    /**
+     * Restores a table saved with {@link #idBound()}, {@link #freeIds()} and the bases and limits of the IDs below the bound.
+     *
+     * @param bases   The base of each ID below the bound (index 0 is unused)
+     * @param limits  The limit of each ID below the bound, 0 for a free ID
+     * @param freeIds The freed IDs, in the order they were freed
+     */
+    public ProcessTable(int[] bases, int[] limits, int idBound, int[] freeIds) {
+        int capacity = Math.max(64, Integer.highestOneBit(idBound) << 1);
+        this.bases = Arrays.copyOf(bases, capacity);
+        this.limits = Arrays.copyOf(limits, capacity);
+        this.nextId = idBound;
+        this.freeIds = Arrays.copyOf(freeIds, Math.max(16, freeIds.length));
+        this.freeIdCount = freeIds.length;
+        this.size = idBound - 1 - freeIds.length;
+        long[] keys = new long[size];
+        int count = 0;
+        for (int id = 1; id < idBound; id++) {
+            if (limits[id] != 0) {
+                keys[count++] = key(id);
+            }
+        }
+        Arrays.sort(keys);
+        this.byBase = new SortedLongSet(keys, count);
+    }
+
+    /**
+     * Adds a process.
+     *
+     * @return Its ID
+     */
+    public int add(int base, int limit) {
+        int id = newId(base, limit);
+        byBase.add(key(id));
+        return id;
+    }
+
+    /**
+     * Hands out an ID for a process, without adding it to the index.
+     */
+    private int newId(int base, int limit) {
+        int id;
+        if (freeIdCount > 0) {
+            id = freeIds[--freeIdCount];
+        } else {
+            id = nextId++;
+            if (id == bases.length) {
+                bases = Arrays.copyOf(bases, 2 * bases.length);
+                limits = Arrays.copyOf(limits, 2 * limits.length);
+                if (nextSharer != null) {
+                    growSharers();
+                }
+            }
+        }
+        bases[id] = base;
+        limits[id] = limit;
+        size++;
+        return id;
+    }
+
+    /**
+     * Removes a process, and frees its ID.
+     */
+    public void remove(int id) {
+        if (nextSharer != null && nextSharer[id] != id) {
+            handOver(id);
+            unlink(id);
+        } else {
+            byBase.remove(key(id));
+        }
+        if (sharedFlags != null) {
+            sharedFlags[id] = false;
+        }
+        limits[id] = 0;
+        if (freeIdCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, 2 * freeIds.length);
+        }
+        freeIds[freeIdCount++] = id;
+        size--;
+    }
+
+    public boolean contains(int id) {
+        return id > 0 && id < nextId && limits[id] != 0;
+    }
+
+    /**
+     * @return The base of a live process
+     */
+    public int base(int id) {
+        return bases[id];
+    }
+
+    /**
+     * @return The limit of a live process
+     */
+    public int limit(int id) {
+        return limits[id];
+    }
+
+    /**
+     * Moves a live process, with all the processes that map its segment. If the move doesn't change the order of the segments by base (as with
+     * compaction, which slides them down in order), the key of the segment is replaced in place in the index.
+     */
+    public void setBase(int id, int base) {
+        int indexed = indexedSharer(id);
+        long oldKey = key(indexed);
+        bases[id] = base;
+        if (nextSharer != null) {
+            // The whole segment moves
+            for (int sharer = nextSharer[id]; sharer != id; sharer = nextSharer[sharer]) {
+                bases[sharer] = base;
+            }
+        }
+        byBase.replace(oldKey, key(indexed));
+    }
+
+    public void setLimit(int id, int limit) {
+        limits[id] = limit;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of distinct segments: the processes, counting the ones that map the same segment once
+     */
+    public int segmentCount() {
+        return size - extraMappings;
+    }
+
+    /**
+     * Adds a process that maps the same segment as a live process, with the same mode (shared or copy-on-write).
+     *
+     * @return Its ID
+     */
+    public int addSharer(int id) {
+        ensureSharers();
+        int indexed = indexedSharer(id);
+        int sharer = newId(bases[id], limits[id]);
+        int next = nextSharer[id];
+        nextSharer[id] = sharer;
+        prevSharer[sharer] = id;
+        nextSharer[sharer] = next;
+        prevSharer[next] = sharer;
+        sharedFlags[sharer] = sharedFlags[id];
+        // A freed ID may be lower than the ones of the segment
+        if (sharer < indexed) {
+            byBase.replace(key(indexed), key(sharer));
+        }
+        extraMappings++;
+        sharedUnits += limits[id];
+        return sharer;
+    }
+
+    /**
+     * Makes the segment of a live process shared: a write by any of its processes is seen by all of them, and the processes added to it later
+     * share it too. It must not be mapped copy-on-write by other processes.
+     */
+    public void markShared(int id) {
+        ensureSharers();
+        sharedFlags[id] = true;
+    }
+
+    /**
+     * Gives a process its own copy of its segment, at the given base.
+     */
+    public void detach(int id, int base) {
+        handOver(id);
+        unlink(id);
+        bases[id] = base;
+        byBase.add(key(id));
+    }
+
+    /**
+     * @return Whether other processes map the same segment as a live process
+     */
+    public boolean hasSharers(int id) {
+        return nextSharer != null && nextSharer[id] != id;
+    }
+
+    /**
+     * @return Whether a live process maps its segment as shared (even if no other process maps it now)
+     */
+    public boolean isShared(int id) {
+        return sharedFlags != null && sharedFlags[id];
+    }
+
+    /**
+     * @return Whether a live process must copy its segment before writing it: other processes map it, copy-on-write
+     */
+    public boolean isCopyOnWrite(int id) {
+        return hasSharers(id) && !sharedFlags[id];
+    }
+
+    /**
+     * @return The IDs of the processes that map the same segment as a live process, starting with it
+     */
+    public int[] sharers(int id) {
+        int count = 1;
+        if (nextSharer != null) {
+            for (int sharer = nextSharer[id]; sharer != id; sharer = nextSharer[sharer]) {
+                count++;
+            }
+        }
+        int[] sharers = new int[count];
+        sharers[0] = id;
+        for (int i = 1; i < count; i++) {
+            sharers[i] = nextSharer[sharers[i - 1]];
+        }
+        return sharers;
+    }
+
+    /**
+     * @return The number of mappings beyond the first of each segment
+     */
+    public int extraMappings() {
+        return extraMappings;
+    }
+
+    /**
+     * @return The total size of the mappings beyond the first of each segment: the memory that copying each segment for each of its processes would take
+     */
+    public long sharedUnits() {
+        return sharedUnits;
+    }
+
+    /**
+     * @return Whether any segment is mapped twice, or marked shared
+     */
+    public boolean hasSharing() {
+        if (nextSharer == null) {
+            return false;
+        }
+        if (extraMappings > 0) {
+            return true;
+        }
+        for (int id = 1; id < nextId; id++) {
+            if (limits[id] != 0 && sharedFlags[id]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The process that stands for the segment of a live process in the index: the lowest ID of the processes that map it
+     */
+    private int indexedSharer(int id) {
+        int lowest = id;
+        if (nextSharer != null) {
+            for (int sharer = nextSharer[id]; sharer != id; sharer = nextSharer[sharer]) {
+                lowest = Math.min(lowest, sharer);
+            }
+        }
+        return lowest;
+    }
+
+    /**
+     * Before a process leaves a segment that other processes still map: if it stood for the segment in the index, the lowest of the others does now.
+     */
+    private void handOver(int id) {
+        if (indexedSharer(id) == id) {
+            int lowest = Integer.MAX_VALUE;
+            for (int sharer = nextSharer[id]; sharer != id; sharer = nextSharer[sharer]) {
+                lowest = Math.min(lowest, sharer);
+            }
+            byBase.replace(key(id), key(lowest));
+        }
+    }
+
+    private long key(int id) {
+        return ((bases[id] + 1L) << 32) | id;
+    }
+
+    private void unlink(int id) {
+        int next = nextSharer[id];
+        int prev = prevSharer[id];
+        nextSharer[prev] = next;
+        prevSharer[next] = prev;
+        nextSharer[id] = id;
+        prevSharer[id] = id;
+        extraMappings--;
+        sharedUnits -= limits[id];
+    }
+
+    private void ensureSharers() {
+        if (nextSharer == null) {
+            nextSharer = new int[0];
+            prevSharer = new int[0];
+            sharedFlags = new boolean[0];
+            growSharers();
+        }
+    }
+
+    /**
+     * Grows the lists of sharers to the capacity of the table. The new IDs are linked to themselves.
+     */
+    private void growSharers() {
+        int old = nextSharer.length;
+        nextSharer = Arrays.copyOf(nextSharer, bases.length);
+        prevSharer = Arrays.copyOf(prevSharer, bases.length);
+        sharedFlags = Arrays.copyOf(sharedFlags, bases.length);
+        for (int id = old; id < bases.length; id++) {
+            nextSharer[id] = id;
+            prevSharer[id] = id;
+        }
+    }
+
+    /**
+     * @return The next ID that was never handed out: every ID, live or free, is below it
+     */
+    public int idBound() {
+        return nextId;
+    }
+
+    /**
+     * @return A copy of the freed IDs, in the order they were freed (the last one is handed out first)
+     */
+    public int[] freeIds() {
+        return Arrays.copyOf(freeIds, freeIdCount);
+    }
+
+    /**
+     * Translates the first {@code count} addresses, each of the process at the same index in {@code processIDs} (see {@link BulkTranslation}).
+     *
+     * @return The number of invalid addresses
+     */
+    public int translate(int[] processIDs, int[] virtualAddresses, int[] physicalOut, int count) {
+        return BulkTranslation.translate(bases, limits, nextId, processIDs, virtualAddresses, physicalOut, count);
+    }
+
+    /**
+     * Finds the first segment that ends after the given address: the last one that starts at or before it, if it covers the address, and the next
+     * one otherwise (the segments of a contiguous memory don't overlap, so their ends are in the same order as their bases).
+     *
+     * @return A cursor on its entry in the by-base index, or -1 if there is none. It's only valid until the table changes.
+     */
+    public long firstEndingAfter(int address) {
+        long cursor = byBase.floor(((address + 1L) << 32) | 0xFFFFFFFFL);
+        if (cursor == -1) {
+            return byBase.first();
+        }
+        int id = idAt(cursor);
+        return bases[id] + limits[id] > address ? cursor : byBase.next(cursor);
+    }
+
+    /**
+     * @return A cursor on the next segment by base, or -1 if the segment of the given cursor is the last one
+     */
+    public long nextByBase(long cursor) {
+        return byBase.next(cursor);
+    }
+
+    /**
+     * @return The ID that stands for the segment of a cursor on the by-base index
+     */
+    public int idAt(long cursor) {
+        return (int) byBase.keyAt(cursor);
+    }
+
+    /**
+     * @return The live IDs sorted by base, one ID per segment ({@link #segmentCount()} of them), in a new array
+     */
+    public int[] idsByBase() {
+        long[] keys = byBase.toArray();
+        int[] ids = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            ids[i] = (int) keys[i];
+        }
+        return ids;
+    }
+}
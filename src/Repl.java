@@ -1,16 +1,46 @@
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Scanner;
 
 enum Command {
     EXIT,
     CREATE,
     DELETE,
+    CREATE_BATCH,
+    DELETE_BATCH,
     CONVERT,
     PRINT_MEMORY,
+    MEMORY_SUMMARY,
+    OCCUPANCY_BAR,
+    FIND_BLOCKS,
+    FIND_HOLES,
+    FRAGMENTATION,
+    COMPACT,
+    COMPACT_STEP,
+    AUTO_COMPACTION,
+    PAGING_STATS,
+    METRICS,
+    RESIZE,
+    FORK,
+    SHARE,
+    WRITE,
+    SAVE_SNAPSHOT,
+    LOAD_SNAPSHOT,
     UNKNOWN
 }
 
 public class Repl {
 
+    /**
+     * The number of entries (blocks, holes and reserved runs) that "pm" prints at once
+     */
+    public static final int PAGE_SIZE = 32;
+
+    /**
+     * The number of blocks or holes that "fb" and "fh" print at once
+     */
+    public static final int MAX_RESULTS = 100;
+
     public Scanner sc;
     public MemoryManager memoryManager;
 
@@ -23,69 +53,293 @@ public class Repl {
         return switch (input) {
             case "cr" -> Command.CREATE;
             case "dl" -> Command.DELETE;
+            case "cb" -> Command.CREATE_BATCH;
+            case "db" -> Command.DELETE_BATCH;
+            case "rs" -> Command.RESIZE;
+            case "fk" -> Command.FORK;
+            case "sh" -> Command.SHARE;
             case "cv" -> Command.CONVERT;
+            case "wr" -> Command.WRITE;
             case "pm" -> Command.PRINT_MEMORY;
+            case "ms" -> Command.MEMORY_SUMMARY;
+            case "ob" -> Command.OCCUPANCY_BAR;
+            case "fb" -> Command.FIND_BLOCKS;
+            case "fh" -> Command.FIND_HOLES;
+            case "fr" -> Command.FRAGMENTATION;
+            case "cp" -> Command.COMPACT;
+            case "cs" -> Command.COMPACT_STEP;
+            case "ac" -> Command.AUTO_COMPACTION;
+            case "ps" -> Command.PAGING_STATS;
+            case "mt" -> Command.METRICS;
+            case "sv" -> Command.SAVE_SNAPSHOT;
+            case "ld" -> Command.LOAD_SNAPSHOT;
             case "exit" -> Command.EXIT;
             default -> Command.UNKNOWN;
         };
     }
 
+    /**
+     * Runs the commands until {@code exit} or the end of the input.
+     */
     public void start() {
-        while (true) {
+        System.out.print("> ");
+        while (sc.hasNextLine()) {
+            execute(sc.nextLine());
             System.out.print("> ");
-            String input = sc.nextLine().toLowerCase();
-            String[] parts = input.split(" ");
-            Command command = parseCommand(parts[0]);
-            int id;
-
-            try {
-                switch (command) {
-                    case CREATE:
-                        if (parts.length != 2) {
-                            throw new Exception("Expected 1 argument, got " + (parts.length - 1));
-                        }
-                        int amount = Integer.parseInt(parts[1]);
-                        Process createdProcess = memoryManager.allocateMemory(amount);
+        }
+        System.out.println();
+    }
 
-                        System.out.println("Created process ID: " + createdProcess.getId());
-                        System.out.println("Base: " + createdProcess.getBase());
-                        System.out.println("Limit: " + createdProcess.getLimit());
-                        break;
+    /**
+     * Runs one command line, and prints its result, or its error.
+     */
+    public void execute(String line) {
+        String input = line.toLowerCase();
+        String[] parts = input.split(" ");
+        Command command = parseCommand(parts[0]);
+        int id;
+
+        try {
+            switch (command) {
+                case CREATE:
+                    if (parts.length != 2) {
+                        throw new Exception("Expected 1 argument, got " + (parts.length - 1));
+                    }
+                    int amount = Integer.parseInt(parts[1]);
+                    Process createdProcess = memoryManager.allocateMemory(amount);
+
+                    System.out.println("Created process ID: " + createdProcess.getId());
+                    System.out.println("Base: " + createdProcess.getBase());
+                    System.out.println("Limit: " + createdProcess.getLimit());
+                    break;
 
-                    case DELETE:
-                        if (parts.length != 2) {
-                            throw new Exception("Expected 1 argument, got " + (parts.length - 1));
+                case DELETE:
+                    if (parts.length != 2) {
+                        throw new Exception("Expected 1 argument, got " + (parts.length - 1));
+                    }
+                    id = Integer.parseInt(parts[1]);
+                    memoryManager.deleteProcess(id);
+                    break;
+
+                case CREATE_BATCH:
+                    if (parts.length < 2) {
+                        throw new Exception("Expected at least 1 argument, got 0");
+                    }
+                    BatchResult created = memoryManager.allocateBatch(parseInts(parts));
+                    for (int i = 0; i < created.size(); i++) {
+                        if (created.isOk(i)) {
+                            Process process = created.getProcess(i);
+                            System.out.println("Created process ID: " + process.getId() + " (base: " + process.getBase() + ", limit: " + process.getLimit() + ")");
+                        } else {
+                            mmu.printErr("Request " + (i + 1) + " (" + parts[i + 1] + " KB) failed: " + created.getStatus(i));
                         }
-                        id = Integer.parseInt(parts[1]);
-                        memoryManager.deleteProcess(id);
-                        break;
+                    }
+                    break;
 
-                    case CONVERT:
-                        if (parts.length != 3) {
-                            throw new Exception("Expected 2 argument, got " + (parts.length - 1));
+                case DELETE_BATCH:
+                    if (parts.length < 2) {
+                        throw new Exception("Expected at least 1 argument, got 0");
+                    }
+                    BatchResult deleted = memoryManager.deleteBatch(parseInts(parts));
+                    for (int i = 0; i < deleted.size(); i++) {
+                        if (!deleted.isOk(i)) {
+                            mmu.printErr("Process " + parts[i + 1] + " not found");
                         }
-                        id = Integer.parseInt(parts[1]);
-                        int virtualAddress = Integer.parseInt(parts[2]);
-                        int physicalAddress = memoryManager.convertAddress(id, virtualAddress);
-                        System.out.println(physicalAddress);
-                        break;
+                    }
+                    break;
+
+                case RESIZE:
+                    if (parts.length != 3) {
+                        throw new Exception("Expected 2 argument, got " + (parts.length - 1));
+                    }
+                    Process resized = memoryManager.resizeProcess(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+                    System.out.println("Base: " + resized.getBase());
+                    System.out.println("Limit: " + resized.getLimit());
+                    break;
+
+                case FORK:
+                case SHARE:
+                    if (parts.length != 2) {
+                        throw new Exception("Expected 1 argument, got " + (parts.length - 1));
+                    }
+                    id = Integer.parseInt(parts[1]);
+                    Process mapped = command == Command.FORK ? memoryManager.fork(id) : memoryManager.attachShared(id);
+                    System.out.println((command == Command.FORK ? "Forked process ID: " : "Sharing process ID: ") + mapped.getId());
+                    System.out.println("Base: " + mapped.getBase());
+                    System.out.println("Limit: " + mapped.getLimit());
+                    break;
+
+                case WRITE:
+                    if (parts.length != 3) {
+                        throw new Exception("Expected 2 argument, got " + (parts.length - 1));
+                    }
+                    System.out.println(memoryManager.writeAddress(Integer.parseInt(parts[1]), Integer.parseInt(parts[2])));
+                    break;
+
+                case CONVERT:
+                    if (parts.length != 3) {
+                        throw new Exception("Expected 2 argument, got " + (parts.length - 1));
+                    }
+                    id = Integer.parseInt(parts[1]);
+                    int virtualAddress = Integer.parseInt(parts[2]);
+                    int physicalAddress = memoryManager.convertAddress(id, virtualAddress);
+                    System.out.println(physicalAddress);
+                    break;
 
-                    case PRINT_MEMORY:
+                case PRINT_MEMORY:
+                    // "pm" prints the first page of the map, "pm <from> <to>" a page of a range, and "pm all" the whole map
+                    if (memoryManager.getPagingUnit() != null || parts.length == 2 && parts[1].equals("all")) {
                         memoryManager.printMemory();
                         break;
+                    }
+                    int[] range = parseRange(parts, 1);
+                    int next = memoryManager.printMemory(range[0], range[1], PAGE_SIZE);
+                    if (next < range[1]) {
+                        System.out.println("More entries: pm " + next + " " + range[1]);
+                    }
+                    break;
 
-                    case EXIT:
-                        System.exit(0);
-                        break;
+                case MEMORY_SUMMARY:
+                    range = parseRange(parts, 1);
+                    memoryManager.printMemorySummary(range[0], range[1]);
+                    break;
+
+                case OCCUPANCY_BAR:
+                    if (parts.length > 2) {
+                        throw new Exception("Expected at most 1 argument, got " + (parts.length - 1));
+                    }
+                    System.out.println(memoryManager.occupancyBar(parts.length == 2 ? Integer.parseInt(parts[1]) : 64));
+                    break;
+
+                case FIND_BLOCKS:
+                    if (parts.length != 3) {
+                        throw new Exception("Expected 2 argument, got " + (parts.length - 1));
+                    }
+                    range = parseRange(parts, 1);
+                    List<Process> blocks = memoryManager.blocksIn(range[0], range[1]);
+                    for (int i = 0; i < Math.min(blocks.size(), MAX_RESULTS); i++) {
+                        Process block = blocks.get(i);
+                        System.out.println("Process " + block.getId() + ": [" + block.getBase() + ", " + (block.getBase() + block.getLimit()) + ")");
+                    }
+                    System.out.println(blocks.size() + " blocks" + (blocks.size() > MAX_RESULTS ? " (" + MAX_RESULTS + " printed)" : ""));
+                    break;
+
+                case FIND_HOLES:
+                    if (parts.length != 2 && parts.length != 4) {
+                        throw new Exception("Expected 1 or 3 arguments, got " + (parts.length - 1));
+                    }
+                    range = parseRange(parts, 2);
+                    List<Hole> holes = memoryManager.findHoles(Integer.parseInt(parts[1]), range[0], range[1], MAX_RESULTS + 1);
+                    for (int i = 0; i < Math.min(holes.size(), MAX_RESULTS); i++) {
+                        System.out.println(holes.get(i));
+                    }
+                    if (holes.size() > MAX_RESULTS) {
+                        System.out.println("More holes: fh " + parts[1] + " " + holes.get(MAX_RESULTS).getStart() + " " + range[1]);
+                    }
+                    break;
 
-                    case UNKNOWN:
-                        throw new Exception("Unknown command");
-                }
-            } catch (Exception e) {
-                mmu.printErr("Error: " + e.getMessage());
-                continue;
+                case FRAGMENTATION:
+                    memoryManager.printFragmentation();
+                    break;
+
+                case COMPACT:
+                    System.out.println(memoryManager.compact());
+                    break;
+
+                case COMPACT_STEP:
+                    // "cs <amount>" plans the moves that open a hole of that size and makes the first step, "cs" makes the next step
+                    if (parts.length > 2) {
+                        throw new Exception("Expected at most 1 argument, got " + (parts.length - 1));
+                    }
+                    if (parts.length == 2 && !memoryManager.startCompaction(Integer.parseInt(parts[1]))) {
+                        throw new Exception("Not enough free memory for a hole of " + parts[1] + " KB");
+                    }
+                    if (!memoryManager.compactor().hasPendingMoves()) {
+                        if (parts.length == 2) {
+                            System.out.println("The hole is already free");
+                            break;
+                        }
+                        throw new Exception("No compaction in progress");
+                    }
+                    CompactionResult step = memoryManager.compactStep();
+                    System.out.println(step + (step.isComplete() ? ", done" : ", more steps to go"));
+                    break;
+
+                case AUTO_COMPACTION:
+                    if (parts.length != 2) {
+                        throw new Exception("Expected 1 argument, got " + (parts.length - 1));
+                    }
+                    memoryManager.setAutoCompaction(CompactionMode.valueOf(parts[1].toUpperCase()));
+                    break;
+
+                case PAGING_STATS:
+                    if (memoryManager.getPagingUnit() == null) {
+                        throw new Exception("The memory is not in paging mode");
+                    }
+                    memoryManager.getPagingUnit().printStats();
+                    break;
+
+                case METRICS:
+                    // The metrics are enabled by the first "mt", and measure the operations from then on
+                    memoryManager.enableMetrics().print();
+                    break;
+
+                case SAVE_SNAPSHOT:
+                    if (parts.length != 2) {
+                        throw new Exception("Expected 1 argument, got " + (parts.length - 1));
+                    }
+                    // The file name keeps its case
+                    memoryManager.saveSnapshot(Path.of(line.split(" ")[1]));
+                    break;
+
+                case LOAD_SNAPSHOT:
+                    if (parts.length != 2) {
+                        throw new Exception("Expected 1 argument, got " + (parts.length - 1));
+                    }
+                    MemoryManager restored = MemoryManager.restore(Path.of(line.split(" ")[1]));
+                    memoryManager.closeLog();
+                    memoryManager = restored;
+                    System.out.println("Memory of size " + restored.getMemSize() + " is restored, with the " + restored.getStrategy().name() + " strategy");
+                    break;
+
+                case EXIT:
+                    System.exit(0);
+                    break;
+
+                case UNKNOWN:
+                    throw new Exception("Unknown command");
             }
+        } catch (Exception e) {
+            mmu.printErr("Error: " + e.getMessage());
         }
     }
-}
 
+    /**
+     * @return The range given by the arguments at {@code index} and {@code index + 1}, or the whole memory if there are none
+     */
+    private int[] parseRange(String[] parts, int index) throws Exception {
+        if (parts.length == index) {
+            return new int[]{0, memoryManager.getMemSize()};
+        }
+        if (parts.length != index + 2) {
+            throw new Exception("Expected a range: <from> <to>");
+        }
+        int from = Integer.parseInt(parts[index]);
+        int to = Integer.parseInt(parts[index + 1]);
+        if (from < 0 || from >= to) {
+            throw new Exception("The range must be non-empty, and start at 0 or after");
+        }
+        return new int[]{from, to};
+    }
+
+    /**
+     * @return The integer arguments of a command (every part but the first)
+     */
+    private static int[] parseInts(String[] parts) {
+        int[] values = new int[parts.length - 1];
+        for (int i = 1; i < parts.length; i++) {
+            values[i - 1] = Integer.parseInt(parts[i]);
+        }
+        return values;
+    }
+}
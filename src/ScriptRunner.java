@@ -0,0 +1,419 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Runs a script of REPL commands piped into the standard input, at the speed of the allocator rather than the speed of the console.
+ * <p>
+ * The input is read in blocks into one buffer, split into lines in a reused byte array, and tokenized byte by byte. The commands that operate on a
+ * process ({@code cr}, {@code dl}, {@code cv}, {@code wr} and {@code rs}) are dispatched on their letters packed in an int, run through the methods of
+ * the memory manager that report failures with return values, and print the same lines as the REPL into one reused output buffer, so they create no
+ * objects. The tokenizer is as strict as the REPL's {@code split(" ")}: any other command, and any line the REPL wouldn't read the same way (a blank
+ * before the command, two blanks between the arguments, a tab...), is handed to {@link Repl#execute}, after the buffer is flushed to keep the order
+ * of the output. The buffer is also flushed before each read of the input, since the read may wait for the next line to be typed.
+ * <p>
+ * In quiet mode, the commands that operate on a process print nothing, not even their errors, and a summary is printed at the end.
+ * Blank lines and lines starting with '#' are skipped, and the script ends with {@code exit} or at the end of the input.
+ */
+public class ScriptRunner {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // The commands, as their letters packed in an int (see readCommand)
+    private static final int CREATE = 'c' << 8 | 'r';
+    private static final int DELETE = 'd' << 8 | 'l';
+    private static final int CONVERT = 'c' << 8 | 'v';
+    private static final int WRITE = 'w' << 8 | 'r';
+    private static final int RESIZE = 'r' << 8 | 's';
+    private static final int EXIT = 'e' << 24 | 'x' << 16 | 'i' << 8 | 't';
+
+    // The messages of the exceptions the REPL prints
+    private static final byte[] NO_ENOUGH_MEMORY = ascii(new NoEnoughMemoryException().getMessage());
+    private static final byte[] ILLEGAL_ADDRESS = ascii(new IllegalAddressException().getMessage());
+    private static final byte[] PROCESS_NOT_FOUND = ascii("No process found with id ");
+    private static final byte[] AMOUNT_NOT_POSITIVE = ascii("The requested amount must be positive");
+    private static final byte[] SIZE_NOT_POSITIVE = ascii("The new size must be positive");
+    private static final byte[] CREATED = ascii("Created process ID: ");
+    private static final byte[] BASE = ascii("Base: ");
+    private static final byte[] LIMIT = ascii("Limit: ");
+    private static final byte[] ERROR = ascii(mmu.ANSI_RED + "Error: ");
+    private static final byte[] RESET = ascii(mmu.ANSI_RESET);
+
+    private final Repl repl;
+    private final InputStream in;
+    private final OutputStream out;
+    private final boolean quiet;
+
+    private final byte[] input = new byte[BUFFER_SIZE];
+    private int inputPosition;
+    private int inputLength;
+
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private int position;
+
+    /**
+     * The arguments of the current command
+     */
+    private final int[] args = new int[2];
+
+    private final byte[] output = new byte[BUFFER_SIZE];
+    private int outputLength;
+
+    private long commands;
+    private long errors;
+
+    /**
+     * @param repl  Runs the commands that aren't dispatched directly, on its memory manager
+     * @param quiet Whether the commands that operate on a process print nothing
+     */
+    public ScriptRunner(Repl repl, InputStream in, OutputStream out, boolean quiet) {
+        this.repl = repl;
+        this.in = in;
+        this.out = out;
+        this.quiet = quiet;
+    }
+
+    /**
+     * Runs the commands until {@code exit} or the end of the input.
+     */
+    public void run() throws IOException {
+        long start = System.nanoTime();
+        while (readLine()) {
+            if (isBlankOrComment()) {
+                continue;
+            }
+            commands++;
+            position = 0;
+            int command = readCommand();
+            if (command == EXIT && atEnd()) {
+                break;
+            }
+            if (!dispatch(command)) {
+                // The Repl prints straight to the standard output
+                flush();
+                repl.execute(new String(line, 0, lineLength, StandardCharsets.UTF_8));
+            }
+        }
+        if (quiet) {
+            double millis = (System.nanoTime() - start) / 1e6;
+            print("Ran " + MemoryManager.blueColor(commands + "") + " commands (" + MemoryManager.blueColor(errors + "") + " failed) in "
+                    + MemoryManager.blueColor(String.format("%.3f", millis)) + " ms");
+        }
+        flush();
+    }
+
+    /**
+     * Runs a command that operates on a process, if its arguments parse.
+     *
+     * @return Whether the command was run (false if it must be handed to the Repl)
+     */
+    private boolean dispatch(int command) {
+        MemoryManager mm = repl.memoryManager;
+        if (command == CREATE && readArgs(1)) {
+            int amount = args[0];
+            int id = amount <= 0 ? -1 : mm.tryAllocate(amount);
+            if (id == -1) {
+                error(amount <= 0 ? AMOUNT_NOT_POSITIVE : NO_ENOUGH_MEMORY, -1);
+            } else if (!quiet) {
+                printField(CREATED, id);
+                printField(BASE, mm.getBase(id));
+                printField(LIMIT, amount);
+            }
+        } else if (command == DELETE && readArgs(1)) {
+            if (!mm.tryDelete(args[0])) {
+                error(PROCESS_NOT_FOUND, args[0]);
+            }
+        } else if (command == CONVERT && readArgs(2)) {
+            int physicalAddress = mm.tryConvert(args[0], args[1]);
+            if (physicalAddress == BulkTranslation.INVALID_ADDRESS) {
+                addressError(mm, args[0]);
+            } else if (!quiet) {
+                printField(null, physicalAddress);
+            }
+        } else if (command == WRITE && readArgs(2)) {
+            int physicalAddress = mm.tryWrite(args[0], args[1]);
+            if (physicalAddress == BulkTranslation.INVALID_ADDRESS) {
+                if (mm.tryConvert(args[0], args[1]) == BulkTranslation.INVALID_ADDRESS) {
+                    addressError(mm, args[0]);
+                } else {
+                    // The address is valid, but there was no space for the copy of the segment
+                    error(NO_ENOUGH_MEMORY, -1);
+                }
+            } else if (!quiet) {
+                printField(null, physicalAddress);
+            }
+        } else if (command == RESIZE && readArgs(2)) {
+            int newSize = args[1];
+            String restriction = mm.getResizeRestriction(args[0], newSize);
+            if (newSize <= 0) {
+                error(SIZE_NOT_POSITIVE, -1);
+            } else if (!mm.hasProcess(args[0])) {
+                error(PROCESS_NOT_FOUND, args[0]);
+            } else if (restriction != null) {
+                // In paging mode, or a shared segment
+                error(ascii(restriction), -1);
+            } else {
+                int base = mm.tryResize(args[0], newSize);
+                if (base == -1) {
+                    error(NO_ENOUGH_MEMORY, -1);
+                } else if (!quiet) {
+                    printField(BASE, base);
+                    printField(LIMIT, newSize);
+                }
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private void addressError(MemoryManager mm, int id) {
+        if (mm.hasProcess(id)) {
+            error(ILLEGAL_ADDRESS, -1);
+        } else {
+            error(PROCESS_NOT_FOUND, id);
+        }
+    }
+
+    /**
+     * Prints an error, in red like the REPL.
+     *
+     * @param value A number printed after the message, or -1 for none
+     */
+    private void error(byte[] message, int value) {
+        errors++;
+        if (quiet) {
+            return;
+        }
+        put(ERROR);
+        put(message);
+        if (value != -1) {
+            putInt(value);
+        }
+        put(RESET);
+        putByte('\n');
+    }
+
+    /**
+     * Reads the next line of the input, without its line terminator.
+     *
+     * @return Whether there was one (false at the end of the input)
+     */
+    private boolean readLine() throws IOException {
+        lineLength = 0;
+        if (inputPosition == inputLength && !fill()) {
+            return false;
+        }
+        while (true) {
+            int end = inputPosition;
+            while (end < inputLength && input[end] != '\n') {
+                end++;
+            }
+            if (lineLength + end - inputPosition > line.length) {
+                line = Arrays.copyOf(line, Math.max(2 * line.length, lineLength + end - inputPosition));
+            }
+            System.arraycopy(input, inputPosition, line, lineLength, end - inputPosition);
+            lineLength += end - inputPosition;
+            if (end < inputLength) {
+                inputPosition = end + 1;
+                break;
+            }
+            inputPosition = inputLength;
+            if (!fill()) {
+                break;
+            }
+        }
+        if (lineLength > 0 && line[lineLength - 1] == '\r') {
+            lineLength--;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the next block of the input, after flushing the output: the read may wait for the next line to be typed, and the output of the
+     * previous ones must be seen first.
+     *
+     * @return Whether there was one (false at the end of the input)
+     */
+    private boolean fill() throws IOException {
+        flush();
+        inputPosition = 0;
+        inputLength = Math.max(in.read(input), 0);
+        return inputLength > 0;
+    }
+
+    /**
+     * @return Whether the line is blank (spaces and tabs only), or a comment (its first other character is '#')
+     */
+    private boolean isBlankOrComment() {
+        int i = 0;
+        while (i < lineLength && (line[i] == ' ' || line[i] == '\t')) {
+            i++;
+        }
+        return i == lineLength || line[i] == '#';
+    }
+
+    /**
+     * @return The first word of the line (up to the first space, like the REPL's split), lower-cased, with its first 4 letters packed in an int (or
+     * 0 if it's longer)
+     */
+    private int readCommand() {
+        int packed = 0;
+        int length = 0;
+        while (position < lineLength && line[position] != ' ') {
+            packed = packed << 8 | (line[position++] | 0x20) & 0xFF;
+            length++;
+        }
+        return length <= 4 ? packed : 0;
+    }
+
+    /**
+     * Reads exactly {@code count} integer arguments into {@link #args}.
+     *
+     * @return Whether the rest of the line is exactly that many integers, each after one space, as the REPL's split reads them
+     */
+    private boolean readArgs(int count) {
+        for (int i = 0; i < count; i++) {
+            if (position == lineLength || line[position] != ' ') {
+                return false;
+            }
+            position++;
+            int start = position;
+            boolean negative = position < lineLength && line[position] == '-';
+            if (negative) {
+                position++;
+            }
+            long value = 0;
+            while (position < lineLength && line[position] >= '0' && line[position] <= '9') {
+                value = value * 10 + (line[position++] - '0');
+                if (value > Integer.MAX_VALUE + 1L) {
+                    return false;
+                }
+            }
+            value = negative ? -value : value;
+            if (position == start + (negative ? 1 : 0) || value > Integer.MAX_VALUE
+                    || position < lineLength && line[position] != ' ') {
+                return false;
+            }
+            args[i] = (int) value;
+        }
+        return atEnd();
+    }
+
+    /**
+     * @return Whether the rest of the line is only spaces (the REPL's split drops them)
+     */
+    private boolean atEnd() {
+        while (position < lineLength && line[position] == ' ') {
+            position++;
+        }
+        return position == lineLength;
+    }
+
+    /**
+     * Prints a line made of a label (if any) and a number.
+     */
+    private void printField(byte[] label, int value) {
+        if (label != null) {
+            put(label);
+        }
+        putInt(value);
+        putByte('\n');
+    }
+
+    private void print(String s) {
+        put(s.getBytes(StandardCharsets.UTF_8));
+        putByte('\n');
+    }
+
+    private void put(byte[] bytes) {
+        if (outputLength + bytes.length > output.length) {
+            flushOutput();
+            if (bytes.length > output.length) {
+                write(bytes, bytes.length);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, output, outputLength, bytes.length);
+        outputLength += bytes.length;
+    }
+
+    private void putByte(int b) {
+        if (outputLength == output.length) {
+            flushOutput();
+        }
+        output[outputLength++] = (byte) b;
+    }
+
+    /**
+     * Writes the decimal digits of a number, without creating a String.
+     */
+    private void putInt(int value) {
+        if (outputLength + 11 > output.length) {
+            flushOutput();
+        }
+        long v = value;
+        if (v < 0) {
+            output[outputLength++] = '-';
+            v = -v;
+        }
+        int end = outputLength + digits(v);
+        for (int i = end - 1; i >= outputLength; i--) {
+            output[i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        outputLength = end;
+    }
+
+    private static int digits(long v) {
+        int digits = 1;
+        while (v >= 10) {
+            v /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private void flushOutput() {
+        write(output, outputLength);
+        outputLength = 0;
+    }
+
+    private void write(byte[] bytes, int length) {
+        try {
+            out.write(bytes, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the buffered output.
+     */
+    public void flush() throws IOException {
+        flushOutput();
+        out.flush();
+    }
+
+    /**
+     * @return The number of commands run (the blank lines and comments aren't counted)
+     */
+    public long getCommands() {
+        return commands;
+    }
+
+    /**
+     * @return The number of commands that failed
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
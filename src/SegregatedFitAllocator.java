@@ -0,0 +1,233 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A segregated-fit (slab) allocator. Small requests are rounded up to a size class and served from slabs: aligned blocks of {@link #SLAB_SIZE} units
+ * cut into equal slots, one slab per size class at a time. Large requests (and small ones when no slab can be carved) use Best Fit on the free extents.
+ * <p>
+ * Each size class keeps a doubly-linked list of its slabs that still have free slots, and each slab keeps a stack of its free slots,
+ * so allocating and freeing a small request take constant time.
+ */
+public class SegregatedFitAllocator implements AllocationStrategy {
+
+    /**
+     * The size classes (in KB) for small requests. Any request larger than the last class is a large request.
+     */
+    public static final int[] SIZE_CLASSES = {1, 2, 3, 4, 6, 8, 12, 16, 24, 32, 48, 64};
+
+    /**
+     * The size of a slab in KB. Slabs are aligned on their size, so the slab holding an address is found by rounding it down.
+     */
+    public static final int SLAB_SIZE = 256;
+
+    private static final int MAX_SMALL_SIZE = SIZE_CLASSES[SIZE_CLASSES.length - 1];
+
+    /**
+     * classOf[amount] is the index of the size class used for a small request of that amount.
+     */
+    private static final int[] classOf = new int[MAX_SMALL_SIZE + 1];
+
+    static {
+        int c = 0;
+        for (int amount = 1; amount <= MAX_SMALL_SIZE; amount++) {
+            if (amount > SIZE_CLASSES[c]) {
+                c++;
+            }
+            classOf[amount] = c;
+        }
+    }
+
+    private static class Slab {
+        int base;
+        int slotSize;
+        int slotCount;
+
+        /**
+         * The indexes of the free slots, used as a stack
+         */
+        int[] freeSlots;
+        int freeCount;
+
+        // Links in the list of slabs with free slots of the same size class
+        Slab prev;
+        Slab next;
+        boolean listed;
+    }
+
+    private FreeSpace freeSpace;
+
+    private FreeExtentIndex extents;
+
+    /**
+     * For each size class, the head of the list of its slabs that have at least one free slot
+     */
+    private final Slab[] partialSlabs = new Slab[SIZE_CLASSES.length];
+
+    /**
+     * The number of slabs of each size class
+     */
+    private final int[] slabCounts = new int[SIZE_CLASSES.length];
+
+    /**
+     * All the slabs, by base address
+     */
+    private final Map<Integer, Slab> slabs = new HashMap<>();
+
+    /**
+     * The units of the free slots of all the slabs
+     */
+    private long freeSlotUnits;
+
+    @Override
+    public String name() {
+        return "segregated-fit";
+    }
+
+    @Override
+    public void init(FreeSpace freeSpace) {
+        this.freeSpace = freeSpace;
+        this.extents = freeSpace.extents();
+    }
+
+    /**
+     * @return The number of units actually reserved for the given amount when it's served from a slab
+     */
+    public static int slotSize(int amount) {
+        return amount <= MAX_SMALL_SIZE ? SIZE_CLASSES[classOf[amount]] : amount;
+    }
+
+    /**
+     * @return The base of the allocated block, or -1 if there is no space for it
+     */
+    @Override
+    public int allocate(int amount) {
+        if (amount <= MAX_SMALL_SIZE) {
+            int c = classOf[amount];
+            Slab slab = partialSlabs[c];
+            if (slab == null) {
+                slab = newSlab(c);
+            }
+            if (slab != null) {
+                int slot = slab.freeSlots[--slab.freeCount];
+                freeSlotUnits -= slab.slotSize;
+                if (slab.freeCount == 0) {
+                    unlink(c, slab);
+                }
+                return slab.base + slot * slab.slotSize;
+            }
+            // No slab could be carved, so fall back to a large allocation of the exact amount
+        }
+
+        int base = extents.bestFit(amount);
+        if (base == -1) {
+            return -1;
+        }
+        freeSpace.reserve(base, amount);
+        return base;
+    }
+
+    /**
+     * Frees the block that was allocated for the given amount at the given base.
+     */
+    @Override
+    public void free(int base, int amount) {
+        Slab slab = amount <= MAX_SMALL_SIZE ? slabs.get(base - base % SLAB_SIZE) : null;
+        if (slab == null) {
+            // A large allocation (no slab can overlap it)
+            freeSpace.release(base, amount);
+            return;
+        }
+
+        int c = classOf[amount];
+        slab.freeSlots[slab.freeCount++] = (base - slab.base) / slab.slotSize;
+        freeSlotUnits += slab.slotSize;
+        if (!slab.listed) {
+            link(c, slab);
+        }
+
+        // Give a slab that became empty back to the free space, unless it's the last slab of its class (to avoid carving a new slab right away)
+        if (slab.freeCount == slab.slotCount && slabCounts[c] > 1) {
+            unlink(c, slab);
+            slabs.remove(slab.base);
+            slabCounts[c]--;
+            freeSlotUnits -= (long) slab.slotCount * slab.slotSize;
+            freeSpace.release(slab.base, SLAB_SIZE);
+        }
+    }
+
+    /**
+     * @return The units of the free slots of the slabs. The units at the end of a slab that don't make a whole slot are counted as internal
+     * fragmentation, like the rounding of the requests up to their size class.
+     */
+    @Override
+    public long unusedCapacity() {
+        return freeSlotUnits;
+    }
+
+    /**
+     * A slot can only be resized in place within its size class. A block outside of the slabs is resized like with the fit strategies.
+     */
+    @Override
+    public boolean resizeInPlace(int base, int oldAmount, int newAmount) {
+        Slab slab = oldAmount <= MAX_SMALL_SIZE ? slabs.get(base - base % SLAB_SIZE) : null;
+        if (slab == null) {
+            return freeSpace.resize(base, oldAmount, newAmount);
+        }
+        return newAmount <= MAX_SMALL_SIZE && classOf[newAmount] == classOf[oldAmount];
+    }
+
+    /**
+     * Carves a new slab for the given size class out of a free aligned window of {@link #SLAB_SIZE} units (in the smallest hole that contains one,
+     * see {@link FreeExtentIndex#alignedFit}), and links it.
+     *
+     * @return The new slab, or null if there is no free aligned window
+     */
+    private Slab newSlab(int c) {
+        int base = extents.alignedFit(SLAB_SIZE, SLAB_SIZE);
+        if (base == -1) {
+            return null;
+        }
+        freeSpace.reserve(base, SLAB_SIZE);
+
+        Slab slab = new Slab();
+        slab.base = base;
+        slab.slotSize = SIZE_CLASSES[c];
+        slab.slotCount = SLAB_SIZE / slab.slotSize;
+        slab.freeSlots = new int[slab.slotCount];
+        // Push the slots in reverse order, so the lowest slot is handed out first
+        for (int i = 0; i < slab.slotCount; i++) {
+            slab.freeSlots[i] = slab.slotCount - 1 - i;
+        }
+        slab.freeCount = slab.slotCount;
+        freeSlotUnits += (long) slab.slotCount * slab.slotSize;
+
+        slabs.put(base, slab);
+        slabCounts[c]++;
+        link(c, slab);
+        return slab;
+    }
+
+    private void link(int c, Slab slab) {
+        slab.prev = null;
+        slab.next = partialSlabs[c];
+        if (partialSlabs[c] != null) {
+            partialSlabs[c].prev = slab;
+        }
+        partialSlabs[c] = slab;
+        slab.listed = true;
+    }
+
+    private void unlink(int c, Slab slab) {
+        if (slab.prev != null) {
+            slab.prev.next = slab.next;
+        } else {
+            partialSlabs[c] = slab.next;
+        }
+        if (slab.next != null) {
+            slab.next.prev = slab.prev;
+        }
+        slab.prev = null;
+        slab.next = null;
+        slab.listed = false;
+    }
+}
@@ -0,0 +1,206 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Saves and restores the full state of a contiguous {@link MemoryManager} in a compact binary format (little-endian):
+ * <p>
+ * - the magic bytes "MMUS" and a version byte, <p>
+ * - the checkpoint ID (which the {@link OperationLog} written after the snapshot refers to), <p>
+ * - the memory size, the name of the strategy and its cursor, the auto compaction mode, the requested units and the {@link Process#count} counter, <p>
+ * - the process table: the ID bound, the number of freed IDs, the bases and limits of the IDs below the bound, and the freed IDs, <p>
+ * - the bitmap, run-length encoded: the varint lengths of its runs, alternately free and allocated, starting with a (possibly empty) free run. <p>
+ * A snapshot is written to a temporary file which then replaces the target, so a crash never leaves a partial snapshot behind.
+ * It is read through a memory mapping, and the process table is copied with bulk reads.
+ */
+public class SnapshotFile {
+
+    static final byte[] MAGIC = {'M', 'M', 'U', 'S'};
+    static final byte VERSION = 1;
+
+    private static final CompactionMode[] MODES = CompactionMode.values();
+
+    /**
+     * Writes a snapshot. The strategy must be relocatable, so that its state is the free space and its cursor.
+     */
+    static void write(Path file, long checkpointId, FreeSpace freeSpace, AllocationStrategy strategy, CompactionMode autoCompaction,
+                      long requestedUnits, ProcessTable processes) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Output out = new Output(channel);
+            byte[] name = strategy.name().getBytes(StandardCharsets.UTF_8);
+            out.ensure(64 + name.length);
+            out.buffer.put(MAGIC).put(VERSION)
+                    .putLong(checkpointId)
+                    .putInt(freeSpace.size())
+                    .putShort((short) name.length).put(name)
+                    .putInt(strategy.getCursor())
+                    .put((byte) autoCompaction.ordinal())
+                    .putLong(requestedUnits)
+                    .putInt(Process.count.get());
+
+            int idBound = processes.idBound();
+            int[] freeIds = processes.freeIds();
+            out.buffer.putInt(idBound).putInt(freeIds.length);
+            out.putInt(0);
+            for (int id = 1; id < idBound; id++) {
+                out.putInt(processes.limit(id) != 0 ? processes.base(id) : 0);
+            }
+            out.putInt(0);
+            for (int id = 1; id < idBound; id++) {
+                out.putInt(processes.limit(id));
+            }
+            for (int id : freeIds) {
+                out.putInt(id);
+            }
+
+            Bitmap bitmap = freeSpace.bitmap();
+            int size = freeSpace.size();
+            int position = 0;
+            while (position < size) {
+                int used = bitmap.nextSet(position);
+                out.putVarint(used - position);
+                if (used == size) {
+                    break;
+                }
+                position = bitmap.nextClear(used);
+                out.putVarint(position - used);
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot into a new memory manager.
+     */
+    static MemoryManager read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshots over 2 GB are not supported");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            try {
+                return read(buffer);
+            } catch (RuntimeException e) {
+                // A buffer underflow, an unknown strategy or mode, a negative size...
+                throw new IOException("Corrupt snapshot " + file + ": " + e, e);
+            }
+        }
+    }
+
+    private static MemoryManager read(ByteBuffer buffer) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a snapshot");
+        }
+        if (buffer.get() != VERSION) {
+            throw new IOException("Unsupported snapshot version");
+        }
+
+        long checkpointId = buffer.getLong();
+        int memSize = buffer.getInt();
+        byte[] name = new byte[buffer.getShort()];
+        buffer.get(name);
+        int cursor = buffer.getInt();
+        CompactionMode autoCompaction = MODES[buffer.get()];
+        long requestedUnits = buffer.getLong();
+        int processCount = buffer.getInt();
+
+        int idBound = buffer.getInt();
+        int[] bases = new int[idBound];
+        int[] limits = new int[idBound];
+        int[] freeIds = new int[buffer.getInt()];
+        getInts(buffer, bases);
+        getInts(buffer, limits);
+        getInts(buffer, freeIds);
+
+        FreeSpace freeSpace = new FreeSpace(memSize);
+        int position = 0;
+        while (position < memSize) {
+            position += getVarint(buffer);
+            if (position < memSize) {
+                int used = getVarint(buffer);
+                freeSpace.reserve(position, used);
+                position += used;
+            }
+        }
+        if (position != memSize || freeSpace.usedUnits() != requestedUnits) {
+            throw new IOException("The bitmap of the snapshot doesn't match its processes");
+        }
+
+        AllocationStrategy strategy = AllocationStrategies.forName(new String(name, StandardCharsets.UTF_8));
+        MemoryManager mm = new MemoryManager(freeSpace, strategy, new ProcessTable(bases, limits, idBound, freeIds), requestedUnits, checkpointId);
+        strategy.setCursor(cursor);
+        mm.setAutoCompaction(autoCompaction);
+        Process.count.set(processCount);
+        return mm;
+    }
+
+    private static void getInts(ByteBuffer buffer, int[] values) {
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Integer.BYTES);
+    }
+
+    static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * A buffer flushed to a channel when it's full
+     */
+    static class Output {
+        final FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putVarint(int value) throws IOException {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+import java.util.Arrays;
+
+/**
+ * A sorted set of longs, kept as a flat two-level B-tree: the keys are stored in blocks of at most {@value #BLOCK_SIZE} sorted longs, and a directory
+ * lists the blocks in order. An insertion or a removal is a binary search over the directory, a binary search in the block, and a shift of at
+ * most a block; a full block is split in two, and a block that drops below a quarter is merged into a neighbour. Nothing is boxed.
+ * <p>
+ * The keys are read in order through cursors (see {@link #ceiling}, {@link #next} and {@link #keyAt}): a cursor packs the number of a block and
+ * the position of the key in it, so moving to the next key is O(1). A cursor is only valid until the set changes.
+ */
+public class SortedLongSet {
+
+    private static final int BLOCK_SIZE = 512;
+
+    /**
+     * The blocks in order (the first {@code blockCount}), and the number of keys in each
+     */
+    private long[][] blocks = new long[4][];
+    private int[] blockSizes = new int[4];
+    private int blockCount;
+
+    private int size;
+
+    public SortedLongSet() {
+    }
+
+    /**
+     * Builds a set from the first {@code count} keys of an array, which must be sorted and distinct. The blocks are filled to three quarters.
+     */
+    public SortedLongSet(long[] sortedKeys, int count) {
+        int perBlock = BLOCK_SIZE * 3 / 4;
+        for (int from = 0; from < count; from += perBlock) {
+            int length = Math.min(perBlock, count - from);
+            long[] block = new long[BLOCK_SIZE];
+            System.arraycopy(sortedKeys, from, block, 0, length);
+            insertBlock(blockCount, block, length);
+        }
+        size = count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(long key) {
+        int block = blockFor(key);
+        return block < blockCount && Arrays.binarySearch(blocks[block], 0, blockSizes[block], key) >= 0;
+    }
+
+    /**
+     * @return Whether the key was added (false if it was already in the set)
+     */
+    public boolean add(long key) {
+        if (blockCount == 0) {
+            long[] block = new long[BLOCK_SIZE];
+            block[0] = key;
+            insertBlock(0, block, 1);
+            size++;
+            return true;
+        }
+        // A key above all the others goes at the end of the last block
+        int block = Math.min(blockFor(key), blockCount - 1);
+        int position = Arrays.binarySearch(blocks[block], 0, blockSizes[block], key);
+        if (position >= 0) {
+            return false;
+        }
+        position = -position - 1;
+
+        if (blockSizes[block] == BLOCK_SIZE) {
+            // Split the block in two halves, and insert in the one the key falls in
+            long[] upper = new long[BLOCK_SIZE];
+            int half = BLOCK_SIZE / 2;
+            System.arraycopy(blocks[block], half, upper, 0, BLOCK_SIZE - half);
+            blockSizes[block] = half;
+            insertBlock(block + 1, upper, BLOCK_SIZE - half);
+            if (position > half) {
+                block++;
+                position -= half;
+            }
+        }
+        long[] keys = blocks[block];
+        System.arraycopy(keys, position, keys, position + 1, blockSizes[block] - position);
+        keys[position] = key;
+        blockSizes[block]++;
+        size++;
+        return true;
+    }
+
+    /**
+     * @return Whether the key was removed (false if it wasn't in the set)
+     */
+    public boolean remove(long key) {
+        int block = blockFor(key);
+        if (block == blockCount) {
+            return false;
+        }
+        int position = Arrays.binarySearch(blocks[block], 0, blockSizes[block], key);
+        if (position < 0) {
+            return false;
+        }
+        long[] keys = blocks[block];
+        System.arraycopy(keys, position + 1, keys, position, blockSizes[block] - position - 1);
+        blockSizes[block]--;
+        size--;
+
+        if (blockSizes[block] == 0) {
+            removeBlock(block);
+        } else if (blockSizes[block] < BLOCK_SIZE / 4) {
+            if (block + 1 < blockCount && blockSizes[block] + blockSizes[block + 1] <= BLOCK_SIZE) {
+                merge(block);
+            } else if (block > 0 && blockSizes[block - 1] + blockSizes[block] <= BLOCK_SIZE) {
+                merge(block - 1);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replaces a key by another one. When the new key falls between the neighbours of the old one, it takes its place without shifting anything.
+     *
+     * @return Whether the old key was in the set
+     */
+    public boolean replace(long oldKey, long newKey) {
+        int block = blockFor(oldKey);
+        if (block == blockCount) {
+            return false;
+        }
+        int position = Arrays.binarySearch(blocks[block], 0, blockSizes[block], oldKey);
+        if (position < 0) {
+            return false;
+        }
+        long[] keys = blocks[block];
+        boolean afterPrevious = position > 0 ? keys[position - 1] < newKey : block == 0 || lastKey(block - 1) < newKey;
+        boolean beforeNext = position + 1 < blockSizes[block] ? newKey < keys[position + 1] : block + 1 == blockCount || newKey < blocks[block + 1][0];
+        if (afterPrevious && beforeNext) {
+            keys[position] = newKey;
+        } else {
+            remove(oldKey);
+            add(newKey);
+        }
+        return true;
+    }
+
+    /**
+     * @return A cursor on the smallest key at least {@code key}, or -1 if there is none
+     */
+    public long ceiling(long key) {
+        int block = blockFor(key);
+        if (block == blockCount) {
+            return -1;
+        }
+        int position = Arrays.binarySearch(blocks[block], 0, blockSizes[block], key);
+        return cursor(block, position >= 0 ? position : -position - 1);
+    }
+
+    /**
+     * @return A cursor on the largest key at most {@code key}, or -1 if there is none
+     */
+    public long floor(long key) {
+        int block = Math.min(blockFor(key), blockCount - 1);
+        if (block < 0) {
+            return -1;
+        }
+        int position = Arrays.binarySearch(blocks[block], 0, blockSizes[block], key);
+        position = position >= 0 ? position : -position - 2;
+        if (position >= 0) {
+            return cursor(block, position);
+        }
+        return block == 0 ? -1 : cursor(block - 1, blockSizes[block - 1] - 1);
+    }
+
+    /**
+     * @return A cursor on the smallest key, or -1 if the set is empty
+     */
+    public long first() {
+        return size == 0 ? -1 : 0;
+    }
+
+    /**
+     * @return A cursor on the key after the one of the given cursor, or -1 if it was the last one
+     */
+    public long next(long cursor) {
+        int block = (int) (cursor >>> 32);
+        int position = (int) cursor + 1;
+        if (position < blockSizes[block]) {
+            return cursor + 1;
+        }
+        return block + 1 < blockCount ? cursor(block + 1, 0) : -1;
+    }
+
+    /**
+     * @return The key of a cursor
+     */
+    public long keyAt(long cursor) {
+        return blocks[(int) (cursor >>> 32)][(int) cursor];
+    }
+
+    /**
+     * @return All the keys, in order
+     */
+    public long[] toArray() {
+        long[] keys = new long[size];
+        int count = 0;
+        for (int block = 0; block < blockCount; block++) {
+            System.arraycopy(blocks[block], 0, keys, count, blockSizes[block]);
+            count += blockSizes[block];
+        }
+        return keys;
+    }
+
+    /**
+     * @return The first block whose last key is at least {@code key}, or {@code blockCount} if there is none
+     */
+    private int blockFor(long key) {
+        int low = 0;
+        int high = blockCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (lastKey(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long lastKey(int block) {
+        return blocks[block][blockSizes[block] - 1];
+    }
+
+    /**
+     * Moves the keys of the block after the given one into it, and removes that block.
+     */
+    private void merge(int block) {
+        System.arraycopy(blocks[block + 1], 0, blocks[block], blockSizes[block], blockSizes[block + 1]);
+        blockSizes[block] += blockSizes[block + 1];
+        removeBlock(block + 1);
+    }
+
+    private void insertBlock(int index, long[] block, int blockSize) {
+        if (blockCount == blocks.length) {
+            blocks = Arrays.copyOf(blocks, 2 * blocks.length);
+            blockSizes = Arrays.copyOf(blockSizes, 2 * blockSizes.length);
+        }
+        System.arraycopy(blocks, index, blocks, index + 1, blockCount - index);
+        System.arraycopy(blockSizes, index, blockSizes, index + 1, blockCount - index);
+        blocks[index] = block;
+        blockSizes[index] = blockSize;
+        blockCount++;
+    }
+
+    private void removeBlock(int index) {
+        System.arraycopy(blocks, index + 1, blocks, index, blockCount - index - 1);
+        System.arraycopy(blockSizes, index + 1, blockSizes, index, blockCount - index - 1);
+        blockCount--;
+        blocks[blockCount] = null;
+    }
+
+    private static long cursor(int block, int position) {
+        return ((long) block << 32) | position;
+    }
+}
@@ -0,0 +1,246 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays the same trace against several allocation strategies in parallel, each on its own memory and its own thread, and reports them side by side:
+ * the throughput, the failure rate, the latency, and the fragmentation over time.
+ * <p>
+ * The trace is parsed once into a {@link TraceBuffer}, which all the runs read through their own cursors. Each run is cut in {@code samples} equal
+ * slices of the trace, and the fragmentation is sampled after each slice. The runs share nothing else, so they scale with the cores: a sweep over
+ * N strategies takes about the wall-clock time of the slowest one, given N cores. On Java 21 and later each run gets a virtual thread; before,
+ * the runs share a pool of one platform thread per core. Either way, no more runs than cores are on a CPU at once, so a run's throughput isn't
+ * diluted by the others.
+ */
+public class StrategyComparison {
+
+    /**
+     * The strategies compared by default: the four fits
+     */
+    public static final List<String> DEFAULT_STRATEGIES = List.of("first-fit", "next-fit", "best-fit", "worst-fit");
+
+    /**
+     * The result of the replay of the trace against one strategy
+     */
+    public static final class Run {
+        private final String strategy;
+        private final TraceReplayer replayer;
+        private final long[] sampleOperations;
+        private final double[] externalFragmentation;
+        private final double[] failureRate;
+        private final long internalFragmentation;
+        private final long freeUnits;
+
+        private Run(String strategy, TraceReplayer replayer, long[] sampleOperations, double[] externalFragmentation, double[] failureRate,
+                    long internalFragmentation, long freeUnits) {
+            this.strategy = strategy;
+            this.replayer = replayer;
+            this.sampleOperations = sampleOperations;
+            this.externalFragmentation = externalFragmentation;
+            this.failureRate = failureRate;
+            this.internalFragmentation = internalFragmentation;
+            this.freeUnits = freeUnits;
+        }
+
+        public String getStrategy() {
+            return strategy;
+        }
+
+        /**
+         * @return The replayer, with the counts and the latencies of the whole run
+         */
+        public TraceReplayer getReplayer() {
+            return replayer;
+        }
+
+        /**
+         * @return The number of operations replayed at each sample
+         */
+        public long[] getSampleOperations() {
+            return sampleOperations;
+        }
+
+        /**
+         * @return The external fragmentation index at each sample
+         */
+        public double[] getExternalFragmentation() {
+            return externalFragmentation;
+        }
+
+        /**
+         * @return The fraction of the creates that failed up to each sample
+         */
+        public double[] getFailureRate() {
+            return failureRate;
+        }
+
+        public long getInternalFragmentation() {
+            return internalFragmentation;
+        }
+
+        public long getFreeUnits() {
+            return freeUnits;
+        }
+
+        /**
+         * @return The operations per second
+         */
+        public double getThroughput() {
+            long nanos = replayer.getElapsedNanos();
+            return nanos == 0 ? 0 : replayer.getOperations() * 1e9 / nanos;
+        }
+    }
+
+    private final int memSize;
+    private final List<String> strategies;
+    private final TraceBuffer trace;
+    private final int samples;
+
+    private long wallClockNanos;
+
+    /**
+     * @param memSize    Memory size in KB (of each run)
+     * @param strategies The names of the strategies (see {@link AllocationStrategies#forName})
+     * @param samples    The number of times the fragmentation is sampled during each run
+     */
+    public StrategyComparison(int memSize, List<String> strategies, TraceBuffer trace, int samples) {
+        if (strategies.isEmpty()) {
+            throw new IllegalArgumentException("There must be at least one strategy to compare");
+        }
+        if (samples <= 0) {
+            throw new IllegalArgumentException("The number of samples must be positive");
+        }
+        for (String strategy : strategies) {
+            // Fails early on an unknown name, rather than on a worker thread
+            AllocationStrategies.forName(strategy);
+        }
+        this.memSize = memSize;
+        this.strategies = List.copyOf(strategies);
+        this.trace = trace;
+        this.samples = samples;
+    }
+
+    /**
+     * Runs all the strategies in parallel, and waits for them.
+     *
+     * @return The result of each strategy, in the order they were given
+     */
+    public List<Run> run() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        ExecutorService executor = newExecutor(strategies.size());
+        try {
+            List<Future<Run>> futures = new ArrayList<>();
+            for (String strategy : strategies) {
+                futures.add(executor.submit(() -> run(strategy)));
+            }
+            List<Run> runs = new ArrayList<>();
+            for (Future<Run> future : futures) {
+                try {
+                    runs.add(future.get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IllegalStateException("A strategy failed: " + e.getCause(), e.getCause());
+                }
+            }
+            wallClockNanos = System.nanoTime() - start;
+            return runs;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Run run(String strategy) throws IOException {
+        MemoryManager mm = new MemoryManager(memSize, AllocationStrategies.forName(strategy));
+        TraceReplayer replayer = new TraceReplayer(mm);
+        long[] sampleOperations = new long[samples];
+        double[] externalFragmentation = new double[samples];
+        double[] failureRate = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            int from = (int) ((long) trace.size() * i / samples);
+            int to = (int) ((long) trace.size() * (i + 1) / samples);
+            replayer.replay(trace.source(from, to));
+            sampleOperations[i] = replayer.getOperations();
+            externalFragmentation[i] = mm.getExternalFragmentation();
+            long creates = replayer.getCreates();
+            failureRate[i] = creates == 0 ? 0 : (double) replayer.getFailedCreates() / creates;
+        }
+        return new Run(mm.getStrategy().name(), replayer, sampleOperations, externalFragmentation, failureRate,
+                mm.getInternalFragmentation(), mm.getFreeUnits());
+    }
+
+    /**
+     * @return A virtual thread per task on Java 21 and later (they run on one carrier thread per core), and a pool of daemon threads before:
+     * the given number, but no more than the cores
+     */
+    static ExecutorService newExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Math.min(threads, Runtime.getRuntime().availableProcessors()), runnable -> {
+                Thread thread = new Thread(runnable, "mmu-strategy-run");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * @return The wall-clock time of the last {@link #run()}, in nanoseconds
+     */
+    public long getWallClockNanos() {
+        return wallClockNanos;
+    }
+
+    /**
+     * Prints the runs side by side: a summary line per strategy, then the external fragmentation and the failure rate at each sample.
+     */
+    public void printReport(List<Run> runs) {
+        long totalNanos = 0;
+        for (Run run : runs) {
+            totalNanos += run.getReplayer().getElapsedNanos();
+        }
+        System.out.println("Trace: " + MemoryManager.blueColor(trace.size() + "") + " operations, on " + MemoryManager.blueColor(memSize + "") + " KB");
+        System.out.println("Wall clock: " + MemoryManager.blueColor(String.format("%.3f", wallClockNanos / 1e9)) + " s for "
+                + MemoryManager.blueColor(runs.size() + "") + " strategies (the sum of their run times: " + MemoryManager.blueColor(String.format("%.3f", totalNanos / 1e9)) + " s)");
+
+        System.out.println(String.format("%-16s %10s %10s %10s %12s %10s %10s", "Strategy", "M ops/s", "Failed %", "p99 ns", "Internal KB", "Free KB", "Ext frag"));
+        for (Run run : runs) {
+            TraceReplayer replayer = run.getReplayer();
+            int last = samples - 1;
+            System.out.println(String.format("%-16s", run.getStrategy())
+                    + MemoryManager.blueColor(String.format(" %10.2f", run.getThroughput() / 1e6))
+                    + MemoryManager.blueColor(String.format(" %10.2f", run.getFailureRate()[last] * 100))
+                    + MemoryManager.blueColor(String.format(" %10d", replayer.getLatencies().percentile(99)))
+                    + MemoryManager.blueColor(String.format(" %12d", run.getInternalFragmentation()))
+                    + MemoryManager.blueColor(String.format(" %10d", run.getFreeUnits()))
+                    + MemoryManager.blueColor(String.format(" %10.3f", run.getExternalFragmentation()[last])));
+        }
+
+        printOverTime(runs, "External fragmentation", false);
+        printOverTime(runs, "Failed creates (%)", true);
+    }
+
+    private void printOverTime(List<Run> runs, String title, boolean failureRate) {
+        System.out.println(title + " over time:");
+        StringBuilder header = new StringBuilder(String.format("%12s", "Operations"));
+        for (Run run : runs) {
+            header.append(String.format(" %16s", run.getStrategy()));
+        }
+        System.out.println(header);
+        for (int i = 0; i < samples; i++) {
+            StringBuilder line = new StringBuilder(String.format("%12d", runs.get(0).getSampleOperations()[i]));
+            for (Run run : runs) {
+                line.append(MemoryManager.blueColor(failureRate
+                        ? String.format(" %16.2f", run.getFailureRate()[i] * 100)
+                        : String.format(" %16.3f", run.getExternalFragmentation()[i])));
+            }
+            System.out.println(line);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The swap area of the demand paging mode: a local file mapped in memory with {@link FileChannel#map}, split into slots of one page each.
+ * <p>
+ * The simulator doesn't model the contents of the memory, so an evicted page is written as a small header (the process ID and the virtual page number)
+ * at the start of its slot, and checked when the page is read back. The I/O counters account for the full size of the page.
+ * The file is mapped in chunks of at most {@link #CHUNK_SIZE} bytes, since a single mapping can't exceed 2 GB.
+ */
+public class SwapArea implements AutoCloseable {
+
+    /**
+     * The maximum size of one mapping, in bytes
+     */
+    public static final int CHUNK_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer[] chunks;
+
+    private final int slotCount;
+    private final long slotBytes;
+    private final int slotsPerChunk;
+
+    /**
+     * One bit per slot: 0 if the slot is free, 1 if it holds a page
+     */
+    private final Bitmap slots;
+    private int freeSlots;
+    private int slotCursor;
+
+    private long bytesWritten;
+    private long bytesRead;
+
+    /**
+     * @param file      The swap file (created if it doesn't exist)
+     * @param slotCount The number of pages the swap area can hold
+     * @param pageSize  The size of a page in KB
+     */
+    public SwapArea(Path file, int slotCount, int pageSize) throws IOException {
+        if (slotCount <= 0) {
+            throw new IllegalArgumentException("The swap area must have at least one slot");
+        }
+        this.slotCount = slotCount;
+        this.slotBytes = pageSize * 1024L;
+        this.slotsPerChunk = (int) Math.max(1, CHUNK_SIZE / slotBytes);
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int chunkCount = (slotCount + slotsPerChunk - 1) / slotsPerChunk;
+        chunks = new MappedByteBuffer[chunkCount];
+        for (int c = 0; c < chunkCount; c++) {
+            int chunkSlots = Math.min(slotsPerChunk, slotCount - c * slotsPerChunk);
+            chunks[c] = channel.map(FileChannel.MapMode.READ_WRITE, c * slotsPerChunk * slotBytes, chunkSlots * slotBytes);
+        }
+
+        slots = new Bitmap(slotCount);
+        freeSlots = slotCount;
+    }
+
+    /**
+     * Creates a swap area in a temporary file, deleted when the JVM exits.
+     */
+    public static SwapArea createTemp(int slotCount, int pageSize) throws IOException {
+        Path file = Files.createTempFile("mmu-swap", ".bin");
+        file.toFile().deleteOnExit();
+        return new SwapArea(file, slotCount, pageSize);
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    public int getFreeSlots() {
+        return freeSlots;
+    }
+
+    /**
+     * Writes a page to a free slot.
+     *
+     * @return The slot holding the page
+     */
+    public int writePage(int processID, int vpn) {
+        if (freeSlots == 0) {
+            throw new IllegalStateException("The swap area is full");
+        }
+        int slot = slots.nextClear(slotCursor);
+        if (slot == slotCount) {
+            slot = slots.nextClear(0);
+        }
+        slots.set(slot, slot + 1);
+        freeSlots--;
+        slotCursor = slot + 1 == slotCount ? 0 : slot + 1;
+
+        MappedByteBuffer chunk = chunks[slot / slotsPerChunk];
+        int offset = (int) ((slot % slotsPerChunk) * slotBytes);
+        chunk.putInt(offset, processID);
+        chunk.putInt(offset + Integer.BYTES, vpn);
+        bytesWritten += slotBytes;
+        return slot;
+    }
+
+    /**
+     * Reads a page back from its slot, and frees the slot.
+     */
+    public void readPage(int slot, int processID, int vpn) {
+        MappedByteBuffer chunk = chunks[slot / slotsPerChunk];
+        int offset = (int) ((slot % slotsPerChunk) * slotBytes);
+        if (chunk.getInt(offset) != processID || chunk.getInt(offset + Integer.BYTES) != vpn) {
+            throw new IllegalStateException("Swap slot " + slot + " doesn't hold page " + vpn + " of process " + processID);
+        }
+        bytesRead += slotBytes;
+        freeSlot(slot);
+    }
+
+    /**
+     * Frees a slot without reading it (the page was dropped).
+     */
+    public void freeSlot(int slot) {
+        slots.clear(slot, slot + 1);
+        freeSlots++;
+    }
+
+    /**
+     * @return The number of bytes written to the swap area (a full page per eviction)
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * @return The number of bytes read from the swap area (a full page per swap-in)
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
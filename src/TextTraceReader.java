@@ -0,0 +1,174 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a text trace, one operation per line, with the command names of the REPL:
+ * <pre>
+ * cr &lt;id&gt; &lt;size&gt;
+ * dl &lt;id&gt;
+ * cv &lt;id&gt; &lt;address&gt;
+ * </pre>
+ * Blank lines and lines starting with '#' are skipped. The file is streamed through a fixed buffer, and parsed byte by byte
+ * (no String, no split), so reading creates no objects whatever the size of the trace.
+ */
+public class TextTraceReader implements TraceSource {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] bytes = buffer.array();
+    private int position;
+    private int limit;
+
+    private long line = 1;
+
+    /**
+     * The character that ended the last number read
+     */
+    private int terminator;
+
+    public TextTraceReader(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Opens a trace file, or the standard input if the path is "-".
+     */
+    public static TextTraceReader open(String path) throws IOException {
+        if (path.equals("-")) {
+            return new TextTraceReader(Channels.newChannel(System.in));
+        }
+        return new TextTraceReader(FileChannel.open(Path.of(path), StandardOpenOption.READ));
+    }
+
+    @Override
+    public boolean next(TraceOp op) throws IOException {
+        int c = skipBlankLines();
+        if (c == -1) {
+            return false;
+        }
+
+        // The command: two letters
+        int second = read();
+        TraceOp.Kind kind;
+        if (c == 'c' && second == 'r') {
+            kind = TraceOp.Kind.CREATE;
+        } else if (c == 'd' && second == 'l') {
+            kind = TraceOp.Kind.DELETE;
+        } else if (c == 'c' && second == 'v') {
+            kind = TraceOp.Kind.CONVERT;
+        } else {
+            throw error("unknown command");
+        }
+
+        int id = readInt(read());
+        int value = kind == TraceOp.Kind.DELETE ? 0 : readInt(terminator);
+        endLine(terminator);
+        op.set(kind, id, value);
+        return true;
+    }
+
+    /**
+     * Skips blank lines and comments.
+     *
+     * @return The first character of the next operation, or -1 at the end of the trace
+     */
+    private int skipBlankLines() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == '#') {
+                while (c != '\n' && c != -1) {
+                    c = read();
+                }
+            }
+            if (c == '\n') {
+                line++;
+            } else if (c != ' ' && c != '\t' && c != '\r') {
+                return c;
+            }
+        }
+    }
+
+    /**
+     * Reads a number preceded by blanks, starting from the given character. The character that ends it is left in {@code terminator}.
+     */
+    private int readInt(int c) throws IOException {
+        if (c != ' ' && c != '\t') {
+            throw error("expected a number");
+        }
+        while (c == ' ' || c == '\t') {
+            c = read();
+        }
+
+        boolean negative = c == '-';
+        if (negative) {
+            c = read();
+        }
+        if (c < '0' || c > '9') {
+            throw error("expected a number");
+        }
+        long value = 0;
+        while (c >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE + 1L) {
+                throw error("number out of range");
+            }
+            c = read();
+        }
+        terminator = c;
+
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw error("number out of range");
+        }
+        return (int) value;
+    }
+
+    private void endLine(int c) throws IOException {
+        while (c == ' ' || c == '\t' || c == '\r') {
+            c = read();
+        }
+        if (c == '\n') {
+            line++;
+        } else if (c != -1) {
+            throw error("unexpected characters at the end of the line");
+        }
+    }
+
+    /**
+     * @return The next byte, or -1 at the end of the trace
+     */
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return bytes[position++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        buffer.clear();
+        int n;
+        do {
+            n = channel.read(buffer);
+        } while (n == 0);
+        position = 0;
+        limit = Math.max(n, 0);
+        return n > 0;
+    }
+
+    private IOException error(String message) {
+        return new IOException("Malformed trace at line " + line + ": " + message);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,130 @@
+import java.util.Arrays;
+
+/**
+ * A set-associative translation lookaside buffer, caching (process, virtual page) -> frame translations in front of the page walk.
+ * Each set holds {@code ways} entries and evicts its least recently used one. All the state is kept in primitive arrays.
+ */
+public class Tlb {
+
+    private static final long EMPTY = -1L;
+
+    private final int sets;
+    private final int ways;
+
+    /**
+     * The tag of each entry: (process ID << 32) | virtual page number, or EMPTY. Entry w of set s is at index s * ways + w.
+     */
+    private final long[] tags;
+    private final int[] frames;
+
+    /**
+     * The time of the last use of each entry, for LRU replacement
+     */
+    private final long[] lastUse;
+    private long clock;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * @param sets The number of sets (a power of two)
+     * @param ways The number of entries per set
+     */
+    public Tlb(int sets, int ways) {
+        if (sets <= 0 || Integer.bitCount(sets) != 1 || ways <= 0) {
+            throw new IllegalArgumentException("The TLB must have a power of two number of sets, and at least one way");
+        }
+        this.sets = sets;
+        this.ways = ways;
+        tags = new long[sets * ways];
+        frames = new int[sets * ways];
+        lastUse = new long[sets * ways];
+        Arrays.fill(tags, EMPTY);
+    }
+
+    /**
+     * @return The cached frame of the given virtual page, or -1 on a miss
+     */
+    public int lookup(int processID, int vpn) {
+        long tag = tag(processID, vpn);
+        int start = setOf(processID, vpn) * ways;
+        for (int i = start; i < start + ways; i++) {
+            if (tags[i] == tag) {
+                hits++;
+                lastUse[i] = ++clock;
+                return frames[i];
+            }
+        }
+        misses++;
+        return -1;
+    }
+
+    /**
+     * Caches a translation, evicting the least recently used entry of its set if the set is full.
+     */
+    public void insert(int processID, int vpn, int frame) {
+        int start = setOf(processID, vpn) * ways;
+        int victim = start;
+        for (int i = start; i < start + ways; i++) {
+            if (tags[i] == EMPTY) {
+                victim = i;
+                break;
+            }
+            if (lastUse[i] < lastUse[victim]) {
+                victim = i;
+            }
+        }
+        tags[victim] = tag(processID, vpn);
+        frames[victim] = frame;
+        lastUse[victim] = ++clock;
+    }
+
+    /**
+     * Removes the cached translation of the given virtual page, if any.
+     */
+    public void invalidate(int processID, int vpn) {
+        long tag = tag(processID, vpn);
+        int start = setOf(processID, vpn) * ways;
+        for (int i = start; i < start + ways; i++) {
+            if (tags[i] == tag) {
+                tags[i] = EMPTY;
+            }
+        }
+    }
+
+    /**
+     * Removes all the cached translations of the given process.
+     */
+    public void flush(int processID) {
+        for (int i = 0; i < tags.length; i++) {
+            if (tags[i] != EMPTY && (int) (tags[i] >>> 32) == processID) {
+                tags[i] = EMPTY;
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public int getSets() {
+        return sets;
+    }
+
+    public int getWays() {
+        return ways;
+    }
+
+    private static long tag(int processID, int vpn) {
+        return ((long) processID << 32) | (vpn & 0xFFFFFFFFL);
+    }
+
+    private int setOf(int processID, int vpn) {
+        // Mix the process ID in, so that the same pages of different processes don't all land in the same set
+        return (vpn ^ (processID * 0x9E3779B9)) & (sets - 1);
+    }
+}
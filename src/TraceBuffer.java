@@ -0,0 +1,91 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A whole trace held in memory, parsed once, so that several replays (e.g. one per strategy, on as many threads) read it without parsing it again.
+ * <p>
+ * The operations are stored as parallel primitive arrays (the kind, the trace ID and the value of each operation), 9 bytes per operation.
+ * The buffer is immutable once loaded: each reader gets its own cursor (see {@link #source}), and the arrays are shared.
+ */
+public class TraceBuffer {
+
+    private static final TraceOp.Kind[] KINDS = TraceOp.Kind.values();
+
+    private final byte[] kinds;
+    private final int[] ids;
+    private final int[] values;
+    private final int size;
+
+    private TraceBuffer(byte[] kinds, int[] ids, int[] values, int size) {
+        this.kinds = kinds;
+        this.ids = ids;
+        this.values = values;
+        this.size = size;
+    }
+
+    /**
+     * Reads all the operations of a trace source (which is not closed).
+     *
+     * @throws IOException If the source can't be read, or has more operations than an array can hold
+     */
+    public static TraceBuffer load(TraceSource source) throws IOException {
+        byte[] kinds = new byte[1024];
+        int[] ids = new int[1024];
+        int[] values = new int[1024];
+        int size = 0;
+        TraceOp op = new TraceOp();
+        while (source.next(op)) {
+            if (size == kinds.length) {
+                if (size == Integer.MAX_VALUE - 8) {
+                    throw new IOException("The trace has too many operations to be held in memory");
+                }
+                int capacity = (int) Math.min(2L * size, Integer.MAX_VALUE - 8);
+                kinds = Arrays.copyOf(kinds, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            kinds[size] = (byte) op.kind.ordinal();
+            ids[size] = op.id;
+            values[size] = op.value;
+            size++;
+        }
+        // Trim the arrays, which are kept for the lifetime of the buffer
+        return new TraceBuffer(Arrays.copyOf(kinds, size), Arrays.copyOf(ids, size), Arrays.copyOf(values, size), size);
+    }
+
+    /**
+     * @return The number of operations
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return A source that reads the whole trace
+     */
+    public TraceSource source() {
+        return source(0, size);
+    }
+
+    /**
+     * @return A source that reads the operations [from, to) of the trace. Any number of sources can read the buffer at once, from any threads.
+     */
+    public TraceSource source(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("The range [" + from + ", " + to + ") is outside the trace of " + size + " operations");
+        }
+        return new TraceSource() {
+            private int position = from;
+
+            @Override
+            public boolean next(TraceOp op) {
+                if (position == to) {
+                    return false;
+                }
+                op.set(KINDS[kinds[position]], ids[position], values[position]);
+                position++;
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * One operation of a trace. A trace source fills the same instance for every operation, so reading a trace creates no objects.
+ * <p>
+ * Processes are named by trace IDs, chosen by the trace: a create gives a trace ID to the new process, and the following deletes and converts use it.
+ * The replayer maps them to the IDs of the memory in a hash map of the live trace IDs, so a trace ID can be any non-negative int: the IDs may be
+ * sparse, and needn't be reused once their process is deleted.
+ */
+public class TraceOp {
+
+    public enum Kind {
+        /**
+         * Create process {@code id} of {@code value} KB
+         */
+        CREATE,
+        /**
+         * Delete process {@code id}
+         */
+        DELETE,
+        /**
+         * Convert the virtual address {@code value} of process {@code id}
+         */
+        CONVERT
+    }
+
+    public Kind kind;
+    public int id;
+    public int value;
+
+    public TraceOp set(Kind kind, int id, int value) {
+        this.kind = kind;
+        this.id = id;
+        this.value = value;
+        return this;
+    }
+}
@@ -0,0 +1,163 @@
+import java.io.IOException;
+
+/**
+ * Runs a trace against a memory, without any console output, and measures the throughput and the latency of the operations.
+ * <p>
+ * Failures are counted, not thrown: a create that doesn't fit, a delete or a convert of a process that doesn't exist, and a convert of an address
+ * outside its process. The latency of every {@code 2^sampleShift}-th operation is recorded (timing every operation would cost more than the operation itself).
+ */
+public class TraceReplayer {
+
+    private final TraceTarget memoryManager;
+
+    /**
+     * The memory ID of each live trace ID. A hash map rather than an array indexed by trace ID, so a trace with sparse or huge IDs costs memory
+     * in proportion to its live processes only.
+     */
+    private final IntIntMap processIDs = new IntIntMap();
+
+    private final int sampleMask;
+
+    private long creates;
+    private long deletes;
+    private long converts;
+    private long failedCreates;
+    private long failedDeletes;
+    private long invalidConverts;
+    private long elapsedNanos;
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    /**
+     * Keeps the results of the converts alive, so the JIT can't drop them
+     */
+    private long checksum;
+
+    /**
+     * Samples the latency of one operation in 16.
+     */
+    public TraceReplayer(TraceTarget memoryManager) {
+        this(memoryManager, 4);
+    }
+
+    /**
+     * @param sampleShift The latency of one operation in 2^sampleShift is recorded
+     */
+    public TraceReplayer(TraceTarget memoryManager, int sampleShift) {
+        if (sampleShift < 0 || sampleShift > 30) {
+            throw new IllegalArgumentException("The sample shift must be between 0 and 30");
+        }
+        this.memoryManager = memoryManager;
+        this.sampleMask = (1 << sampleShift) - 1;
+    }
+
+    /**
+     * Runs all the operations of a trace. The statistics add up over several calls.
+     */
+    public void replay(TraceSource source) throws IOException {
+        TraceOp op = new TraceOp();
+        long operations = creates + deletes + converts;
+        long start = System.nanoTime();
+        while (source.next(op)) {
+            if ((operations++ & sampleMask) == 0) {
+                long opStart = System.nanoTime();
+                execute(op);
+                latencies.record(System.nanoTime() - opStart);
+            } else {
+                execute(op);
+            }
+        }
+        elapsedNanos += System.nanoTime() - start;
+    }
+
+    private void execute(TraceOp op) throws IOException {
+        int traceID = op.id;
+        if (traceID < 0) {
+            throw new IOException("Negative trace ID " + traceID);
+        }
+        switch (op.kind) {
+            case CREATE:
+                creates++;
+                if (processIDs.get(traceID) != 0) {
+                    // The trace ID is already taken
+                    failedCreates++;
+                    break;
+                }
+                int id = memoryManager.tryAllocate(op.value);
+                if (id == -1) {
+                    failedCreates++;
+                } else {
+                    processIDs.put(traceID, id);
+                }
+                break;
+
+            case DELETE:
+                deletes++;
+                int deleted = processIDs.remove(traceID);
+                if (deleted == 0) {
+                    failedDeletes++;
+                    break;
+                }
+                memoryManager.tryDelete(deleted);
+                break;
+
+            case CONVERT:
+                converts++;
+                int processID = processIDs.get(traceID);
+                int physicalAddress = processID != 0 ? memoryManager.tryConvert(processID, op.value) : BulkTranslation.INVALID_ADDRESS;
+                if (physicalAddress == BulkTranslation.INVALID_ADDRESS) {
+                    invalidConverts++;
+                }
+                checksum += physicalAddress;
+                break;
+        }
+    }
+
+    public long getOperations() {
+        return creates + deletes + converts;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getCreates() {
+        return creates;
+    }
+
+    public long getFailedCreates() {
+        return failedCreates;
+    }
+
+    public long getFailedDeletes() {
+        return failedDeletes;
+    }
+
+    public long getInvalidConverts() {
+        return invalidConverts;
+    }
+
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    public void printSummary() {
+        long operations = getOperations();
+        double seconds = elapsedNanos / 1e9;
+        System.out.println("Operations: " + MemoryManager.blueColor(operations + "") + " in " + MemoryManager.blueColor(String.format("%.3f", seconds)) + " s ("
+                + MemoryManager.blueColor(String.format("%.2f", seconds == 0 ? 0 : operations / seconds / 1e6)) + " M ops/s)");
+        System.out.println("  Creates: " + MemoryManager.blueColor(creates + "") + " (" + MemoryManager.blueColor(failedCreates + "") + " failed)");
+        System.out.println("  Deletes: " + MemoryManager.blueColor(deletes + "") + " (" + MemoryManager.blueColor(failedDeletes + "") + " of unknown processes)");
+        System.out.println("  Converts: " + MemoryManager.blueColor(converts + "") + " (" + MemoryManager.blueColor(invalidConverts + "") + " invalid)");
+        System.out.println("Latency (ns, sampled over " + MemoryManager.blueColor(latencies.count() + "") + " operations): mean "
+                + MemoryManager.blueColor(String.format("%.0f", latencies.mean()))
+                + ", p50 " + MemoryManager.blueColor(latencies.percentile(50) + "")
+                + ", p99 " + MemoryManager.blueColor(latencies.percentile(99) + "")
+                + ", p99.9 " + MemoryManager.blueColor(latencies.percentile(99.9) + "")
+                + ", max " + MemoryManager.blueColor(latencies.max() + ""));
+    }
+}
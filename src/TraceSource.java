@@ -0,0 +1,47 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A stream of trace operations, read one at a time (the whole trace is never held in memory).
+ */
+public interface TraceSource extends AutoCloseable {
+
+    /**
+     * Reads the next operation into {@code op}.
+     *
+     * @return Whether there was one (false at the end of the trace)
+     */
+    boolean next(TraceOp op) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * Opens a trace file, binary (see {@link BinaryTraceWriter}) or text (see {@link TextTraceReader}) depending on its first bytes.
+     * The path "-" reads a text trace from the standard input.
+     */
+    static TraceSource open(String path) throws IOException {
+        if (path.equals("-")) {
+            return TextTraceReader.open(path);
+        }
+        FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(BinaryTraceWriter.MAGIC.length + 1);
+        while (header.hasRemaining() && channel.read(header) > 0) {
+            // Read the whole header (or the whole file, if it's shorter)
+        }
+        if (!header.hasRemaining() && Arrays.equals(Arrays.copyOf(header.array(), BinaryTraceWriter.MAGIC.length), BinaryTraceWriter.MAGIC)) {
+            if (header.get(BinaryTraceWriter.MAGIC.length) != BinaryTraceWriter.VERSION) {
+                channel.close();
+                throw new IOException("Unsupported binary trace version " + header.get(BinaryTraceWriter.MAGIC.length));
+            }
+            return new BinaryTraceReader(channel);
+        }
+        channel.position(0);
+        return new TextTraceReader(channel);
+    }
+}
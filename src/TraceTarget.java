@@ -0,0 +1,20 @@
+/**
+ * A memory that a {@link TraceReplayer} can drive: the operations of a trace, with failures reported by return values.
+ */
+public interface TraceTarget {
+
+    /**
+     * @return The ID of the new process, or -1 if the amount isn't positive or there is no space for it
+     */
+    int tryAllocate(int amount);
+
+    /**
+     * @return Whether the process existed
+     */
+    boolean tryDelete(int processID);
+
+    /**
+     * @return The physical address, or {@link BulkTranslation#INVALID_ADDRESS}
+     */
+    int tryConvert(int processID, int virtualAddress);
+}
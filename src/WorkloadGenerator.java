@@ -0,0 +1,183 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Generates a reproducible synthetic workload, lazily: it's a {@link TraceSource} that makes up each operation when it's read,
+ * so it can feed a {@link TraceReplayer} (or a {@link BinaryTraceWriter}) for billions of operations while only holding the live processes in memory.
+ * <p>
+ * Time is counted in operations. Each created process gets a size and a lifetime drawn from their distributions, and is deleted when its lifetime is over.
+ * The generator keeps the total size of the live processes around a target occupancy of the memory: it creates a process while it's below the target,
+ * and once it's above, deletes the process that would die first. Between these, a given fraction of the operations are converts of a random address
+ * of a random live process.
+ * <p>
+ * The same seed and parameters always give the same operations. Trace IDs of deleted processes are reused, so they stay below the number of live processes.
+ */
+public class WorkloadGenerator implements TraceSource {
+
+    private final SplittableRandom random;
+    private final long operations;
+    private final Distribution sizes;
+    private final Distribution lifetimes;
+    private final long targetUnits;
+    private final double convertRatio;
+
+    private long now;
+
+    /**
+     * The live processes in a min-heap by death time (parallel arrays of death times and trace IDs)
+     */
+    private long[] heapDeaths = new long[64];
+    private int[] heapIDs = new int[64];
+    private int liveCount;
+
+    /**
+     * The size of each live trace ID
+     */
+    private int[] sizeOf = new int[64];
+    private long liveUnits;
+
+    /**
+     * The live trace IDs, in no particular order, to pick one at random; and the position of each trace ID in this array
+     */
+    private int[] liveIDs = new int[64];
+    private int[] livePosition = new int[64];
+
+    private int[] freeIDs = new int[64];
+    private int freeIDCount;
+    private int nextID;
+
+    /**
+     * @param seed         The seed of the random generator
+     * @param operations   The number of operations to generate
+     * @param memSize      The size of the memory in KB
+     * @param sizes        The distribution of the process sizes in KB
+     * @param lifetimes    The distribution of the process lifetimes, in operations
+     * @param occupancy    The target total size of the live processes, as a fraction of the memory size
+     * @param convertRatio The fraction of the operations that are converts
+     */
+    public WorkloadGenerator(long seed, long operations, int memSize, Distribution sizes, Distribution lifetimes, double occupancy, double convertRatio) {
+        if (operations < 0 || occupancy <= 0 || occupancy > 1 || convertRatio < 0 || convertRatio >= 1) {
+            throw new IllegalArgumentException("The occupancy must be in (0, 1], and the convert ratio in [0, 1)");
+        }
+        this.random = new SplittableRandom(seed);
+        this.operations = operations;
+        this.sizes = sizes;
+        this.lifetimes = lifetimes;
+        this.targetUnits = (long) (occupancy * memSize);
+        this.convertRatio = convertRatio;
+    }
+
+    @Override
+    public boolean next(TraceOp op) {
+        if (now == operations) {
+            return false;
+        }
+        now++;
+
+        if (liveCount > 0 && heapDeaths[0] <= now) {
+            // The lifetime of a process is over
+            delete(op);
+        } else if (liveCount > 0 && random.nextDouble() < convertRatio) {
+            int id = liveIDs[random.nextInt(liveCount)];
+            op.set(TraceOp.Kind.CONVERT, id, random.nextInt(sizeOf[id]));
+        } else if (liveUnits < targetUnits || liveCount == 0) {
+            create(op);
+        } else {
+            // Above the target occupancy: the process that would die first dies now
+            delete(op);
+        }
+        return true;
+    }
+
+    private void create(TraceOp op) {
+        int size = sizes.sample(random);
+        long death = now + lifetimes.sample(random);
+
+        int id = freeIDCount > 0 ? freeIDs[--freeIDCount] : nextID++;
+        if (id >= sizeOf.length) {
+            sizeOf = Arrays.copyOf(sizeOf, 2 * sizeOf.length);
+            livePosition = Arrays.copyOf(livePosition, 2 * livePosition.length);
+        }
+        sizeOf[id] = size;
+        liveUnits += size;
+
+        if (liveCount == liveIDs.length) {
+            liveIDs = Arrays.copyOf(liveIDs, 2 * liveIDs.length);
+            heapDeaths = Arrays.copyOf(heapDeaths, 2 * heapDeaths.length);
+            heapIDs = Arrays.copyOf(heapIDs, 2 * heapIDs.length);
+        }
+        liveIDs[liveCount] = id;
+        livePosition[id] = liveCount;
+        heapPush(death, id, liveCount);
+        liveCount++;
+
+        op.set(TraceOp.Kind.CREATE, id, size);
+    }
+
+    /**
+     * Deletes the process that dies first.
+     */
+    private void delete(TraceOp op) {
+        int id = heapIDs[0];
+        liveCount--;
+        heapPop(liveCount);
+
+        // Swap-remove the ID from the live IDs
+        int position = livePosition[id];
+        int last = liveIDs[liveCount];
+        liveIDs[position] = last;
+        livePosition[last] = position;
+
+        liveUnits -= sizeOf[id];
+        if (freeIDCount == freeIDs.length) {
+            freeIDs = Arrays.copyOf(freeIDs, 2 * freeIDs.length);
+        }
+        freeIDs[freeIDCount++] = id;
+
+        op.set(TraceOp.Kind.DELETE, id, 0);
+    }
+
+    /**
+     * Adds an entry to the heap, which holds {@code size} entries.
+     */
+    private void heapPush(long death, int id, int size) {
+        int i = size;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapDeaths[parent] <= death) {
+                break;
+            }
+            heapDeaths[i] = heapDeaths[parent];
+            heapIDs[i] = heapIDs[parent];
+            i = parent;
+        }
+        heapDeaths[i] = death;
+        heapIDs[i] = id;
+    }
+
+    /**
+     * Removes the first entry of the heap, which holds {@code size} entries after the removal.
+     */
+    private void heapPop(int size) {
+        long death = heapDeaths[size];
+        int id = heapIDs[size];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heapDeaths[child + 1] < heapDeaths[child]) {
+                child++;
+            }
+            if (death <= heapDeaths[child]) {
+                break;
+            }
+            heapDeaths[i] = heapDeaths[child];
+            heapIDs[i] = heapIDs[child];
+            i = child;
+        }
+        heapDeaths[i] = death;
+        heapIDs[i] = id;
+    }
+}
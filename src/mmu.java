@@ -1,5 +1,13 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.function.Supplier;
 
 
 public class mmu {
@@ -13,41 +21,176 @@ public class mmu {
     public static final int NEXT_FIT = 2;
     public static final int BEST_FIT = 3;
     public static final int WORST_FIT = 4;
+    public static final int BUDDY = 5;
+    public static final int SEGREGATED_FIT = 6;
+
+    /**
+     * The options that take no value
+     */
+    private static final Set<String> FLAGS = Set.of("pipeline", "quiet");
 
     public static void main(String[] args) {
-        if (args.length != 2) {
+        // The options (--name value, or --name for a flag) can be anywhere; the other arguments are positional
+        Map<String, String> options = new HashMap<>();
+        ArrayList<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--") && FLAGS.contains(args[i].substring(2))) {
+                options.put(args[i].substring(2), "true");
+            } else if (args[i].startsWith("--") && i + 1 < args.length) {
+                options.put(args[i].substring(2), args[++i]);
+            } else {
+                positional.add(args[i]);
+            }
+        }
+        args = positional.toArray(new String[0]);
+
+        if (options.containsKey("compare")) {
+            compare(args, options);
+            return;
+        }
+
+        // With --snapshot, an existing snapshot is resumed (and the size and strategy come from it)
+        Path snapshot = options.containsKey("snapshot") ? Path.of(options.get("snapshot")) : null;
+        boolean resume = snapshot != null && Files.exists(snapshot);
+
+        if (!resume && (args.length < 2 || args.length > 5)) {
             printErr("Error: Wrong number of arguments. You should provide the size of the memory and the allocation strategy.");
-            printErr("Correct usage: java mmu <size> <allocation strategy>");
-            printErr("e.g: java mmu 200 3");
+            printErr("Correct usage: java mmu <size> <allocation strategy> [tree], or java mmu <size> paging [page size] [replacement policy] [swap size]");
+            printErr("e.g: java mmu 200 3, or java mmu 200 best-fit, or java mmu 200 paging 4, or java mmu 200 paging 4 lru 1000");
+            printErr("Add --replay <trace file> (or - for the standard input) to run a trace instead of the REPL,");
+            printErr("or --generate <operations> [--seed n] [--sizes distribution] [--lifetimes distribution] [--occupancy fraction] [--converts fraction]");
+            printErr("to run a synthetic workload (add --write <file> to save it as a binary trace instead)");
+            printErr("Add --metrics <file.csv|file.json> [--metrics-period ms] to export the allocator metrics through JMX and to a file, or --metrics jmx for JMX only");
+            printErr("Add --snapshot <file> [--log <file>] to save the memory in a snapshot (and log the operations after it), or to resume it if the snapshot exists");
+            printErr("Run java mmu <size> --compare <strategies,...|all> with --replay or --generate to replay the trace against several strategies in parallel");
+            printErr("Add --nodes <count> [--placement local-first|interleave|least-loaded] to split the memory into NUMA nodes (with --replay or --generate)");
+            printErr("Add --pipeline to run the commands of the standard input as a script, without the prompt, or --quiet to print only the reports and a summary");
             System.exit(1);
         }
 
         MemoryManager mm = null;
+        NumaMemoryManager numa = null;
+        TraceSource workload = null;
         try {
-            int memSize = Integer.parseInt(args[0]);
-            int allocStrategy = Integer.parseInt(args[1]);
-
-            mm = new MemoryManager(memSize, allocStrategy);
-            System.out.println("Memory of size " + memSize + " is created.");
-            switch (allocStrategy) {
-                case FIRST_FIT:
-                    System.out.println("The allocation strategy is First Fit");
-                    break;
-                case NEXT_FIT:
-                    System.out.println("The allocation strategy is Next Fit");
-                    break;
-                case BEST_FIT:
-                    System.out.println("The allocation strategy is Best Fit");
-                    break;
-                case WORST_FIT:
-                    System.out.println("The allocation strategy is Worst Fit");
-                    break;
+            if (resume) {
+                mm = options.containsKey("log") ? MemoryManager.restore(snapshot, Path.of(options.get("log"))) : MemoryManager.restore(snapshot);
+            }
+            int memSize = resume ? mm.getMemSize() : Integer.parseInt(args[0]);
+
+            workload = openWorkload(options, memSize);
+            if (options.containsKey("generate") && options.containsKey("write")) {
+                try (BinaryTraceWriter writer = BinaryTraceWriter.create(Path.of(options.get("write")))) {
+                    System.out.println("Wrote " + writer.writeAll(workload) + " operations to " + options.get("write"));
+                }
+                return;
+            }
+
+            if (resume) {
+                System.out.println("Memory of size " + memSize + " is restored from " + snapshot);
+                System.out.println("The allocation strategy is " + mm.getStrategy().name());
+            } else if (args[1].equalsIgnoreCase("paging")) {
+                int pageSize = args.length >= 3 ? Integer.parseInt(args[2]) : PagingUnit.DEFAULT_PAGE_SIZE;
+                PagingUnit paging;
+                if (args.length >= 4) {
+                    // Demand paging: a replacement policy, and a swap area (of the memory size by default)
+                    PageReplacementPolicy policy = PageReplacementPolicies.forName(args[3]);
+                    int swapSize = args.length == 5 ? Integer.parseInt(args[4]) : memSize;
+                    SwapArea swap = SwapArea.createTemp(Math.max(1, swapSize / pageSize), pageSize);
+                    paging = new PagingUnit(pageSize, PagingUnit.DEFAULT_LEVELS, PagingUnit.DEFAULT_BITS_PER_LEVEL,
+                            PagingUnit.DEFAULT_TLB_SETS, PagingUnit.DEFAULT_TLB_WAYS, swap, policy);
+                } else {
+                    paging = new PagingUnit(pageSize, PagingUnit.DEFAULT_LEVELS, PagingUnit.DEFAULT_BITS_PER_LEVEL,
+                            PagingUnit.DEFAULT_TLB_SETS, PagingUnit.DEFAULT_TLB_WAYS);
+                }
+                mm = new MemoryManager(memSize, paging);
+                System.out.println("Memory of size " + memSize + " is created.");
+                System.out.println("The memory is in paging mode, with pages of " + pageSize + " KB");
+                if (paging.isDemandPaging()) {
+                    System.out.println("Pages are loaded on demand, with the " + args[3].toLowerCase() + " replacement policy");
+                }
+            } else {
+                // The optional "tree" argument selects the segment tree backend for First Fit and Next Fit
+                boolean useFreeRunTree = false;
+                if (args.length > 3) {
+                    throw new IllegalArgumentException("Too many arguments");
+                }
+                if (args.length == 3) {
+                    if (!args[2].equalsIgnoreCase("tree")) {
+                        throw new IllegalArgumentException("Unknown backend " + args[2]);
+                    }
+                    useFreeRunTree = true;
+                }
+
+                // The allocation strategy is given either by its number or by its name
+                String strategyName = args[1];
+                boolean tree = useFreeRunTree;
+                Supplier<AllocationStrategy> strategies = strategyName.chars().allMatch(Character::isDigit)
+                        ? () -> AllocationStrategies.forId(Integer.parseInt(strategyName), tree)
+                        : () -> AllocationStrategies.forName(tree ? strategyName + "-tree" : strategyName);
+                AllocationStrategy strategy = strategies.get();
+
+                if (options.containsKey("nodes")) {
+                    // Each node gets its own instance of the strategy
+                    if (workload == null || snapshot != null || options.containsKey("metrics")) {
+                        throw new IllegalArgumentException("NUMA nodes only run a trace (--replay or --generate), without --snapshot or --metrics");
+                    }
+                    int nodeCount = Integer.parseInt(options.get("nodes"));
+                    numa = new NumaMemoryManager(memSize, nodeCount, strategies, PlacementPolicy.forName(options.getOrDefault("placement", "local-first")),
+                            NumaMemoryManager.uniformDistances(nodeCount));
+                    System.out.println("Memory of size " + memSize + " is created, on " + nodeCount + " nodes.");
+                    System.out.println("The allocation strategy is " + strategy.name() + ", and the placement is " + options.getOrDefault("placement", "local-first"));
+                } else {
+                    mm = new MemoryManager(memSize, strategy);
+                    System.out.println("Memory of size " + memSize + " is created.");
+                    System.out.println("The allocation strategy is " + strategy.name());
+                }
+            }
+            if (numa == null && options.containsKey("nodes")) {
+                throw new IllegalArgumentException("NUMA nodes need a contiguous allocation strategy, and can't be restored from a snapshot");
+            }
+
+            if (snapshot != null && !resume) {
+                mm.saveSnapshot(snapshot);
+                if (options.containsKey("log")) {
+                    mm.openLog(Path.of(options.get("log")));
+                }
+            } else if (snapshot == null && options.containsKey("log")) {
+                throw new IllegalArgumentException("The operation log must follow a snapshot: add --snapshot <file>");
+            }
+            if (mm != null && mm.getLog() != null) {
+                // The buffered records are written when the JVM exits
+                MemoryManager logged = mm;
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        logged.closeLog();
+                    } catch (IOException e) {
+                        printErr("Error: " + e.getMessage());
+                    }
+                }));
+            }
+
+            if (options.containsKey("metrics")) {
+                enableMetrics(mm, options.get("metrics"), Long.parseLong(options.getOrDefault("metrics-period", "1000")));
             }
         } catch (Exception e) {
             printErr("Error: " + e.getMessage());
             System.exit(1);
         }
 
+        if (numa != null) {
+            replay(numa, workload);
+            return;
+        }
+        if (workload != null) {
+            replay(mm, workload);
+            return;
+        }
+
+        if (options.containsKey("pipeline") || options.containsKey("quiet")) {
+            runScript(new Repl(null, mm), options.containsKey("quiet"));
+            return;
+        }
+
         Scanner sc = new Scanner(System.in);
         Repl repl = new Repl(sc, mm);
         repl.start();
@@ -55,6 +198,117 @@ public class mmu {
         sc.close();
     }
 
+    /**
+     * @return The workload given by --generate or --replay, or null if there is none
+     */
+    private static TraceSource openWorkload(Map<String, String> options, int memSize) throws IOException {
+        if (options.containsKey("generate")) {
+            return new WorkloadGenerator(
+                    Long.parseLong(options.getOrDefault("seed", "1")),
+                    Long.parseLong(options.get("generate")),
+                    memSize,
+                    Distribution.parse(options.getOrDefault("sizes", "exp:" + Math.max(1, memSize / 100))),
+                    Distribution.parse(options.getOrDefault("lifetimes", "exp:1000")),
+                    Double.parseDouble(options.getOrDefault("occupancy", "0.7")),
+                    Double.parseDouble(options.getOrDefault("converts", "0.5")));
+        }
+        if (options.containsKey("replay")) {
+            return TraceSource.open(options.get("replay"));
+        }
+        return null;
+    }
+
+    /**
+     * Loads the trace once, replays it against each strategy of --compare in parallel, and prints the report.
+     * --samples sets the number of times the fragmentation is sampled (10 by default).
+     */
+    private static void compare(String[] args, Map<String, String> options) {
+        try {
+            if (args.length != 1) {
+                throw new IllegalArgumentException("Expected the size of the memory only: the strategies are given by --compare");
+            }
+            int memSize = Integer.parseInt(args[0]);
+            String names = options.get("compare");
+            List<String> strategies = names.equalsIgnoreCase("all") ? StrategyComparison.DEFAULT_STRATEGIES : List.of(names.split(","));
+
+            TraceBuffer trace;
+            try (TraceSource workload = openWorkload(options, memSize)) {
+                if (workload == null) {
+                    throw new IllegalArgumentException("The comparison needs a trace: add --replay <trace file> or --generate <operations>");
+                }
+                trace = TraceBuffer.load(workload);
+            }
+            StrategyComparison comparison = new StrategyComparison(memSize, strategies, trace, Integer.parseInt(options.getOrDefault("samples", "10")));
+            comparison.printReport(comparison.run());
+        } catch (Exception e) {
+            printErr("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Registers the allocator metrics in JMX, and unless the target is "jmx", writes them to the given file every period.
+     * The last report is written when the JVM exits.
+     */
+    private static void enableMetrics(MemoryManager mm, String target, long periodMillis) throws Exception {
+        AllocatorMetrics metrics = mm.enableMetrics();
+        System.out.println("The metrics are registered as " + metrics.registerMBean());
+        if (target.equalsIgnoreCase("jmx")) {
+            return;
+        }
+        metrics.startReporter(Path.of(target), periodMillis);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                metrics.stopReporter();
+            } catch (IOException e) {
+                printErr("Error: " + e.getMessage());
+            }
+        }));
+    }
+
+    /**
+     * Runs a trace (from a file, or generated) against the memory without printing the result of each operation, then prints the throughput and latency.
+     */
+    private static void replay(MemoryManager mm, TraceSource workload) {
+        TraceReplayer replayer = new TraceReplayer(mm);
+        try (workload) {
+            replayer.replay(workload);
+        } catch (IOException e) {
+            printErr("Error: " + e.getMessage());
+            System.exit(1);
+        }
+        replayer.printSummary();
+        mm.printFragmentation();
+    }
+
+    /**
+     * Runs a trace against NUMA nodes, then prints the throughput and latency, and the usage and accesses of each node.
+     */
+    private static void replay(NumaMemoryManager numa, TraceSource workload) {
+        TraceReplayer replayer = new TraceReplayer(numa);
+        try (workload) {
+            replayer.replay(workload);
+        } catch (IOException e) {
+            printErr("Error: " + e.getMessage());
+            System.exit(1);
+        }
+        replayer.printSummary();
+        numa.printNodes();
+    }
+
+    /**
+     * Runs the commands of the standard input as a script (see {@link ScriptRunner}).
+     */
+    private static void runScript(Repl repl, boolean quiet) {
+        ScriptRunner runner = new ScriptRunner(repl, System.in, System.out, quiet);
+        try {
+            runner.run();
+        } catch (IOException e) {
+            printErr("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
     // Custom printing method to print red-colored text in the terminal
     public static void printErr(String s) {
         System.out.println(ANSI_RED + s + ANSI_RESET);